@@ -0,0 +1,8 @@
+package com.booking.booking.DTO;
+
+public record AvailabilityImportResultDTO(
+    Long providerId,
+    int status,
+    int imported,
+    String message
+) {}
@@ -0,0 +1,10 @@
+package com.booking.booking.DTO;
+
+import java.time.LocalTime;
+
+public record AvailabilityWindowDTO(
+    Long providerId,
+    int dayOfWeek,
+    LocalTime startTime,
+    LocalTime endTime
+) {}
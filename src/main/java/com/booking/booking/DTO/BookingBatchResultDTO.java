@@ -0,0 +1,8 @@
+package com.booking.booking.DTO;
+
+public record BookingBatchResultDTO(
+    int index,
+    int status,
+    BookingsResponseDTO booking,
+    String message
+) {}
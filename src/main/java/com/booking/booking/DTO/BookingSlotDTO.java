@@ -0,0 +1,10 @@
+package com.booking.booking.DTO;
+
+import java.time.LocalDateTime;
+
+public record BookingSlotDTO(
+    Long id,
+    Long providerId,
+    LocalDateTime startsTs,
+    LocalDateTime endTs
+) {}
@@ -0,0 +1,8 @@
+package com.booking.booking.DTO;
+
+import java.util.List;
+
+public record BookingsPageDTO(
+    List<BookingsResponseDTO> items,
+    String nextCursor
+) {}
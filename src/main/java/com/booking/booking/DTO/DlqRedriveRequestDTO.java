@@ -0,0 +1,14 @@
+package com.booking.booking.DTO;
+
+/**
+ * Filters and limits of one redrive; every field is optional. type matches
+ * the event class, simple or fully qualified. Ages are measured from when
+ * the message was dead-lettered.
+ */
+public record DlqRedriveRequestDTO(
+    String type,
+    Long minAgeMinutes,
+    Long maxAgeMinutes,
+    Integer ratePerSecond,
+    Long limit
+) {}
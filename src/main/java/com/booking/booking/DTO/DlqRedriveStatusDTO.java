@@ -0,0 +1,17 @@
+package com.booking.booking.DTO;
+
+import java.time.Instant;
+
+public record DlqRedriveStatusDTO(
+    String jobId,
+    String queue,
+    String state,
+    long queuedAtStart,
+    long redriven,
+    long skipped,
+    long duplicates,
+    long failed,
+    Instant startedAt,
+    Instant finishedAt,
+    String error
+) {}
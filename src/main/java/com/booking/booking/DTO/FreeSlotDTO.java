@@ -0,0 +1,8 @@
+package com.booking.booking.DTO;
+
+import java.time.LocalDateTime;
+
+public record FreeSlotDTO(
+    LocalDateTime startsTs,
+    LocalDateTime endTs
+) {}
@@ -0,0 +1,9 @@
+package com.booking.booking.DTO;
+
+import java.time.LocalDateTime;
+
+public record ProviderSlotDTO(
+    Long providerId,
+    LocalDateTime startsTs,
+    LocalDateTime endTs
+) {}
@@ -0,0 +1,9 @@
+package com.booking.booking.DTO;
+
+import java.time.LocalDate;
+
+public record WorkingMinutesDTO(
+    LocalDate date,
+    int workingMinutes,
+    int freeMinutes
+) {}
@@ -0,0 +1,35 @@
+package com.booking.booking.config;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Events as Avro single-object encoding: a two byte marker, the 64-bit
+ * fingerprint of the writer schema, then the binary record. The
+ * fingerprint alone identifies the event, so the type id is not needed.
+ */
+@Component
+public class AvroEventCodec implements EventCodec {
+
+    public static final String CONTENT_TYPE = "application/avro";
+
+    private final EventSchemas schemas;
+
+    public AvroEventCodec(EventSchemas schemas) {
+        this.schemas = schemas;
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Object event) {
+        return schemas.encode(event);
+    }
+
+    @Override
+    public Object decode(byte[] body, String typeId) {
+        return schemas.decode(body);
+    }
+}
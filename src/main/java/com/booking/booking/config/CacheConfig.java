@@ -0,0 +1,141 @@
+package com.booking.booking.config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+
+import com.booking.booking.DTO.BookingsResponseDTO;
+import com.booking.booking.services.WeeklyAvailability;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Two-level cache for booking reads and provider working hours: Caffeine
+ * per node, Redis shared.
+ *
+ * Each cache has a typed JSON serializer so Redis holds plain documents
+ * instead of class-tagged polymorphic JSON. Evictions are published on
+ * CACHE_INVALIDATION_CHANNEL and every other node drops its local copy.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    private static final Logger log = LoggerFactory.getLogger(CacheConfig.class);
+
+    public static final String BOOKINGS = "bookings";
+    public static final String PROVIDER_BOOKINGS = "provider-bookings";
+    public static final String PROVIDER_AVAILABILITY = "provider-availability";
+
+    static final String CACHE_INVALIDATION_CHANNEL = "cache:invalidate";
+
+    // messages from this node are ignored, it already evicted locally
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    @Value("${booking.cache.local.max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${booking.cache.local.ttl-seconds:30}")
+    private long localTtlSeconds;
+
+    @Value("${booking.cache.redis.ttl-minutes:10}")
+    private long redisTtlMinutes;
+
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, StringRedisTemplate redisTemplate) {
+        CaffeineCacheManager local = new CaffeineCacheManager();
+        local.setCaffeine(Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            .expireAfterWrite(Duration.ofSeconds(localTtlSeconds)));
+
+        ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        JavaType bookingList = mapper.getTypeFactory().constructCollectionType(List.class, BookingsResponseDTO.class);
+
+        RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig()
+            .entryTtl(Duration.ofMinutes(redisTtlMinutes))
+            .disableCachingNullValues();
+
+        RedisCacheManager remote = RedisCacheManager.builder(connectionFactory)
+            .cacheDefaults(defaults)
+            .withCacheConfiguration(BOOKINGS, defaults.serializeValuesWith(SerializationPair.fromSerializer(
+                new Jackson2JsonRedisSerializer<>(mapper, BookingsResponseDTO.class))))
+            .withCacheConfiguration(PROVIDER_BOOKINGS, defaults.serializeValuesWith(SerializationPair.fromSerializer(
+                new Jackson2JsonRedisSerializer<>(mapper, bookingList))))
+            .withCacheConfiguration(PROVIDER_AVAILABILITY, defaults.serializeValuesWith(SerializationPair.fromSerializer(
+                new Jackson2JsonRedisSerializer<>(mapper, WeeklyAvailability.class))))
+            .disableCreateOnMissingCache()
+            .build();
+        remote.afterPropertiesSet();
+
+        for (String name : List.of(BOOKINGS, PROVIDER_BOOKINGS, PROVIDER_AVAILABILITY)) {
+            caches.put(name, new TwoLevelCache(
+                name,
+                local.getCache(name),
+                remote.getCache(name),
+                (cacheName, key) -> redisTemplate.convertAndSend(
+                    CACHE_INVALIDATION_CHANNEL, nodeId + "|" + cacheName + "|" + key)
+            ));
+        }
+
+        return new CacheManager() {
+            @Override
+            public Cache getCache(String name) {
+                return caches.get(name);
+            }
+
+            @Override
+            public Collection<String> getCacheNames() {
+                return caches.keySet();
+            }
+        };
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+            new ChannelTopic(CACHE_INVALIDATION_CHANNEL));
+        return container;
+    }
+
+    void onInvalidation(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            log.debug("Invalidation for unknown cache {}", parts[1]);
+            return;
+        }
+        cache.evictLocal(parts[2]);
+    }
+}
@@ -0,0 +1,159 @@
+package com.booking.booking.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import com.booking.booking.DTO.ErrorResponseDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Stores the body as deflated Smile next to the status and headers.
+ *
+ * Layout: format byte, status (u16), header count (u16), name/value pairs,
+ * then either the deflated Smile body (FULL) or the SHA-256 of the Smile
+ * body (DIGEST). Every body is stored in full unless hash-only-above-bytes
+ * is set; bodies over it are kept as a digest only, and since their replay
+ * can't give the client its results it answers 409 with the digest header
+ * instead of a success without a body. Replay streams Smile straight into
+ * JSON on the response, without building objects or an intermediate string.
+ */
+@Component
+public class CompactResponseCodec implements ResponseCodec {
+
+    public static final String DIGEST_HEADER = "Idempotency-Replay-Digest";
+
+    private static final byte FULL = 1;
+    private static final byte DIGEST = 2;
+
+    private final ObjectMapper mapper;
+    private final ObjectMapper smileMapper;
+    private final JsonFactory jsonFactory;
+
+    // 0: never digest-only
+    @Value("${booking.idempotency.codec.hash-only-above-bytes:0}")
+    private int hashOnlyAboveBytes = 0;
+
+    public CompactResponseCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.smileMapper = mapper.copyWith(new SmileFactory());
+        this.jsonFactory = mapper.getFactory();
+    }
+
+    @Override
+    public byte[] encode(int status, HttpHeaders headers, Object body) throws IOException {
+        byte[] smile = smileMapper.writeValueAsBytes(body);
+        boolean digestOnly = hashOnlyAboveBytes > 0 && smile.length > hashOnlyAboveBytes;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(digestOnly ? 128 : smile.length / 4 + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(digestOnly ? DIGEST : FULL);
+        out.writeShort(status);
+        writeHeaders(out, headers);
+
+        if (digestOnly) {
+            out.write(sha256(smile));
+        } else {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater);
+                deflate.write(smile);
+                deflate.finish();
+            } finally {
+                deflater.end();
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void replay(byte[] payload, HttpServletResponse response) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte format = in.readByte();
+        int status = in.readUnsignedShort();
+        int headerCount = in.readUnsignedShort();
+        if (format == DIGEST) {
+            for (int i = 0; i < headerCount; i++) {
+                in.readUTF();
+                in.readUTF();
+            }
+            HttpStatus conflict = HttpStatus.CONFLICT;
+            response.setStatus(conflict.value());
+            response.setHeader(DIGEST_HEADER, "sha-256=" + Base64.getEncoder().encodeToString(in.readAllBytes()));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            mapper.writeValue(response.getOutputStream(), new ErrorResponseDTO(conflict.value(), conflict.getReasonPhrase(),
+                "Request already completed with status " + status + ", its response was too large to keep", LocalDateTime.now()));
+            return;
+        }
+
+        response.setStatus(status);
+        for (int i = 0; i < headerCount; i++) {
+            response.addHeader(in.readUTF(), in.readUTF());
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonParser parser = smileMapper.getFactory().createParser(new InflaterInputStream(in));
+             JsonGenerator generator = jsonFactory.createGenerator(response.getOutputStream())) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+    // content headers describe the JSON on the wire and are set again on replay
+    private static void writeHeaders(DataOutputStream out, HttpHeaders headers) throws IOException {
+        int count = 0;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (isStored(header.getKey())) {
+                count += header.getValue().size();
+            }
+        }
+        out.writeShort(count);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!isStored(header.getKey())) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                out.writeUTF(header.getKey());
+                out.writeUTF(value);
+            }
+        }
+    }
+
+    private static boolean isStored(String name) {
+        return !HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)
+            && !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+            && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name);
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.booking.booking.config;
+
+/**
+ * Wire format of the events published to RabbitMQ. The outbox stores the
+ * encoded body as-is, so the format is picked once, when the event is
+ * written; EventMessageConverter picks the decoder from the content type.
+ */
+public interface EventCodec {
+
+    String contentType();
+
+    byte[] encode(Object event);
+
+    /** typeId is the event class name the producer wrote next to the body. */
+    Object decode(byte[] body, String typeId);
+}
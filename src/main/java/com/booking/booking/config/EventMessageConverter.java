@@ -0,0 +1,63 @@
+package com.booking.booking.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts events with the codec named by booking.messaging.format (json
+ * or avro) and reads whatever format a message says it is in, so the
+ * format can be switched while old messages are still queued.
+ */
+@Component
+public class EventMessageConverter implements MessageConverter {
+
+    // the header Jackson2JsonMessageConverter used to pick the event class; kept for JSON readers
+    public static final String TYPE_ID_HEADER = "__TypeId__";
+
+    private final Map<String, EventCodec> byContentType;
+    private final EventCodec writer;
+
+    public EventMessageConverter(List<EventCodec> codecs,
+                                 @Value("${booking.messaging.format:json}") String format) {
+        this.byContentType = codecs.stream()
+            .collect(Collectors.toMap(EventCodec::contentType, Function.identity()));
+        this.writer = switch (format) {
+            case "json" -> byContentType.get(MessageProperties.CONTENT_TYPE_JSON);
+            case "avro" -> byContentType.get(AvroEventCodec.CONTENT_TYPE);
+            default -> throw new IllegalArgumentException("Unknown booking.messaging.format: " + format);
+        };
+    }
+
+    /** The codec new events are written with. */
+    public EventCodec writer() {
+        return writer;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        messageProperties.setContentType(writer.contentType());
+        messageProperties.setHeader(TYPE_ID_HEADER, object.getClass().getName());
+        return new Message(writer.encode(object), messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        String contentType = properties.getContentType();
+        // ignore parameters such as ;charset=UTF-8
+        EventCodec codec = contentType == null ? null : byContentType.get(contentType.split(";")[0].trim());
+        if (codec == null) {
+            throw new MessageConversionException("Unsupported event content type: " + contentType);
+        }
+        return codec.decode(message.getBody(), properties.getHeader(TYPE_ID_HEADER));
+    }
+}
@@ -0,0 +1,291 @@
+package com.booking.booking.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.message.SchemaStore;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import com.booking.booking.events.bookingEvents.BookingCreatedEvent;
+import com.booking.booking.events.bookingEvents.BookingDeletedEvent;
+import com.booking.booking.events.bookingEvents.BookingUpdatedEvent;
+import com.booking.booking.events.providerEvents.ProviderAvailabilityCreatedEvent;
+import com.booking.booking.events.providerEvents.ProviderAvailabilityDeletedEvent;
+import com.booking.booking.events.providerEvents.ProviderAvailabilityUpdatedEvent;
+import com.booking.booking.events.providerEvents.ProviderScheduleImportedEvent;
+import com.booking.booking.events.usersEvents.UsersCreatedEvent;
+import com.booking.booking.events.usersEvents.UsersDeletedEvent;
+import com.booking.booking.events.usersEvents.UsersUpdatedEvent;
+
+/**
+ * Schema registry stand-in: the Avro schemas of every event, read from
+ * classpath:avro/*.avsc and looked up by the fingerprint in each message.
+ *
+ * A schema file may hold older versions of a record next to the current
+ * one; messages written with them are resolved to the current version on
+ * read. Records are mapped to and from the event classes by hand, without
+ * reflection. Timestamps travel as microseconds of the local date-time.
+ */
+@Component
+public class EventSchemas {
+
+    private static final String SCHEMA_LOCATION = "classpath:avro/*.avsc";
+    private static final String NAMESPACE = "com.booking.booking.events.avro.";
+
+    // single-object encoding: C3 01, then the fingerprint little-endian
+    private static final int HEADER_LENGTH = 10;
+
+    private final SchemaStore.Cache store = new SchemaStore.Cache();
+    private final Map<Long, Schema> byFingerprint = new HashMap<>();
+    private final Map<Class<?>, Binding<?>> byClass = new HashMap<>();
+    private final Map<String, Binding<?>> byName = new HashMap<>();
+
+    private static final class Binding<T> {
+        final Schema schema;
+        final BiConsumer<T, GenericRecord> write;
+        final Function<GenericRecord, T> read;
+        final BinaryMessageEncoder<GenericRecord> encoder;
+        final BinaryMessageDecoder<GenericRecord> decoder;
+
+        Binding(Schema schema, SchemaStore store, BiConsumer<T, GenericRecord> write, Function<GenericRecord, T> read) {
+            this.schema = schema;
+            this.write = write;
+            this.read = read;
+            this.encoder = new BinaryMessageEncoder<>(GenericData.get(), schema);
+            this.decoder = new BinaryMessageDecoder<>(GenericData.get(), schema, store);
+        }
+    }
+
+    public EventSchemas() {
+        Map<String, Schema> current = loadSchemas();
+
+        bind(current, BookingCreatedEvent.class,
+            (e, r) -> booking(r, e.getId(), e.getProviderId(), e.getCustomerId(), e.getStartsTs(), e.getEndTs(), e.getEventTs()),
+            r -> BookingCreatedEvent.builder().id(l(r, "id")).providerId(l(r, "providerId")).customerId(l(r, "customerId"))
+                .startsTs(ts(r, "startsTs")).endTs(ts(r, "endTs")).eventTs(ts(r, "eventTs")).build());
+        bind(current, BookingUpdatedEvent.class,
+            (e, r) -> booking(r, e.getId(), e.getProviderId(), e.getCustomerId(), e.getStartsTs(), e.getEndTs(), e.getEventTs()),
+            r -> BookingUpdatedEvent.builder().id(l(r, "id")).providerId(l(r, "providerId")).customerId(l(r, "customerId"))
+                .startsTs(ts(r, "startsTs")).endTs(ts(r, "endTs")).eventTs(ts(r, "eventTs")).build());
+        bind(current, BookingDeletedEvent.class,
+            (e, r) -> booking(r, e.getId(), e.getProviderId(), e.getCustomerId(), e.getStartsTs(), e.getEndTs(), e.getEventTs()),
+            r -> BookingDeletedEvent.builder().id(l(r, "id")).providerId(l(r, "providerId")).customerId(l(r, "customerId"))
+                .startsTs(ts(r, "startsTs")).endTs(ts(r, "endTs")).eventTs(ts(r, "eventTs")).build());
+
+        bind(current, ProviderAvailabilityCreatedEvent.class,
+            (e, r) -> availability(r, e.getId(), e.getProviderId(), e.getDay_of_week(), e.getStart_time(), e.getEnd_time(), e.getEventTs()),
+            r -> ProviderAvailabilityCreatedEvent.builder().id(l(r, "id")).providerId(l(r, "providerId"))
+                .day_of_week((Integer) r.get("dayOfWeek")).start_time(time(r, "startTime")).end_time(time(r, "endTime"))
+                .eventTs(ts(r, "eventTs")).build());
+        bind(current, ProviderAvailabilityUpdatedEvent.class,
+            (e, r) -> availability(r, e.getId(), e.getProviderId(), e.getDay_of_week(), e.getStart_time(), e.getEnd_time(), e.getEventTs()),
+            r -> ProviderAvailabilityUpdatedEvent.builder().id(l(r, "id")).providerId(l(r, "providerId"))
+                .day_of_week((Integer) r.get("dayOfWeek")).start_time(time(r, "startTime")).end_time(time(r, "endTime"))
+                .eventTs(ts(r, "eventTs")).build());
+        bind(current, ProviderAvailabilityDeletedEvent.class,
+            (e, r) -> availability(r, e.getId(), e.getProviderId(), e.getDay_of_week(), e.getStart_time(), e.getEnd_time(), e.getEventTs()),
+            r -> ProviderAvailabilityDeletedEvent.builder().id(l(r, "id")).providerId(l(r, "providerId"))
+                .day_of_week((Integer) r.get("dayOfWeek")).start_time(time(r, "startTime")).end_time(time(r, "endTime"))
+                .eventTs(ts(r, "eventTs")).build());
+
+        bind(current, ProviderScheduleImportedEvent.class,
+            EventSchemas::schedule,
+            r -> ProviderScheduleImportedEvent.builder().providerId(l(r, "providerId"))
+                .windows(windows(r)).eventTs(ts(r, "eventTs")).build());
+
+        // the password is not part of the schema and never leaves the service
+        bind(current, UsersCreatedEvent.class,
+            (e, r) -> user(r, e.getId(), e.getName(), e.getEmail(), e.getRoles(), e.getCreatedAt(), e.getEventTs()),
+            r -> UsersCreatedEvent.builder().id(l(r, "id")).name(s(r, "name")).email(s(r, "email")).roles(s(r, "roles"))
+                .createdAt(ts(r, "createdAt")).eventTs(ts(r, "eventTs")).build());
+        bind(current, UsersUpdatedEvent.class,
+            (e, r) -> user(r, e.getId(), e.getName(), e.getEmail(), e.getRoles(), e.getCreatedAt(), e.getEventTs()),
+            r -> UsersUpdatedEvent.builder().id(l(r, "id")).name(s(r, "name")).email(s(r, "email")).roles(s(r, "roles"))
+                .createdAt(ts(r, "createdAt")).eventTs(ts(r, "eventTs")).build());
+        bind(current, UsersDeletedEvent.class,
+            (e, r) -> user(r, e.getId(), e.getName(), e.getEmail(), e.getRoles(), e.getCreatedAt(), e.getEventTs()),
+            r -> UsersDeletedEvent.builder().id(l(r, "id")).name(s(r, "name")).email(s(r, "email")).roles(s(r, "roles"))
+                .createdAt(ts(r, "createdAt")).eventTs(ts(r, "eventTs")).build());
+    }
+
+    public byte[] encode(Object event) {
+        Binding<Object> binding = bindingFor(event.getClass());
+        GenericRecord record = new GenericData.Record(binding.schema);
+        binding.write.accept(event, record);
+        ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+        try {
+            binding.encoder.encode(record, body);
+            return body.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Object decode(byte[] body) {
+        if (body.length < HEADER_LENGTH) {
+            throw new MessageConversionException("Not an Avro single-object message");
+        }
+        long fingerprint = ByteBuffer.wrap(body, 2, 8).order(ByteOrder.LITTLE_ENDIAN).getLong();
+        Schema writer = byFingerprint.get(fingerprint);
+        Binding<?> binding = writer == null ? null : byName.get(writer.getFullName());
+        if (binding == null) {
+            throw new MessageConversionException("Unknown event schema fingerprint " + Long.toHexString(fingerprint));
+        }
+        try {
+            return binding.read.apply(binding.decoder.decode(body));
+        } catch (IOException e) {
+            throw new MessageConversionException("Event can't be read as " + writer.getFullName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Binding<Object> bindingFor(Class<?> type) {
+        Binding<?> binding = byClass.get(type);
+        if (binding == null) {
+            throw new MessageConversionException("No Avro schema for " + type.getName());
+        }
+        return (Binding<Object>) binding;
+    }
+
+    private Map<String, Schema> loadSchemas() {
+        Map<String, Schema> current = new HashMap<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(SCHEMA_LOCATION)) {
+                try (InputStream in = resource.getInputStream()) {
+                    Schema union = new Schema.Parser().parse(in);
+                    // later entries of a file are newer versions of the same record
+                    for (Schema schema : union.getTypes()) {
+                        store.addSchema(schema);
+                        byFingerprint.put(SchemaNormalization.parsingFingerprint64(schema), schema);
+                        current.put(schema.getFullName(), schema);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read event schemas from " + SCHEMA_LOCATION, e);
+        }
+        return current;
+    }
+
+    private <T> void bind(Map<String, Schema> current, Class<T> type,
+                          BiConsumer<T, GenericRecord> write, Function<GenericRecord, T> read) {
+        String name = NAMESPACE + type.getSimpleName();
+        Schema schema = current.get(name);
+        if (schema == null) {
+            throw new IllegalStateException("No Avro schema " + name + " in " + SCHEMA_LOCATION);
+        }
+        Binding<T> binding = new Binding<>(schema, store, write, read);
+        byClass.put(type, binding);
+        byName.put(name, binding);
+    }
+
+    private static void booking(GenericRecord r, Long id, Long providerId, Long customerId,
+                                LocalDateTime startsTs, LocalDateTime endTs, LocalDateTime eventTs) {
+        r.put("id", id);
+        r.put("providerId", providerId);
+        r.put("customerId", customerId);
+        r.put("startsTs", micros(startsTs));
+        r.put("endTs", micros(endTs));
+        r.put("eventTs", micros(eventTs));
+    }
+
+    private static void availability(GenericRecord r, Long id, Long providerId, int dayOfWeek,
+                                     LocalTime startTime, LocalTime endTime, LocalDateTime eventTs) {
+        r.put("id", id);
+        r.put("providerId", providerId);
+        r.put("dayOfWeek", dayOfWeek);
+        r.put("startTime", startTime == null ? null : startTime.toNanoOfDay() / 1000);
+        r.put("endTime", endTime == null ? null : endTime.toNanoOfDay() / 1000);
+        r.put("eventTs", micros(eventTs));
+    }
+
+    private static void schedule(ProviderScheduleImportedEvent e, GenericRecord r) {
+        Schema item = r.getSchema().getField("windows").schema().getElementType();
+        List<GenericRecord> windows = new ArrayList<>();
+        for (ProviderScheduleImportedEvent.Window window : e.getWindows() == null
+                ? List.<ProviderScheduleImportedEvent.Window>of() : e.getWindows()) {
+            GenericRecord w = new GenericData.Record(item);
+            w.put("id", window.getId());
+            w.put("dayOfWeek", window.getDay_of_week());
+            w.put("startTime", window.getStart_time() == null ? null : window.getStart_time().toNanoOfDay() / 1000);
+            w.put("endTime", window.getEnd_time() == null ? null : window.getEnd_time().toNanoOfDay() / 1000);
+            windows.add(w);
+        }
+        r.put("providerId", e.getProviderId());
+        r.put("windows", windows);
+        r.put("eventTs", micros(e.getEventTs()));
+    }
+
+    private static List<ProviderScheduleImportedEvent.Window> windows(GenericRecord r) {
+        List<ProviderScheduleImportedEvent.Window> windows = new ArrayList<>();
+        for (Object item : (List<?>) r.get("windows")) {
+            GenericRecord w = (GenericRecord) item;
+            windows.add(ProviderScheduleImportedEvent.Window.builder().id(l(w, "id"))
+                .day_of_week((Integer) w.get("dayOfWeek")).start_time(time(w, "startTime")).end_time(time(w, "endTime"))
+                .build());
+        }
+        return windows;
+    }
+
+    private static void user(GenericRecord r, Long id, String name, String email, String roles,
+                             LocalDateTime createdAt, LocalDateTime eventTs) {
+        r.put("id", id);
+        r.put("name", name);
+        r.put("email", email);
+        r.put("roles", roles);
+        r.put("createdAt", micros(createdAt));
+        r.put("eventTs", micros(eventTs));
+    }
+
+    private static Long micros(LocalDateTime value) {
+        if (value == null) {
+            return null;
+        }
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1000;
+    }
+
+    private static Long l(GenericRecord r, String field) {
+        return (Long) r.get(field);
+    }
+
+    private static String s(GenericRecord r, String field) {
+        Object value = r.get(field);
+        return value == null ? null : value.toString();
+    }
+
+    private static LocalDateTime ts(GenericRecord r, String field) {
+        Long micros = (Long) r.get(field);
+        if (micros == null) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    private static LocalTime time(GenericRecord r, String field) {
+        Long micros = (Long) r.get(field);
+        return micros == null ? null : LocalTime.ofNanoOfDay(micros * 1000);
+    }
+}
@@ -1,7 +1,6 @@
 package com.booking.booking.config;
 
 import java.io.IOException;
-import java.util.Optional;
 
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
@@ -12,44 +11,74 @@ import com.booking.booking.repositories.IdempotencyRepository;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+/**
+ * Idempotency for every POST. The first request with a key claims it and
+ * runs; IdempotencyResponseAdvice stores its response. Repeats replay that
+ * response, or park in IdempotencyWaiters while the first one is still
+ * running and get its response when it finishes. A request that ends
+ * without a stored response gives the key back.
+ */
 @Profile("prod")
 @Component
 public class IdempotencyInterceptor implements HandlerInterceptor {
 
     private final IdempotencyRepository repo;
+    private final IdempotencyWaiters waiters;
+    private final ResponseCodec codec;
 
     public static final String HEADER = "Idempotency-Key";
+    static final String KEY_ATTRIBUTE = "IDEMP_KEY";
+    static final String COMPLETED_ATTRIBUTE = "IDEMP_COMPLETED";
 
-    public IdempotencyInterceptor(IdempotencyRepository repo) {
+    public IdempotencyInterceptor(IdempotencyRepository repo,
+                                  IdempotencyWaiters waiters,
+                                  ResponseCodec codec) {
         this.repo = repo;
+        this.waiters = waiters;
+        this.codec = codec;
     }
 
-   @Override
-public boolean preHandle(HttpServletRequest request,
-                         HttpServletResponse response,
-                         Object handler) throws IOException {
-
-    if (!"POST".equals(request.getMethod())) return true;
-
-    String key = request.getHeader(HEADER);
-
-    if (key == null || key.isBlank()) {
-        response.sendError(400, "Missing Idempotency-Key");
-        return false;
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+                             HttpServletResponse response,
+                             Object handler) throws IOException {
+
+        if (!"POST".equals(request.getMethod())) return true;
+
+        String key = request.getHeader(HEADER);
+
+        if (key == null || key.isBlank()) {
+            response.sendError(400, "Missing Idempotency-Key");
+            return false;
+        }
+
+        IdempotencyRepository.Claim claim = repo.claim(key);
+
+        switch (claim.state()) {
+            case CLAIMED -> {
+                request.setAttribute(KEY_ATTRIBUTE, key);
+                return true;
+            }
+            case IN_FLIGHT -> {
+                waiters.park(key, request, response);
+                return false;
+            }
+            default -> {
+                codec.replay(claim.payload(), response);
+                return false;
+            }
+        }
     }
 
-    Optional<String> cached = repo.get(key);
+    @Override
+    public void afterCompletion(HttpServletRequest request,
+                                HttpServletResponse response,
+                                Object handler,
+                                Exception ex) {
 
-    if (cached.isPresent()) {
-        // ⚠️ Apenas replay de SUCESSO deve existir
-        response.setStatus(HttpServletResponse.SC_OK);
-        response.setContentType("application/json");
-        response.getWriter().write(cached.get());
-        return false;
+        String key = (String) request.getAttribute(KEY_ATTRIBUTE);
+        if (key != null && request.getAttribute(COMPLETED_ATTRIBUTE) == null) {
+            repo.release(key);
+        }
     }
-
-    request.setAttribute("IDEMP_KEY", key);
-    return true;
-}
-
 }
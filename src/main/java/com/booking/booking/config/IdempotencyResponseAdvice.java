@@ -1,6 +1,8 @@
 package com.booking.booking.config;
 
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.MediaType;
@@ -12,7 +14,6 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
 import com.booking.booking.repositories.IdempotencyRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -20,14 +21,15 @@ import jakarta.servlet.http.HttpServletResponse;
 @Profile("prod")
 @ControllerAdvice
 public class IdempotencyResponseAdvice implements ResponseBodyAdvice<Object> {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyResponseAdvice.class);
 
     private final IdempotencyRepository repo;
-    private final ObjectMapper mapper;
+    private final ResponseCodec codec;
 
     public IdempotencyResponseAdvice(IdempotencyRepository repo,
-                                     ObjectMapper mapper) {
+                                     ResponseCodec codec) {
         this.repo = repo;
-        this.mapper = mapper;
+        this.codec = codec;
     }
 
     @Override
@@ -43,25 +45,30 @@ public class IdempotencyResponseAdvice implements ResponseBodyAdvice<Object> {
                               ServerHttpRequest request,
                               ServerHttpResponse response) {
 
-    HttpServletRequest httpRequest =
-        ((ServletServerHttpRequest) request).getServletRequest();
+    if (!(request instanceof ServletServerHttpRequest servletRequest)
+            || !(response instanceof ServletServerHttpResponse servletResponse)) {
+        return body;
+    }
 
-    HttpServletResponse httpResponse =
-        ((ServletServerHttpResponse) response).getServletResponse();
+    HttpServletRequest httpRequest = servletRequest.getServletRequest();
+    HttpServletResponse httpResponse = servletResponse.getServletResponse();
 
-    if (!"POST".equals(httpRequest.getMethod())) return body;
+    String key = (String) httpRequest.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE);
+    if (key == null) return body;
 
+    // only successes are replayed; failures release the key in afterCompletion
     if (httpResponse.getStatus() >= 400) {
         return body;
     }
 
-    String key = (String) httpRequest.getAttribute("IDEMP_KEY");
-    if (key == null) return body;
-
     try {
-        String json = mapper.writeValueAsString(body);
-        repo.save(key, json);
-    } catch (Exception ignored) {}
+        byte[] payload = codec.encode(httpResponse.getStatus(), response.getHeaders(), body);
+        repo.complete(key, payload);
+        httpRequest.setAttribute(IdempotencyInterceptor.COMPLETED_ATTRIBUTE, Boolean.TRUE);
+    } catch (Exception e) {
+        // not completed: afterCompletion gives the key back, so a retry runs again
+        log.warn("Could not store the response for idempotency key {}: {}", key, e.getMessage(), e);
+    }
 
     return body;
 }
@@ -0,0 +1,215 @@
+package com.booking.booking.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import com.booking.booking.DTO.ErrorResponseDTO;
+import com.booking.booking.repositories.IdempotencyRepository;
+import com.booking.booking.repositories.IdempotencyRepository.Claim;
+import com.booking.booking.repositories.IdempotencyRepository.State;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Duplicates of a request that is still running, parked until it finishes.
+ *
+ * A parked request is put in async mode, so it holds no servlet thread.
+ * When the original stores its response or gives the key back, the store
+ * publishes the key on IdempotencyRepository.DONE_CHANNEL; every node then
+ * reads the key once and answers all of its waiters with the same response.
+ * That read runs on a small pool of its own, never on the pub/sub listener
+ * thread, so a slow Redis doesn't hold up other keys' notifications.
+ */
+@Profile("prod")
+@Component
+public class IdempotencyWaiters {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyWaiters.class);
+
+    private final IdempotencyRepository repo;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper mapper;
+    private final ResponseCodec codec;
+
+    private final Map<String, Queue<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    @Value("${booking.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs = 30000;
+
+    @Value("${booking.idempotency.waiter-threads:4}")
+    private int waiterThreads = 4;
+
+    private ExecutorService executor;
+
+    public IdempotencyWaiters(IdempotencyRepository repo,
+                              RedisMessageListenerContainer listenerContainer,
+                              ObjectMapper mapper,
+                              ResponseCodec codec) {
+        this.repo = repo;
+        this.listenerContainer = listenerContainer;
+        this.mapper = mapper;
+        this.codec = codec;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(waiterThreads, runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-waiters-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String key = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                executor.execute(() -> onDone(key));
+            } catch (RejectedExecutionException e) {
+                log.debug("Shutting down, dropped completion of idempotency key {}", key);
+            }
+        }, new ChannelTopic(IdempotencyRepository.DONE_CHANNEL));
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public void park(String key, HttpServletRequest request, HttpServletResponse response) {
+        AsyncContext context = request.startAsync(request, response);
+        context.setTimeout(waitTimeoutMs);
+
+        Waiter waiter = new Waiter(context);
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                Queue<Waiter> queue = waiters.get(key);
+                if (queue != null) {
+                    queue.remove(waiter);
+                }
+                waiter.fail(HttpStatus.CONFLICT, "Request already in progress");
+            }
+
+            @Override public void onComplete(AsyncEvent event) {}
+            @Override public void onError(AsyncEvent event) {}
+            @Override public void onStartAsync(AsyncEvent event) {}
+        });
+        waiters.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(waiter);
+
+        // the original may have finished between the claim and now
+        recheck(key);
+    }
+
+    void onDone(String key) {
+        Queue<Waiter> parked = waiters.remove(key);
+        if (parked == null || parked.isEmpty()) {
+            return;
+        }
+
+        Claim current;
+        try {
+            current = repo.peek(key);
+        } catch (RuntimeException e) {
+            log.warn("Could not read idempotency key {} for {} waiters: {}", key, parked.size(), e.getMessage());
+            parked.forEach(waiter -> waiter.fail(HttpStatus.SERVICE_UNAVAILABLE, "Request outcome unknown, retry"));
+            return;
+        }
+
+        if (current != null && current.state() == State.IN_FLIGHT) {
+            // released and already claimed by a newer attempt, keep waiting for that one;
+            // it may have finished while they were off the map, so look once more
+            parked.forEach(waiter -> waiters.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(waiter));
+            try {
+                recheck(key);
+            } catch (RuntimeException e) {
+                log.warn("Could not recheck idempotency key {}, waiters stay parked: {}", key, e.getMessage());
+            }
+            return;
+        }
+
+        for (Waiter waiter : parked) {
+            if (current == null) {
+                waiter.fail(HttpStatus.CONFLICT, "Original request failed, retry");
+            } else {
+                waiter.answer(response -> codec.replay(current.payload(), response));
+            }
+        }
+    }
+
+    // answers the key's waiters if the key is no longer in flight; a completion
+    // published before they were on the map would otherwise be missed
+    private void recheck(String key) {
+        Claim current = repo.peek(key);
+        if (current == null || current.state() != State.IN_FLIGHT) {
+            onDone(key);
+        }
+    }
+
+    int parkedCount(String key) {
+        Queue<Waiter> queue = waiters.get(key);
+        return queue == null ? 0 : queue.size();
+    }
+
+    @FunctionalInterface
+    private interface ResponseWriter {
+        void write(HttpServletResponse response) throws IOException;
+    }
+
+    private final class Waiter {
+        private final AsyncContext context;
+        private final AtomicBoolean answered = new AtomicBoolean();
+
+        Waiter(AsyncContext context) {
+            this.context = context;
+        }
+
+        void fail(HttpStatus status, String message) {
+            answer(response -> {
+                response.setStatus(status.value());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                mapper.writeValue(response.getOutputStream(), new ErrorResponseDTO(
+                    status.value(), status.getReasonPhrase(), message, LocalDateTime.now()));
+            });
+        }
+
+        void answer(ResponseWriter writer) {
+            if (!answered.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                writer.write((HttpServletResponse) context.getResponse());
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Could not answer parked request: {}", e.getMessage());
+            } finally {
+                context.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.booking.booking.config;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Events as Jackson JSON, the class named by the type id. Only classes of
+ * the events package are ever instantiated from a message.
+ */
+@Component
+public class JsonEventCodec implements EventCodec {
+
+    private static final String EVENTS_PACKAGE = "com.booking.booking.events.";
+
+    private final ObjectMapper mapper;
+    private final Map<String, JavaType> types = new ConcurrentHashMap<>();
+
+    public JsonEventCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public String contentType() {
+        return MessageProperties.CONTENT_TYPE_JSON;
+    }
+
+    @Override
+    public byte[] encode(Object event) {
+        try {
+            return mapper.writeValueAsBytes(event);
+        } catch (IOException e) {
+            throw new MessageConversionException("Event can't be serialized: " + event.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object decode(byte[] body, String typeId) {
+        if (typeId == null || !typeId.startsWith(EVENTS_PACKAGE)) {
+            throw new MessageConversionException("Untrusted event type: " + typeId);
+        }
+        try {
+            return mapper.readValue(body, types.computeIfAbsent(typeId, this::typeOf));
+        } catch (IOException e) {
+            throw new MessageConversionException("Event can't be read as " + typeId, e);
+        }
+    }
+
+    private JavaType typeOf(String typeId) {
+        try {
+            return mapper.constructType(Class.forName(typeId));
+        } catch (ClassNotFoundException e) {
+            throw new MessageConversionException("Unknown event type: " + typeId, e);
+        }
+    }
+}
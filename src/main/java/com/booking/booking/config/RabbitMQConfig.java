@@ -3,8 +3,10 @@ package com.booking.booking.config;
 import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,11 +16,29 @@ import org.slf4j.LoggerFactory;
 
 import org.springframework.amqp.core.*;
 
+import com.booking.booking.services.rabbitMQEvents.DlqRedriver;
+import com.booking.booking.services.rabbitMQEvents.ProjectionDispatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 @Profile("!test")
 @Configuration
 public class RabbitMQConfig {
     private static final Logger log = LoggerFactory.getLogger(RabbitMQConfig.class);
 
+    public static final String BATCH_LISTENER_FACTORY = "batchListenerContainerFactory";
+
+    // CONSUMERS
+    @Value("${booking.consumer.prefetch:500}")           private int consumerPrefetch;
+    @Value("${booking.consumer.batch-size:200}")         private int consumerBatchSize;
+    @Value("${booking.consumer.receive-timeout-ms:50}")  private long consumerReceiveTimeoutMs;
+    @Value("${booking.publisher.confirm-timeout-ms:5000}") private long confirmTimeoutMs;
+
    // BOOKING
     @Value("${rabbitmq.booking.exchange}")        private String bookingExchange;
     @Value("${rabbitmq.booking.routing.created}") private String bookingRoutingKeyCreated;
@@ -42,6 +62,10 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.provider.dlq.created}")    private String providerDlqCreate;
     @Value("${rabbitmq.provider.dlq.updated}")    private String providerDlqUpdated;
     @Value("${rabbitmq.provider.dlq.deleted}")    private String providerDlqDeleted;
+    // newer than the others: defaults keep existing environment files working
+    @Value("${rabbitmq.provider.routing.imported:provider.imported}") private String providerRoutingKeyImported;
+    @Value("${rabbitmq.provider.queue.imported:provider.imported.queue}") private String providerImportedQueue;
+    @Value("${rabbitmq.provider.dlq.imported:provider.imported.dlq}") private String providerDlqImported;
 
     // USERS
     @Value("${rabbitmq.users.exchange}")          private String userExchange;
@@ -101,6 +125,7 @@ public class RabbitMQConfig {
     @Bean public Queue providerCreatedQueue() { return buildQueue(providerCreatedQueue, providerDlqCreate); }
     @Bean public Queue providerUpdatedQueue() { return buildQueue(providerUpdatedQueue, providerDlqUpdated); }
     @Bean public Queue providerDeletedQueue() { return buildQueue(providerDeletedQueue, providerDlqDeleted); }
+    @Bean public Queue providerImportedQueue() { return buildQueue(providerImportedQueue, providerDlqImported); }
 
     // ----------------------------------------
     // DQL PROVIDER
@@ -109,6 +134,7 @@ public class RabbitMQConfig {
     @Bean public Queue providerDlqQueueCreated()     { return QueueBuilder.durable(providerDlqCreate).build(); }
     @Bean public Queue providerDlqQueueUpdated()     { return QueueBuilder.durable(providerDlqUpdated).build(); }
     @Bean public Queue providerDlqQueueDeleted()     { return QueueBuilder.durable(providerDlqDeleted).build(); }
+    @Bean public Queue providerDlqQueueImported()    { return QueueBuilder.durable(providerDlqImported).build(); }
 
     @Bean public Queue userCreatedQueue() { return buildQueue(userCreatedQueue, userDlqCreate); }
     @Bean public Queue userUpdatedQueue() { return buildQueue(userUpdatedQueue, userDlqUpdated); }
@@ -164,6 +190,12 @@ public class RabbitMQConfig {
                 .to(providerTopic()).with(providerRoutingKeyDeleted);
     }
 
+    @Bean
+    public Binding providerBindingImport() {
+        return BindingBuilder.bind(providerImportedQueue())
+                .to(providerTopic()).with(providerRoutingKeyImported);
+    }
+
     @Bean
     public Binding userBindingCreate() {
         return BindingBuilder.bind(userCreatedQueue())
@@ -183,23 +215,14 @@ public class RabbitMQConfig {
     }
 
     // ==============================
-    // 🔹 Conversor JSON (Jackson)
-    // ==============================
-    @Bean
-    public Jackson2JsonMessageConverter jackson2JsonMessageConverter() {
-        log.info("Registrando Jackson2JsonMessageConverter para mensagens RabbitMQ");
-        return new Jackson2JsonMessageConverter();
-    }
-
-    // ==============================
-    // 🔹 RabbitTemplate configurado com JSON
+    // 🔹 RabbitTemplate configurado com EventMessageConverter (JSON ou Avro)
     // ==============================
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory,
-                                         Jackson2JsonMessageConverter converter) {
+                                         EventMessageConverter converter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(converter);
-        log.info("RabbitTemplate configurado com Jackson2JsonMessageConverter");
+        log.info("RabbitTemplate configurado com EventMessageConverter ({})", converter.writer().contentType());
         return template;
     }
 
@@ -209,7 +232,7 @@ public class RabbitMQConfig {
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter converter) {
+            EventMessageConverter converter) {
 
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
@@ -233,4 +256,117 @@ public class RabbitMQConfig {
         );
         return factory;
     }
+
+    // ==============================
+    // 🔹 Listener Container Factory em lote (projeções)
+    // ==============================
+    // One consumer per queue keeps the order of each provider's events;
+    // ProjectionDispatcher spreads the batch over the cores instead. The
+    // whole batch is acked with one multiple ack after the listener returns.
+    // When retries run out, only the messages the dispatcher names go to
+    // their DLQ; the others were applied by the last attempt.
+    @Bean(name = BATCH_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory batchListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            EventMessageConverter converter,
+            RabbitTemplate rabbitTemplate) {
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(converter);
+        factory.setDefaultRequeueRejected(false);
+
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setPrefetchCount(consumerPrefetch);
+
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(consumerBatchSize);
+        factory.setReceiveTimeout(consumerReceiveTimeoutMs);
+
+        factory.setAdviceChain(
+                RetryInterceptorBuilder.stateless()
+                        .maxAttempts(3)
+                        .backOffOptions(2000, 2.0, 10000)
+                        .recoverer((MessageBatchRecoverer) (messages, cause) ->
+                                recoverBatch(rabbitTemplate, deadLetterQueues(), confirmTimeoutMs, messages, cause))
+                        .build()
+        );
+        return factory;
+    }
+
+    private Map<String, String> deadLetterQueues() {
+        return Map.ofEntries(
+                Map.entry(bookingCreatedQueue, bookingDlqCreated),
+                Map.entry(bookingUpdatedQueue, bookingDlqUpdated),
+                Map.entry(bookingDeletedQueue, bookingDlqDeleted),
+                Map.entry(providerCreatedQueue, providerDlqCreate),
+                Map.entry(providerUpdatedQueue, providerDlqUpdated),
+                Map.entry(providerDeletedQueue, providerDlqDeleted),
+                Map.entry(providerImportedQueue, providerDlqImported),
+                Map.entry(userCreatedQueue, userDlqCreate),
+                Map.entry(userUpdatedQueue, userDlqUpdated),
+                Map.entry(userDeletedQueue, userDlqDeleted));
+    }
+
+    /**
+     * Sends the failed messages of the batch to their queue's DLQ through the
+     * default exchange, as the queues' own dead-lettering would, and lets the
+     * batch be acked once the broker confirmed every copy. The broker writes
+     * no x-death for these, so each copy carries DlqRedriver's origin headers
+     * instead. A failure that names no messages (a conversion error, say), or
+     * a copy the broker did not confirm, rejects the whole batch.
+     */
+    public static void recoverBatch(RabbitTemplate rabbitTemplate, Map<String, String> deadLetterQueues,
+                                    long confirmTimeoutMs, List<Message> messages, Throwable cause) {
+        Throwable failure = cause;
+        while (failure != null && !(failure instanceof ProjectionDispatcher.FailedMessagesException)) {
+            failure = failure.getCause();
+        }
+        if (!(failure instanceof ProjectionDispatcher.FailedMessagesException failed)) {
+            log.error("[DLQ] Lote de {} mensagens movido após falhas permanentes. Causa: {}",
+                    messages.size(), cause.getMessage());
+            throw new AmqpRejectAndDontRequeueException("Batch failed after retries", cause);
+        }
+        List<CorrelationData> sent = new ArrayList<>();
+        for (Message message : messages) {
+            MessageProperties properties = message.getMessageProperties();
+            if (!failed.getMessageIds().contains(properties.getMessageId())) {
+                continue;
+            }
+            String dlq = deadLetterQueues.get(properties.getConsumerQueue());
+            if (dlq == null) {
+                throw new AmqpRejectAndDontRequeueException("No DLQ for " + properties.getConsumerQueue(), cause);
+            }
+            if (properties.getXDeathHeader() == null && properties.getHeader(DlqRedriver.ORIGIN_EXCHANGE_HEADER) == null
+                    && properties.getReceivedExchange() != null) {
+                properties.setHeader(DlqRedriver.ORIGIN_EXCHANGE_HEADER, properties.getReceivedExchange());
+                properties.setHeader(DlqRedriver.ORIGIN_ROUTING_KEY_HEADER, properties.getReceivedRoutingKey());
+            }
+            properties.setHeader(DlqRedriver.DEAD_AT_HEADER, System.currentTimeMillis());
+            CorrelationData correlation = new CorrelationData(properties.getMessageId());
+            rabbitTemplate.send("", dlq, message, correlation);
+            sent.add(correlation);
+        }
+        for (CorrelationData correlation : sent) {
+            if (!confirmed(correlation, confirmTimeoutMs)) {
+                // the broker's own dead-lettering still moves the whole batch
+                throw new AmqpRejectAndDontRequeueException("DLQ copy of " + correlation.getId() + " not confirmed", cause);
+            }
+        }
+        log.error("[DLQ] {} de {} mensagens do lote movidas após falhas permanentes. Causa: {}",
+                sent.size(), messages.size(), failed.getCause().getMessage());
+    }
+
+    private static boolean confirmed(CorrelationData correlation, long timeoutMs) {
+        try {
+            return correlation.getFuture().get(timeoutMs, TimeUnit.MILLISECONDS).isAck();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,18 @@
+package com.booking.booking.config;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * How an idempotent response is stored in Redis and written back on replay.
+ * The stored payload is opaque to IdempotencyRepository.
+ */
+public interface ResponseCodec {
+
+    byte[] encode(int status, HttpHeaders headers, Object body) throws IOException;
+
+    void replay(byte[] payload, HttpServletResponse response) throws IOException;
+}
@@ -0,0 +1,123 @@
+package com.booking.booking.config;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Near cache in front of a shared one. Reads go local first, then remote,
+ * and fill the local tier on the way back. Evictions hit both tiers and
+ * are broadcast so other nodes drop their local copy of the same key.
+ *
+ * Local keys are the String form of the key, which is also what arrives
+ * in invalidation messages.
+ */
+public class TwoLevelCache implements Cache {
+    static final String ALL_KEYS = "*";
+
+    private final String name;
+    private final Cache local;
+    private final Cache remote;
+    private final BiConsumer<String, String> invalidationPublisher;
+
+    public TwoLevelCache(String name, Cache local, Cache remote, BiConsumer<String, String> invalidationPublisher) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = String.valueOf(key);
+        ValueWrapper hit = local.get(localKey);
+        if (hit != null) {
+            return hit;
+        }
+        ValueWrapper remoteHit = remote.get(key);
+        if (remoteHit != null) {
+            local.put(localKey, remoteHit.get());
+        }
+        return remoteHit;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        Object value = wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        local.put(String.valueOf(key), value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        Object current = existing != null ? existing.get() : value;
+        local.put(String.valueOf(key), current);
+        return existing != null ? new SimpleValueWrapper(current) : null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        local.evict(String.valueOf(key));
+        invalidationPublisher.accept(name, String.valueOf(key));
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.clear();
+        invalidationPublisher.accept(name, ALL_KEYS);
+    }
+
+    /** Drops the local copy only; used when another node evicted the key. */
+    void evictLocal(String key) {
+        if (ALL_KEYS.equals(key)) {
+            local.clear();
+        } else {
+            local.evict(key);
+        }
+    }
+}
@@ -3,21 +3,25 @@ package com.booking.booking.controllers;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.booking.booking.DTO.BookingBatchResultDTO;
+import com.booking.booking.DTO.BookingsPageDTO;
 import com.booking.booking.DTO.BookingsRequestDTO;
 import com.booking.booking.DTO.BookingsResponseDTO;
 import com.booking.booking.services.BookingsServices;
 
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 
 @RestController
@@ -28,14 +32,37 @@ public class BookingsController {
     private BookingsServices bookingsServices;
 
     @PostMapping("/register")
-    public ResponseEntity<BookingsResponseDTO> bookingsRegister(@RequestBody BookingsRequestDTO requestDTO,
-        @RequestHeader("Idempotency-Key") String key) {
-        return ResponseEntity.ok().body(bookingsServices.saveBooking(requestDTO, key));
+    public ResponseEntity<BookingsResponseDTO> bookingsRegister(@RequestBody BookingsRequestDTO requestDTO) {
+        return ResponseEntity.ok().body(bookingsServices.saveBooking(requestDTO));
+    }
+
+    @PostMapping("/register/batch")
+    public ResponseEntity<List<BookingBatchResultDTO>> bookingsRegisterBatch(@RequestBody List<BookingsRequestDTO> requestDTOs) {
+        return ResponseEntity.ok().body(bookingsServices.saveBookings(requestDTOs));
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<BookingsResponseDTO>> getAllBookings() {
-        return ResponseEntity.ok().body(bookingsServices.getAllBookings());
+    public ResponseEntity<BookingsPageDTO> getAllBookings(@RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok().body(bookingsServices.getAllBookings(cursor, size));
+    }
+
+    @GetMapping(value = "/all", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllBookings() {
+        StreamingResponseBody body = out -> bookingsServices.streamAllBookings(out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    @GetMapping("/provider/{providerId}")
+    public ResponseEntity<List<BookingsResponseDTO>> getBookingsByProvider(@PathVariable Long providerId) {
+        return ResponseEntity.ok().body(bookingsServices.getBookingsByProvider(providerId));
+    }
+
+    @GetMapping("/provider/{providerId}/page")
+    public ResponseEntity<BookingsPageDTO> getProviderBookingsPage(@PathVariable Long providerId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok().body(bookingsServices.getProviderBookingsPage(providerId, cursor, size));
     }
 
     @GetMapping("/{id}")
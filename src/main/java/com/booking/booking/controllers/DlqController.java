@@ -0,0 +1,54 @@
+package com.booking.booking.controllers;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.booking.booking.DTO.DlqRedriveRequestDTO;
+import com.booking.booking.DTO.DlqRedriveStatusDTO;
+import com.booking.booking.services.rabbitMQEvents.DlqRedriver;
+
+@Profile("!test")
+@RestController
+@RequestMapping("/admin/dlq")
+public class DlqController {
+
+    @Autowired
+    private DlqRedriver redriver;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Long>> getDepths() {
+        return ResponseEntity.ok().body(redriver.depths());
+    }
+
+    @PostMapping("/{queue}/redrive")
+    public ResponseEntity<DlqRedriveStatusDTO> redrive(@PathVariable String queue,
+        @RequestBody(required = false) DlqRedriveRequestDTO request) {
+        return ResponseEntity.accepted().body(redriver.start(queue, request));
+    }
+
+    @GetMapping("/redrive")
+    public ResponseEntity<List<DlqRedriveStatusDTO>> getRedrives() {
+        return ResponseEntity.ok().body(redriver.recent());
+    }
+
+    @GetMapping("/redrive/{jobId}")
+    public ResponseEntity<DlqRedriveStatusDTO> getRedrive(@PathVariable String jobId) {
+        return ResponseEntity.ok().body(redriver.status(jobId));
+    }
+
+    @DeleteMapping("/redrive/{jobId}")
+    public ResponseEntity<DlqRedriveStatusDTO> cancelRedrive(@PathVariable String jobId) {
+        return ResponseEntity.ok().body(redriver.cancel(jobId));
+    }
+}
@@ -3,21 +3,33 @@ package com.booking.booking.controllers;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.booking.booking.DTO.AvailabilityImportResultDTO;
+import com.booking.booking.DTO.FreeSlotDTO;
 import com.booking.booking.DTO.ProviderAvailabilityRequestDTO;
 import com.booking.booking.DTO.ProviderAvailabilityResponseDTO;
+import com.booking.booking.DTO.ProviderSlotDTO;
+import com.booking.booking.DTO.WorkingMinutesDTO;
+import com.booking.booking.services.AvailabilityImporter;
 import com.booking.booking.services.ProviderAvailabilityservices;
+import com.booking.booking.services.ProviderSlotSearch;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @RestController
 @RequestMapping("/provider-availability")
@@ -25,12 +37,31 @@ public class ProviderAvailabilityController {
 
     @Autowired
     private ProviderAvailabilityservices services;
+
+    @Autowired
+    private ProviderSlotSearch providerSlotSearch;
+
+    @Autowired
+    private AvailabilityImporter availabilityImporter;
     
     @PostMapping("/register")
     public ResponseEntity<ProviderAvailabilityResponseDTO> registerProviderAvailability(
-        @RequestBody ProviderAvailabilityRequestDTO request,
-        @RequestHeader("Idempotency-Key") String key) {
-        return ResponseEntity.ok().body(services.saveProviderAvailability(request,key));
+        @RequestBody ProviderAvailabilityRequestDTO request) {
+        return ResponseEntity.ok().body(services.createAvailability(request));
+    }
+
+    // a whole schedule, or several providers' at once; one result per provider
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<AvailabilityImportResultDTO>> importProviderAvailability(
+        @RequestBody List<ProviderAvailabilityRequestDTO> request) {
+        return ResponseEntity.ok().body(availabilityImporter.importWindows(request));
+    }
+
+    // the same as CSV: providerId,dayOfWeek,startTime,endTime per line
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<List<AvailabilityImportResultDTO>> importProviderAvailabilityCsv(InputStream body)
+        throws IOException {
+        return ResponseEntity.ok().body(availabilityImporter.importWindows(availabilityImporter.readCsv(body)));
     }
 
     @PutMapping("/{id}")
@@ -55,6 +86,36 @@ public class ProviderAvailabilityController {
         return ResponseEntity.ok().body(services.findProviderById(id));
     }
 
+    // to is exclusive: ?from=2030-01-07&to=2030-01-14 is one week
+    @GetMapping("/{providerId}/slots")
+    public ResponseEntity<List<FreeSlotDTO>> findFreeSlots(@PathVariable Long providerId,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam Integer durationMinutes,
+        @RequestParam(required = false) Integer stepMinutes) {
+        return ResponseEntity.ok().body(services.findFreeSlots(providerId, from, to, durationMinutes, stepMinutes));
+    }
+
+    // working minutes on date and how many are still free
+    @GetMapping("/{providerId}/working-minutes")
+    public ResponseEntity<WorkingMinutesDTO> findWorkingMinutes(@PathVariable Long providerId,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok().body(services.findWorkingMinutes(providerId, date));
+    }
+
+    // earliest open slot per provider across all providers (or providerIds), best limit first
+    @GetMapping("/search")
+    public ResponseEntity<List<ProviderSlotDTO>> searchProviders(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam Integer durationMinutes,
+        @RequestParam(required = false) Integer stepMinutes,
+        @RequestParam(required = false) Integer limit,
+        @RequestParam(required = false) List<Long> providerIds) {
+        return ResponseEntity.ok().body(
+            providerSlotSearch.findEarliest(from, to, durationMinutes, stepMinutes, limit, providerIds));
+    }
+
 
     
     
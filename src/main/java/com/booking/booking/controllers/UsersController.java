@@ -19,7 +19,6 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.PutMapping;
 
 
@@ -32,10 +31,9 @@ public class UsersController {
     
     @PostMapping("/register")
     public ResponseEntity<UserResponseDTO> RegisterUser(
-        @AuthenticationPrincipal Jwt jwt,
-        @RequestHeader(value = "Idempotency-Key", required = false) String key) {
+        @AuthenticationPrincipal Jwt jwt) {
 
-        return ResponseEntity.ok().body(service.getOrCreateUser(jwt,key));
+        return ResponseEntity.ok().body(service.createOrGet(jwt));
     }
 
    
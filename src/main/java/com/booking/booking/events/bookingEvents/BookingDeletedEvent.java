@@ -2,11 +2,15 @@ package com.booking.booking.events.bookingEvents;
 
 import java.time.LocalDateTime;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class BookingDeletedEvent {
     private Long id;
     private Long providerId;
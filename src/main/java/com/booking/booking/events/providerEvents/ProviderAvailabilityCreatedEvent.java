@@ -3,11 +3,15 @@ package com.booking.booking.events.providerEvents;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Builder
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ProviderAvailabilityCreatedEvent {
     private Long id;
     private int day_of_week; //--1==monday 7==sunday
@@ -3,11 +3,15 @@ package com.booking.booking.events.providerEvents;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class ProviderAvailabilityUpdatedEvent {
     private Long id;
     private Long providerId;
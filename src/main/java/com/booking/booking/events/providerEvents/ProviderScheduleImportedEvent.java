@@ -0,0 +1,33 @@
+package com.booking.booking.events.providerEvents;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Every window one bulk import added for a provider, in one event. */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProviderScheduleImportedEvent {
+    private Long providerId;
+    private List<Window> windows;
+    @Builder.Default
+    private LocalDateTime eventTs = LocalDateTime.now();
+
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Window {
+        private Long id;
+        private int day_of_week; //--1==monday 7==sunday
+        private LocalTime start_time;
+        private LocalTime end_time;
+    }
+}
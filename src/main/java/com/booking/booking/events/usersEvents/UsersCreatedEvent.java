@@ -2,11 +2,15 @@ package com.booking.booking.events.usersEvents;
 
 import java.time.LocalDateTime;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Builder
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class UsersCreatedEvent {
     private Long id;
     private String name;
@@ -2,11 +2,15 @@ package com.booking.booking.events.usersEvents;
 
 import java.time.LocalDateTime;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class UsersDeletedEvent {
     private Long id;
     private String name;
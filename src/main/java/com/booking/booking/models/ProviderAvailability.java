@@ -8,6 +8,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -21,8 +22,10 @@ import lombok.NoArgsConstructor;
 @Builder
 @Table(name = "provider_availability")
 public class ProviderAvailability {
+    // pooled: one sequence call hands out 50 ids, so bulk imports can batch their inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "provider_availability_seq")
+    @SequenceGenerator(name = "provider_availability_seq", sequenceName = "provider_availability_seq", allocationSize = 50)
     private Long id;
     private int day_of_week; //--1==monday 7==sunday
 
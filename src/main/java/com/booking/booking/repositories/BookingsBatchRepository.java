@@ -0,0 +1,76 @@
+package com.booking.booking.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import com.booking.booking.DTO.BookingsRequestDTO;
+
+/**
+ * Multi-row booking insert. Bookings uses IDENTITY ids, which makes
+ * Hibernate skip JDBC batching, so bulk reservations go through one
+ * JDBC batch here instead of one INSERT round trip per saveAll element.
+ */
+@Repository
+public class BookingsBatchRepository {
+    private static final String INSERT_BOOKING = """
+            INSERT INTO bookings (provider_id, customer_id, start_ts, end_ts, status, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the bookings in one batch and returns the generated ids in the
+     * order of the requests. Must run inside the caller's transaction.
+     */
+    public List<Long> insertAll(List<BookingsRequestDTO> requests, LocalDateTime createdAt){
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        Timestamp now = Timestamp.valueOf(createdAt);
+
+        jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(INSERT_BOOKING, new String[] {"id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    BookingsRequestDTO request = requests.get(i);
+                    ps.setLong(1, request.providerId());
+                    ps.setLong(2, request.customerId());
+                    ps.setTimestamp(3, Timestamp.valueOf(request.startsTs()));
+                    ps.setTimestamp(4, Timestamp.valueOf(request.endTs()));
+                    if(request.status() == null){
+                        ps.setNull(5, Types.VARCHAR);
+                    } else{
+                        ps.setString(5, request.status().name());
+                    }
+                    ps.setTimestamp(6, now);
+                    ps.setTimestamp(7, now);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return requests.size();
+                }
+            },
+            keyHolder
+        );
+
+        // key column name differs per driver (ID on H2, GENERATED_KEY on MySQL)
+        return keyHolder.getKeyList().stream()
+            .map(Map::values)
+            .map(values -> ((Number) values.iterator().next()).longValue())
+            .toList();
+    }
+}
@@ -1,29 +1,165 @@
 package com.booking.booking.repositories;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.DTO.BookingsResponseDTO;
 import com.booking.booking.models.Bookings;
+
+import jakarta.persistence.QueryHint;
+
 import java.time.LocalDateTime;
 
 
 
 public interface BookingsRepository extends JpaRepository<Bookings,Long>{
+    /**
+     * Overlap check shaped for the (provider_id, start_ts, end_ts) index:
+     * one seek on provider_id, then a backwards range scan over start_ts that
+     * stops at the first overlapping row. earliestStart (startTs minus the
+     * longest allowed booking) bounds the scan when the slot is free.
+     */
+    @Query(value = """
+            SELECT b.id FROM bookings b
+            WHERE b.provider_id = :providerId
+            AND b.start_ts <= :endTs
+            AND b.start_ts >= :earliestStart
+            AND b.end_ts >= :startTs
+            ORDER BY b.start_ts DESC
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<Long> findConflictingId(
+        @Param("providerId") Long providerId,
+        @Param("startTs") LocalDateTime startTs,
+        @Param("endTs") LocalDateTime endTs,
+        @Param("earliestStart") LocalDateTime earliestStart
+    );
+
+    // longest stored booking in seconds, read once at startup to bound the overlap lookback
+    @Query("SELECT MAX((b.endTs - b.startsTs) BY SECOND) FROM Bookings b")
+    Long findLongestDurationSeconds();
+
+    Optional<Bookings>findById(Long id);
+
+    // current provider of a booking, to serialize an update with both providers' writes
+    @Query("SELECT b.provider.id FROM Bookings b WHERE b.id = :id")
+    Optional<Long> findProviderId(@Param("id") Long id);
+
+    @Query("""
+            SELECT new com.booking.booking.DTO.BookingsResponseDTO(
+                b.id, b.provider.id, b.customer.id, b.startsTs, b.endTs, b.status, b.createdAt, b.updatedAt)
+            FROM Bookings b
+            WHERE b.provider.id = :providerId
+            ORDER BY b.startsTs, b.id
+            """)
+    List<BookingsResponseDTO> findProviderBookings(@Param("providerId") Long providerId);
+
+    // only the columns the conflict index needs, no Users join
+    @Query("""
+            SELECT new com.booking.booking.DTO.BookingSlotDTO(b.id, b.provider.id, b.startsTs, b.endTs)
+            FROM Bookings b
+            WHERE b.endTs >= :from
+            """)
+    List<BookingSlotDTO> findSlotsEndingAfter(@Param("from") LocalDateTime from);
+
+    // every booking of the provider touching [startTs, endTs], one query for a whole batch
     @Query("""
-            SELECT b FROM Bookings b
+            SELECT new com.booking.booking.DTO.BookingSlotDTO(b.id, b.provider.id, b.startsTs, b.endTs)
+            FROM Bookings b
             WHERE b.provider.id = :providerId
-            AND(
-                (b.startsTs <= :endTs AND b.endTs >= :startTs)
-            )
+            AND b.startsTs <= :endTs AND b.startsTs >= :earliestStart
+            AND b.endTs >= :startTs
             """)
-    Optional<Bookings> findConflict( 
+    List<BookingSlotDTO> findSlotsOverlapping(
         @Param("providerId") Long providerId,
         @Param("startTs") LocalDateTime startTs,
-        @Param("endTs") LocalDateTime endTs
+        @Param("endTs") LocalDateTime endTs,
+        @Param("earliestStart") LocalDateTime earliestStart
     );
 
-    Optional<Bookings>findById(Long id);
+    // every provider's bookings touching [startTs, endTs], for the cross-provider slot search;
+    // start order comes free from the (start_ts, end_ts) index range scan
+    @Query("""
+            SELECT new com.booking.booking.DTO.BookingSlotDTO(b.id, b.provider.id, b.startsTs, b.endTs)
+            FROM Bookings b
+            WHERE b.startsTs <= :endTs AND b.startsTs >= :earliestStart
+            AND b.endTs >= :startTs
+            ORDER BY b.startsTs
+            """)
+    List<BookingSlotDTO> findAllSlotsOverlapping(
+        @Param("startTs") LocalDateTime startTs,
+        @Param("endTs") LocalDateTime endTs,
+        @Param("earliestStart") LocalDateTime earliestStart
+    );
+
+    // the same for the candidates of a narrowed search, so only their bookings are read
+    @Query("""
+            SELECT new com.booking.booking.DTO.BookingSlotDTO(b.id, b.provider.id, b.startsTs, b.endTs)
+            FROM Bookings b
+            WHERE b.provider.id IN :providerIds
+            AND b.startsTs <= :endTs AND b.startsTs >= :earliestStart
+            AND b.endTs >= :startTs
+            ORDER BY b.startsTs
+            """)
+    List<BookingSlotDTO> findSlotsOfProvidersOverlapping(
+        @Param("providerIds") Collection<Long> providerIds,
+        @Param("startTs") LocalDateTime startTs,
+        @Param("endTs") LocalDateTime endTs,
+        @Param("earliestStart") LocalDateTime earliestStart
+    );
+
+    // keyset pages: DTO projections read the FK columns, no Users join and no
+    // managed entities piling up in the persistence context
+    @Query("""
+            SELECT new com.booking.booking.DTO.BookingsResponseDTO(
+                b.id, b.provider.id, b.customer.id, b.startsTs, b.endTs, b.status, b.createdAt, b.updatedAt)
+            FROM Bookings b
+            WHERE b.id > :afterId
+            ORDER BY b.id
+            """)
+    List<BookingsResponseDTO> findPageAfterId(@Param("afterId") Long afterId, Pageable limit);
+
+    @Query("""
+            SELECT new com.booking.booking.DTO.BookingsResponseDTO(
+                b.id, b.provider.id, b.customer.id, b.startsTs, b.endTs, b.status, b.createdAt, b.updatedAt)
+            FROM Bookings b
+            WHERE b.provider.id = :providerId
+            ORDER BY b.startsTs, b.id
+            """)
+    List<BookingsResponseDTO> findProviderPage(@Param("providerId") Long providerId, Pageable limit);
+
+    @Query("""
+            SELECT new com.booking.booking.DTO.BookingsResponseDTO(
+                b.id, b.provider.id, b.customer.id, b.startsTs, b.endTs, b.status, b.createdAt, b.updatedAt)
+            FROM Bookings b
+            WHERE b.provider.id = :providerId
+            AND (b.startsTs > :afterStartsTs OR (b.startsTs = :afterStartsTs AND b.id > :afterId))
+            ORDER BY b.startsTs, b.id
+            """)
+    List<BookingsResponseDTO> findProviderPageAfter(
+        @Param("providerId") Long providerId,
+        @Param("afterStartsTs") LocalDateTime afterStartsTs,
+        @Param("afterId") Long afterId,
+        Pageable limit
+    );
+
+    // forward-only read for NDJSON export; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            SELECT new com.booking.booking.DTO.BookingsResponseDTO(
+                b.id, b.provider.id, b.customer.id, b.startsTs, b.endTs, b.status, b.createdAt, b.updatedAt)
+            FROM Bookings b
+            ORDER BY b.id
+            """)
+    Stream<BookingsResponseDTO> streamAll();
 }
@@ -1,31 +1,119 @@
 package com.booking.booking.repositories;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.List;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Repository;
 
+/**
+ * The one idempotency store. A key is either free, claimed by a request
+ * that is still running (IN_FLIGHT), or holds the stored response as an
+ * opaque binary payload written by a ResponseCodec. Claiming and reading
+ * the current state is a single atomic script call.
+ */
 @Repository
 public class IdempotencyRepository {
 
+    public enum State { CLAIMED, IN_FLIGHT, COMPLETED }
+
+    public record Claim(State state, byte[] payload) {}
+
+    static final byte[] IN_FLIGHT = "IN_FLIGHT".getBytes(StandardCharsets.UTF_8);
+
+    // every node listens here; the message is the key that stopped being in flight
+    public static final String DONE_CHANNEL = "idempotency:done";
+
+    // returns nil when the key was free and is now ours, else what it holds
+    private static final RedisScript<byte[]> CLAIM = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current then
+                return current
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            return false
+            """, byte[].class);
+
+    private static final RedisScript<Long> COMPLETE = new DefaultRedisScript<>("""
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            redis.call('PUBLISH', ARGV[3], ARGV[4])
+            return 1
+            """, Long.class);
+
+    // a failed request gives the key back, but never drops a stored response
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                redis.call('DEL', KEYS[1])
+                redis.call('PUBLISH', ARGV[2], ARGV[3])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisSerializer<Long> COUNT = new GenericToStringSerializer<>(Long.class);
+
     private final StringRedisTemplate redis;
 
+    @Value("${booking.idempotency.in-flight-ttl-ms:30000}")
+    private long inFlightTtlMs = 30000;
+
+    @Value("${booking.idempotency.ttl-hours:24}")
+    private long ttlHours = 24;
+
     public IdempotencyRepository(StringRedisTemplate redis) {
         this.redis = redis;
     }
 
-    public Optional<String> get(String key) {
-        return Optional.ofNullable(
-            redis.opsForValue().get("idempotency:" + key)
-        );
+    public Claim claim(String key) {
+        byte[] current = redis.execute(CLAIM, RedisSerializer.byteArray(), RedisSerializer.byteArray(),
+            List.of(redisKey(key)), IN_FLIGHT, bytes(String.valueOf(inFlightTtlMs)));
+        if (current == null) {
+            return new Claim(State.CLAIMED, null);
+        }
+        return toClaim(current);
+    }
+
+    /**
+     * Current state without claiming: null when the key is free, otherwise
+     * IN_FLIGHT or COMPLETED with the stored response.
+     */
+    public Claim peek(String key) {
+        byte[] redisKey = bytes(redisKey(key));
+        byte[] current = redis.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(redisKey));
+        return current == null ? null : toClaim(current);
+    }
+
+    private static Claim toClaim(byte[] current) {
+        if (Arrays.equals(IN_FLIGHT, current)) {
+            return new Claim(State.IN_FLIGHT, null);
+        }
+        return new Claim(State.COMPLETED, current);
+    }
+
+    // stores the response and wakes up duplicates parked on the key
+    public void complete(String key, byte[] payload) {
+        redis.execute(COMPLETE, RedisSerializer.byteArray(), COUNT, List.of(redisKey(key)),
+            payload, bytes(String.valueOf(Duration.ofHours(ttlHours).toMillis())), bytes(DONE_CHANNEL), bytes(key));
+    }
+
+    public void release(String key) {
+        redis.execute(RELEASE, RedisSerializer.byteArray(), COUNT, List.of(redisKey(key)),
+            IN_FLIGHT, bytes(DONE_CHANNEL), bytes(key));
+    }
+
+    private static String redisKey(String key) {
+        return "idempotency:" + key;
     }
 
-    public void save(String key, String json) {
-        redis.opsForValue().set(
-            "idempotency:" + key,
-            json,
-            Duration.ofHours(1)
-        );
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,184 @@
+package com.booking.booking.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.booking.booking.config.EventCodec;
+import com.booking.booking.config.EventMessageConverter;
+
+/**
+ * Transactional outbox. Events are appended in the transaction of the
+ * change they describe and published later by OutboxRelay, so a request
+ * never waits on the broker and an event can't be lost after the commit.
+ *
+ * Rows with an aggregate key are held back for the coalescing window after
+ * they were first written; until a relay claims them, a newer event for
+ * the same key may replace them (see lockPending()).
+ */
+@Repository
+public class OutboxRepository {
+    private static final String INSERT_MESSAGE = """
+            INSERT INTO outbox (exchange_name, routing_key, type_id, content_type, body, created_at, aggregate_key)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String LOCK_OLDEST_UNCLAIMED = """
+            SELECT id, exchange_name, routing_key, type_id, content_type, body
+            FROM outbox
+            WHERE (claimed_until IS NULL OR claimed_until < ?)
+              AND (aggregate_key IS NULL OR created_at <= ?)
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String LOCK_PENDING = """
+            SELECT id, routing_key, created_at
+            FROM outbox
+            WHERE aggregate_key = ? AND claimed_until IS NULL
+            ORDER BY id
+            FOR UPDATE
+            """;
+
+    public record OutboxMessage(long id, String exchange, String routingKey, String typeId,
+                                String contentType, byte[] body) {}
+
+    /** An unclaimed row of one aggregate; createdAt is when its window opened. */
+    public record PendingMessage(long id, String routingKey, LocalDateTime createdAt) {}
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EventMessageConverter eventMessageConverter;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String exchange, String routingKey, Object event){
+        appendAll(exchange, routingKey, Collections.singletonList(event));
+    }
+
+    /** Appends an event of one aggregate, held back until createdAt plus the coalescing window. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String exchange, String routingKey, String aggregateKey, LocalDateTime createdAt, Object event){
+        insert(exchange, routingKey, Collections.singletonList(event), e -> aggregateKey, createdAt);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(String exchange, String routingKey, List<?> events){
+        insert(exchange, routingKey, events, e -> null, LocalDateTime.now());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> void appendAll(String exchange, String routingKey, List<T> events, Function<T, String> aggregateKeyOf){
+        insert(exchange, routingKey, events, aggregateKeyOf, LocalDateTime.now());
+    }
+
+    private <T> void insert(String exchange, String routingKey, List<T> events, Function<T, String> aggregateKeyOf,
+                            LocalDateTime createdAt){
+        if(events.isEmpty()){
+            return;
+        }
+        Timestamp created = Timestamp.valueOf(createdAt);
+        EventCodec codec = eventMessageConverter.writer();
+
+        jdbcTemplate.batchUpdate(INSERT_MESSAGE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                T event = events.get(i);
+                ps.setString(1, exchange);
+                ps.setString(2, routingKey);
+                ps.setString(3, event.getClass().getName());
+                ps.setString(4, codec.contentType());
+                ps.setBytes(5, codec.encode(event));
+                ps.setTimestamp(6, created);
+                ps.setString(7, aggregateKeyOf.apply(event));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
+
+    /**
+     * The rows of an aggregate no relay has claimed yet, oldest first, locked
+     * until the caller commits. A relay that claims them first wins; they are
+     * then no longer pending and the caller's event is appended after them.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<PendingMessage> lockPending(String aggregateKey){
+        return jdbcTemplate.query(LOCK_PENDING,
+            (rs, rowNum) -> new PendingMessage(
+                rs.getLong("id"),
+                rs.getString("routing_key"),
+                rs.getTimestamp("created_at").toLocalDateTime()
+            ),
+            aggregateKey);
+    }
+
+    /**
+     * Oldest messages nobody holds a live claim on, claimed until the given
+     * time. Rows with an aggregate key are only taken once created at or
+     * before readyBefore. Rows another relay is claiming right now are skipped
+     * rather than waited for. The row locks only last for the caller's short
+     * transaction; the claim keeps other relays off the rows while their
+     * confirms are pending.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<OutboxMessage> claimOldest(int limit, LocalDateTime now, LocalDateTime until, LocalDateTime readyBefore){
+        List<OutboxMessage> claimed = jdbcTemplate.query(LOCK_OLDEST_UNCLAIMED,
+            (rs, rowNum) -> new OutboxMessage(
+                rs.getLong("id"),
+                rs.getString("exchange_name"),
+                rs.getString("routing_key"),
+                rs.getString("type_id"),
+                rs.getString("content_type"),
+                rs.getBytes("body")
+            ),
+            Timestamp.valueOf(now), Timestamp.valueOf(readyBefore), limit);
+        if(!claimed.isEmpty()){
+            List<Object> args = new ArrayList<>(claimed.size() + 1);
+            args.add(Timestamp.valueOf(until));
+            claimed.forEach(message -> args.add(message.id()));
+            jdbcTemplate.update("UPDATE outbox SET claimed_until = ? WHERE id IN (" + placeholders(claimed.size()) + ")",
+                args.toArray());
+        }
+        return claimed;
+    }
+
+    /** Gives claimed messages back so the next relay run publishes them again. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void releaseAll(List<Long> ids){
+        if(ids.isEmpty()){
+            return;
+        }
+        jdbcTemplate.update("UPDATE outbox SET claimed_until = NULL WHERE id IN (" + placeholders(ids.size()) + ")",
+            ids.toArray());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteAll(List<Long> ids){
+        if(ids.isEmpty()){
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM outbox WHERE id IN (" + placeholders(ids.size()) + ")", ids.toArray());
+    }
+
+    private static String placeholders(int count){
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.booking.booking.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Read-side projections in Redis, fed by the event consumers.
+ *
+ * Every projected entity is a hash (the document) holding its fields, the
+ * version it was written at and the sorted set it is listed in, if any.
+ * A change is applied only when its version is newer than the stored one,
+ * so redelivered or reordered events can't roll a document back. Deletes
+ * leave a tombstone with the version for tombstone-ttl-hours.
+ */
+@Repository
+public class ProjectionRepository {
+
+    // -1 when the document moved to another index since the caller read it
+    private static final RedisScript<Long> APPLY = new DefaultRedisScript<>("""
+            local current = redis.call('HGET', KEYS[1], 'version')
+            if current and tonumber(current) >= tonumber(ARGV[1]) then
+                return 0
+            end
+            local indexed = redis.call('HGET', KEYS[1], 'index') or ''
+            if indexed ~= ARGV[7] then
+                return -1
+            end
+            if indexed ~= '' then
+                redis.call('ZREM', KEYS[3], ARGV[2])
+            end
+            redis.call('DEL', KEYS[1])
+            if ARGV[4] == '1' then
+                redis.call('HSET', KEYS[1], 'version', ARGV[1], 'deleted', '1')
+                redis.call('EXPIRE', KEYS[1], ARGV[5])
+                return 1
+            end
+            redis.call('HSET', KEYS[1], 'version', ARGV[1], 'index', ARGV[6], unpack(ARGV, 8))
+            if ARGV[6] ~= '' then
+                redis.call('ZADD', KEYS[2], ARGV[3], ARGV[2])
+            end
+            return 1
+            """, Long.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * A document to write. indexKey is the sorted set listing it (null for
+     * none), member its id in that set and score its position.
+     */
+    public record Projected(String docKey, String indexKey, String member, double score, Map<String, String> fields) {}
+
+    private final StringRedisTemplate redis;
+
+    @Value("${booking.consumer.tombstone-ttl-hours:168}")
+    private long tombstoneTtlHours = 168;
+
+    public ProjectionRepository(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    /** Writes the document unless a newer version is stored; true when written. */
+    public boolean put(Projected projected, long version) {
+        List<String> fields = new ArrayList<>(projected.fields().size() * 2);
+        projected.fields().forEach((field, value) -> {
+            fields.add(field);
+            fields.add(value);
+        });
+        return apply(projected.docKey(), projected.indexKey(), projected.member(), projected.score(), false, version, fields);
+    }
+
+    /** Drops the document and its index entry, leaving a versioned tombstone. */
+    public boolean remove(String docKey, String member, long version) {
+        return apply(docKey, null, member, 0, true, version, List.of());
+    }
+
+    private boolean apply(String docKey, String indexKey, String member, double score, boolean deleted,
+                          long version, List<String> fields) {
+        String newIndex = indexKey == null ? "" : indexKey;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Object indexed = redis.opsForHash().get(docKey, "index");
+            String oldIndex = indexed == null ? "" : indexed.toString();
+
+            List<String> args = new ArrayList<>(7 + fields.size());
+            args.add(String.valueOf(version));
+            args.add(member);
+            args.add(String.valueOf(score));
+            args.add(deleted ? "1" : "0");
+            args.add(String.valueOf(tombstoneTtlHours * 3600));
+            args.add(newIndex);
+            args.add(oldIndex);
+            args.addAll(fields);
+
+            // unused index slots point at the document so every key stays declared
+            Long result = redis.execute(APPLY,
+                List.of(docKey, newIndex.isEmpty() ? docKey : newIndex, oldIndex.isEmpty() ? docKey : oldIndex),
+                args.toArray());
+            if (result == null || result != -1L) {
+                return result != null && result == 1L;
+            }
+        }
+        throw new IllegalStateException("Projection " + docKey + " kept moving between indexes");
+    }
+}
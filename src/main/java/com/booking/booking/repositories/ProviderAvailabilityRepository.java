@@ -1,12 +1,37 @@
 package com.booking.booking.repositories;
 
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.booking.booking.DTO.AvailabilityWindowDTO;
 import com.booking.booking.models.ProviderAvailability;
 
 public interface ProviderAvailabilityRepository extends JpaRepository<ProviderAvailability,Long>{
     Optional<ProviderAvailability> findById(Long id);
+
+    // the weekly windows of one provider, for the free slot search and its working hours bitmap
+    @Query("SELECT a FROM ProviderAvailability a WHERE a.provider.id = :providerId")
+    List<ProviderAvailability> findByProviderId(@Param("providerId") Long providerId);
+
+    // every provider's windows on the given days, without loading the providers
+    @Query("""
+            SELECT new com.booking.booking.DTO.AvailabilityWindowDTO(a.provider.id, a.day_of_week, a.start_time, a.end_time)
+            FROM ProviderAvailability a
+            WHERE a.day_of_week IN :days
+            """)
+    List<AvailabilityWindowDTO> findWindowsOnDays(@Param("days") Collection<Integer> days);
+
+    // existing windows of the providers in an import, checked for overlaps before anything is written
+    @Query("""
+            SELECT new com.booking.booking.DTO.AvailabilityWindowDTO(a.provider.id, a.day_of_week, a.start_time, a.end_time)
+            FROM ProviderAvailability a
+            WHERE a.provider.id IN :providerIds
+            """)
+    List<AvailabilityWindowDTO> findWindowsOfProviders(@Param("providerIds") Collection<Long> providerIds);
 }
@@ -0,0 +1,76 @@
+package com.booking.booking.repositories;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Highest fencing token that has written bookings, per provider and lock
+ * time bucket. Fencing per bucket, like the locks themselves, means only
+ * writers whose intervals share a bucket are ordered against each other;
+ * leases on other buckets of the provider neither block nor fence them.
+ */
+@Repository
+public class ProviderLockFenceRepository {
+
+    // keeps the higher token; the row stays locked until the caller commits
+    private static final String UPSERT_MYSQL = """
+            INSERT INTO provider_lock_fence (provider_id, bucket, token)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE token = GREATEST(token, VALUES(token))
+            """;
+
+    private static final String UPSERT_H2 = """
+            MERGE INTO provider_lock_fence f
+            USING (SELECT CAST(? AS BIGINT) AS provider_id, CAST(? AS BIGINT) AS bucket, CAST(? AS BIGINT) AS token) s
+            ON f.provider_id = s.provider_id AND f.bucket = s.bucket
+            WHEN MATCHED THEN UPDATE SET f.token = GREATEST(f.token, s.token)
+            WHEN NOT MATCHED THEN INSERT (provider_id, bucket, token) VALUES (s.provider_id, s.bucket, s.token)
+            """;
+
+    private static final String COUNT_NEWER = """
+            SELECT COUNT(*) FROM provider_lock_fence
+            WHERE provider_id = ? AND bucket IN (%s) AND token > ?
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile String upsert;
+
+    /**
+     * Records token on every bucket and tells whether it is still the
+     * newest on all of them. Buckets go in ascending order, so writers
+     * sharing several buckets lock their rows in the same order. Must run
+     * inside the caller's transaction.
+     */
+    public boolean advance(Long providerId, List<Long> buckets, long token){
+        jdbcTemplate.batchUpdate(upsert(), buckets.stream()
+            .sorted()
+            .map(bucket -> new Object[] { providerId, bucket, token })
+            .toList());
+
+        Object[] args = new Object[buckets.size() + 2];
+        args[0] = providerId;
+        for(int i = 0; i < buckets.size(); i++){
+            args[i + 1] = buckets.get(i);
+        }
+        args[args.length - 1] = token;
+        String placeholders = String.join(", ", Collections.nCopies(buckets.size(), "?"));
+        Long newer = jdbcTemplate.queryForObject(COUNT_NEWER.formatted(placeholders), Long.class, args);
+        return newer != null && newer == 0;
+    }
+
+    private String upsert(){
+        if(upsert == null){
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+            upsert = "H2".equalsIgnoreCase(product) ? UPSERT_H2 : UPSERT_MYSQL;
+        }
+        return upsert;
+    }
+}
@@ -1,12 +1,19 @@
 package com.booking.booking.repositories;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.booking.booking.models.Users;
 
 public interface UsersRepository extends JpaRepository<Users,Long>{
     Optional<Users>findByEmail(String email);
     Optional<Users> findByKeycloakId(String keycloakId);
+
+    @Query("SELECT u.id FROM Users u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
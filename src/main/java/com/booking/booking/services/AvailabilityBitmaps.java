@@ -0,0 +1,83 @@
+package com.booking.booking.services;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import com.booking.booking.config.CacheConfig;
+import com.booking.booking.repositories.ProviderAvailabilityRepository;
+
+/**
+ * WeeklyAvailability per provider, built from its ProviderAvailability
+ * rows on first use and shared through the provider-availability cache:
+ * 256 bytes per provider in Redis, with a per-node copy in front.
+ *
+ * BookingsServices checks every booking it writes against it, and
+ * ProviderAvailabilityservices rebuilds a provider's bitmap after every
+ * committed window change; the eviction is broadcast so other nodes read
+ * the new one.
+ */
+@Component
+public class AvailabilityBitmaps {
+
+    @Autowired
+    private ProviderAvailabilityRepository providerAvailabilityRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    public WeeklyAvailability get(Long providerId) {
+        Cache cache = cacheManager.getCache(CacheConfig.PROVIDER_AVAILABILITY);
+        if (cache == null) {
+            return build(providerId);
+        }
+        return cache.get(providerId, () -> build(providerId));
+    }
+
+    /**
+     * Whether [start, end] lies within the provider's working hours. An
+     * exact bitmap answers on its own, so a cached one costs no query; only
+     * providers with windows off the 5 minute grid read their rows, and
+     * only when the bitmap says no. A provider with no windows configured
+     * has no working hours to keep to, and takes any booking.
+     */
+    public boolean allows(Long providerId, LocalDateTime start, LocalDateTime end) {
+        WeeklyAvailability weekly = get(providerId);
+        if (!weekly.hasWorkingTime() || weekly.covers(start, end)) {
+            return true;
+        }
+        return !weekly.exact()
+            && FreeSlots.covers(providerAvailabilityRepository.findByProviderId(providerId), start, end);
+    }
+
+    /**
+     * Rebuilds the bitmaps once the surrounding transaction commits, so
+     * they never hold uncommitted or rolled back windows; right away when
+     * there is no transaction.
+     */
+    public void rebuildAfterCommit(Long... providerIds) {
+        AfterCommit.run(() -> rebuild(providerIds));
+    }
+
+    private void rebuild(Long... providerIds) {
+        Cache cache = cacheManager.getCache(CacheConfig.PROVIDER_AVAILABILITY);
+        if (cache == null) {
+            return;
+        }
+        for (Long providerId : providerIds) {
+            if (providerId == null) {
+                continue;
+            }
+            // evict first: that is what tells the other nodes to drop their copy
+            cache.evict(providerId);
+            cache.put(providerId, build(providerId));
+        }
+    }
+
+    private WeeklyAvailability build(Long providerId) {
+        return WeeklyAvailability.of(providerAvailabilityRepository.findByProviderId(providerId));
+    }
+}
@@ -0,0 +1,241 @@
+package com.booking.booking.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.booking.booking.DTO.AvailabilityImportResultDTO;
+import com.booking.booking.DTO.AvailabilityWindowDTO;
+import com.booking.booking.DTO.ProviderAvailabilityRequestDTO;
+import com.booking.booking.events.providerEvents.ProviderScheduleImportedEvent;
+import com.booking.booking.exceptions.ApiException;
+import com.booking.booking.models.ProviderAvailability;
+import com.booking.booking.repositories.ProviderAvailabilityRepository;
+import com.booking.booking.repositories.UsersRepository;
+import com.booking.booking.services.rabbitMQEvents.MessageProducerProvider;
+
+/**
+ * Bulk import of weekly windows: a provider's whole schedule, or several
+ * providers' at once. Everything is checked before anything is written,
+ * with two reads whatever the size: which providers exist, and their
+ * current windows. A provider whose windows are invalid or overlap (each
+ * other or what it already has) is rejected as a whole; the others go on.
+ *
+ * Accepted windows go through one saveAll. Their ids come from the pooled
+ * provider_availability_seq, so Hibernate needs a sequence round trip per
+ * 50 rows and sends the inserts in JDBC batches. Each provider gets one
+ * ProviderScheduleImportedEvent instead of one created event per window.
+ */
+@Service
+public class AvailabilityImporter {
+
+    private static final int SECONDS_PER_DAY = 24 * 3600;
+    private static final int SECONDS_PER_WEEK = 7 * SECONDS_PER_DAY;
+
+    @Autowired
+    private ProviderAvailabilityRepository providerRepository;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private KnownUserIds knownUserIds;
+
+    @Autowired
+    private MessageProducerProvider messageProducerProvider;
+
+    @Autowired
+    private AvailabilityBitmaps availabilityBitmaps;
+
+    @Value("${booking.availability.import.max-rows:10000}")
+    private int maxRows = 10000;
+
+    @Transactional
+    public List<AvailabilityImportResultDTO> importWindows(List<ProviderAvailabilityRequestDTO> rows){
+        if(rows == null || rows.isEmpty()){
+            throw new ApiException("AVAILABILITY IMPORT IS EMPTY", HttpStatus.BAD_REQUEST);
+        }
+        if(rows.size() > maxRows){
+            throw new ApiException("AVAILABILITY IMPORT TOO LARGE", HttpStatus.BAD_REQUEST);
+        }
+
+        Map<Long, List<ProviderAvailabilityRequestDTO>> byProvider = new LinkedHashMap<>();
+        for(ProviderAvailabilityRequestDTO row : rows){
+            byProvider.computeIfAbsent(row.providerId(), id -> new ArrayList<>()).add(row);
+        }
+        Set<Long> providerIds = new HashSet<>(byProvider.keySet());
+        providerIds.remove(null);
+        Set<Long> knownProviders = knownUserIds.filterKnown(providerIds);
+
+        Map<Long, List<AvailabilityWindowDTO>> existing = new LinkedHashMap<>();
+        if(!knownProviders.isEmpty()){
+            for(AvailabilityWindowDTO window : providerRepository.findWindowsOfProviders(knownProviders)){
+                existing.computeIfAbsent(window.providerId(), id -> new ArrayList<>()).add(window);
+            }
+        }
+
+        List<AvailabilityImportResultDTO> results = new ArrayList<>();
+        List<ProviderAvailability> accepted = new ArrayList<>();
+        for(Map.Entry<Long, List<ProviderAvailabilityRequestDTO>> group : byProvider.entrySet()){
+            Long providerId = group.getKey();
+            List<ProviderAvailabilityRequestDTO> windows = group.getValue();
+            if(providerId == null || !knownProviders.contains(providerId)){
+                results.add(failed(providerId, new ApiException("PROVIDER NOT FOUND", HttpStatus.NOT_FOUND)));
+                continue;
+            }
+            if(!windows.stream().allMatch(AvailabilityImporter::isValid)){
+                results.add(failed(providerId, new ApiException("INVALID AVAILABILITY WINDOW", HttpStatus.BAD_REQUEST)));
+                continue;
+            }
+            List<AvailabilityWindowDTO> schedule = new ArrayList<>(existing.getOrDefault(providerId, List.of()));
+            for(ProviderAvailabilityRequestDTO window : windows){
+                schedule.add(new AvailabilityWindowDTO(providerId, window.day_of_week(), window.startTime(), window.end_time()));
+            }
+            if(overlaps(schedule)){
+                results.add(failed(providerId, new ApiException("AVAILABILITY WINDOWS OVERLAP", HttpStatus.CONFLICT)));
+                continue;
+            }
+            for(ProviderAvailabilityRequestDTO window : windows){
+                accepted.add(ProviderAvailability.builder()
+                    .day_of_week(window.day_of_week())
+                    .start_time(window.startTime())
+                    .end_time(window.end_time())
+                    .provider(usersRepository.getReferenceById(providerId))
+                    .build());
+            }
+            results.add(new AvailabilityImportResultDTO(providerId, HttpStatus.CREATED.value(), windows.size(), null));
+        }
+        if(accepted.isEmpty()){
+            return results;
+        }
+
+        List<ProviderAvailability> saved = providerRepository.saveAll(accepted);
+
+        Map<Long, List<ProviderScheduleImportedEvent.Window>> imported = new LinkedHashMap<>();
+        for(ProviderAvailability window : saved){
+            imported.computeIfAbsent(window.getProvider().getId(), id -> new ArrayList<>())
+                .add(ProviderScheduleImportedEvent.Window.builder()
+                    .id(window.getId())
+                    .day_of_week(window.getDay_of_week())
+                    .start_time(window.getStart_time())
+                    .end_time(window.getEnd_time())
+                    .build());
+        }
+        List<ProviderScheduleImportedEvent> events = new ArrayList<>();
+        for(Map.Entry<Long, List<ProviderScheduleImportedEvent.Window>> provider : imported.entrySet()){
+            events.add(ProviderScheduleImportedEvent.builder()
+                .providerId(provider.getKey())
+                .windows(provider.getValue())
+                .eventTs(LocalDateTime.now())
+                .build());
+        }
+        messageProducerProvider.sendProviderScheduleImportedEvents(events);
+        availabilityBitmaps.rebuildAfterCommit(imported.keySet().toArray(Long[]::new));
+
+        return results;
+    }
+
+    /**
+     * Reads providerId,dayOfWeek,startTime,endTime lines (times as HH:mm or
+     * HH:mm:ss); a header line, blank lines and lines starting with # are
+     * skipped. Stops reading as soon as the import is too large. Kept out of
+     * importWindows so the body is read before a connection is taken.
+     */
+    public List<ProviderAvailabilityRequestDTO> readCsv(InputStream body) throws IOException{
+        List<ProviderAvailabilityRequestDTO> rows = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        boolean first = true;
+        String line;
+        while((line = reader.readLine()) != null){
+            line = line.strip();
+            if(line.isEmpty() || line.startsWith("#")){
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            boolean header = first && !fields[0].strip().chars().allMatch(Character::isDigit);
+            first = false;
+            if(header){
+                continue;
+            }
+            if(fields.length != 4){
+                throw new ApiException("INVALID AVAILABILITY CSV", HttpStatus.BAD_REQUEST);
+            }
+            if(rows.size() == maxRows){
+                throw new ApiException("AVAILABILITY IMPORT TOO LARGE", HttpStatus.BAD_REQUEST);
+            }
+            try{
+                rows.add(new ProviderAvailabilityRequestDTO(
+                    Integer.parseInt(fields[1].strip()),
+                    LocalTime.parse(fields[2].strip()),
+                    LocalTime.parse(fields[3].strip()),
+                    Long.parseLong(fields[0].strip())));
+            } catch(NumberFormatException | DateTimeParseException e){
+                throw new ApiException("INVALID AVAILABILITY CSV", HttpStatus.BAD_REQUEST);
+            }
+        }
+        return rows;
+    }
+
+    private static boolean isValid(ProviderAvailabilityRequestDTO window){
+        return window.day_of_week() >= 1 && window.day_of_week() <= 7
+            && window.startTime() != null && window.end_time() != null
+            && !window.startTime().equals(window.end_time());
+    }
+
+    /**
+     * Whether any two windows share a second of the week. Windows are
+     * [start, end), so back to back ones don't overlap; one ending before
+     * it starts runs past midnight, Sunday's into Monday.
+     */
+    static boolean overlaps(List<AvailabilityWindowDTO> windows){
+        List<int[]> intervals = new ArrayList<>();
+        for(AvailabilityWindowDTO window : windows){
+            if(window.startTime() == null || window.endTime() == null
+                    || window.dayOfWeek() < 1 || window.dayOfWeek() > 7
+                    || window.startTime().equals(window.endTime())){
+                continue;
+            }
+            int day = (window.dayOfWeek() - 1) * SECONDS_PER_DAY;
+            int start = day + window.startTime().toSecondOfDay();
+            int end = day + window.endTime().toSecondOfDay();
+            if(end < start){
+                end += SECONDS_PER_DAY;
+            }
+            intervals.add(new int[] { start, Math.min(end, SECONDS_PER_WEEK) });
+            if(end > SECONDS_PER_WEEK){
+                intervals.add(new int[] { 0, end - SECONDS_PER_WEEK });
+            }
+        }
+        intervals.sort(Comparator.comparingInt(interval -> interval[0]));
+        int reached = Integer.MIN_VALUE;
+        for(int[] interval : intervals){
+            if(interval[0] < reached){
+                return true;
+            }
+            reached = Math.max(reached, interval[1]);
+        }
+        return false;
+    }
+
+    private static AvailabilityImportResultDTO failed(Long providerId, ApiException e){
+        return new AvailabilityImportResultDTO(providerId, e.getStatus().value(), 0, e.getMessage());
+    }
+}
@@ -0,0 +1,172 @@
+package com.booking.booking.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.repositories.BookingsRepository;
+
+/**
+ * In-memory index of booked [startsTs, endTs] ranges per provider.
+ *
+ * Answers the same question as BookingsRepository.findConflictingId (closed
+ * intervals, touching ranges conflict) without a database round trip. Only
+ * bookings ending after the warm-up horizon are loaded; checks that reach
+ * further back, or run before warm-up finishes, answer UNKNOWN and the caller
+ * falls back to the database.
+ */
+@Component
+public class BookingIntervalIndex {
+    private static final Logger log = LoggerFactory.getLogger(BookingIntervalIndex.class);
+
+    public enum Answer { CONFLICT, FREE, UNKNOWN }
+
+    private static final Comparator<BookingSlotDTO> BY_START =
+        Comparator.comparing(BookingSlotDTO::startsTs).thenComparing(BookingSlotDTO::id);
+
+    @Autowired
+    private BookingsRepository bookingsRepository;
+
+    @Value("${booking.conflict-index.enabled:true}")
+    private boolean enabled = true;
+
+    private final Map<Long, ProviderIntervals> byProvider = new ConcurrentHashMap<>();
+    private final Map<Long, BookingSlotDTO> byBooking = new ConcurrentHashMap<>();
+
+    // deletes seen while the warm-up query is running, so it can't resurrect them
+    private final Set<Long> removedDuringWarmUp = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean warmingUp;
+    private volatile LocalDateTime horizon;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime from = LocalDateTime.now();
+        warmingUp = true;
+        try {
+            List<BookingSlotDTO> slots = bookingsRepository.findSlotsEndingAfter(from);
+            for (BookingSlotDTO slot : slots) {
+                putIfAbsent(slot);
+            }
+            horizon = from;
+            log.info("Booking conflict index warmed with {} bookings from {}", slots.size(), from);
+        } catch (RuntimeException e) {
+            log.error("Booking conflict index warm-up failed, conflict checks will use the database", e);
+        } finally {
+            warmingUp = false;
+            removedDuringWarmUp.clear();
+        }
+    }
+
+    public Answer check(Long providerId, LocalDateTime startTs, LocalDateTime endTs) {
+        LocalDateTime readyFrom = horizon;
+        if (readyFrom == null || providerId == null || startTs == null || endTs == null
+                || startTs.isBefore(readyFrom)) {
+            return Answer.UNKNOWN;
+        }
+        ProviderIntervals intervals = byProvider.get(providerId);
+        if (intervals == null) {
+            return Answer.FREE;
+        }
+        return intervals.overlaps(startTs, endTs) ? Answer.CONFLICT : Answer.FREE;
+    }
+
+    public void put(BookingSlotDTO slot) {
+        if (!enabled || slot.id() == null || slot.providerId() == null
+                || slot.startsTs() == null || slot.endTs() == null) {
+            return;
+        }
+        // per booking id, the map entry and the provider intervals change together
+        byBooking.compute(slot.id(), (id, previous) -> {
+            if (previous != null) {
+                intervalsOf(previous.providerId()).remove(previous);
+            }
+            intervalsOf(slot.providerId()).add(slot);
+            return slot;
+        });
+    }
+
+    // warm-up's rows are as old as its query: a booking written or deleted since keeps its newer state
+    private void putIfAbsent(BookingSlotDTO slot) {
+        if (slot.id() == null || slot.providerId() == null || slot.startsTs() == null || slot.endTs() == null) {
+            return;
+        }
+        byBooking.compute(slot.id(), (id, current) -> {
+            if (current != null || removedDuringWarmUp.contains(id)) {
+                return current;
+            }
+            intervalsOf(slot.providerId()).add(slot);
+            return slot;
+        });
+    }
+
+    public void remove(Long bookingId) {
+        if (!enabled || bookingId == null) {
+            return;
+        }
+        if (warmingUp) {
+            removedDuringWarmUp.add(bookingId);
+        }
+        byBooking.computeIfPresent(bookingId, (id, previous) -> {
+            intervalsOf(previous.providerId()).remove(previous);
+            return null;
+        });
+    }
+
+    public boolean isReady() {
+        return horizon != null;
+    }
+
+    private ProviderIntervals intervalsOf(Long providerId) {
+        return byProvider.computeIfAbsent(providerId, id -> new ProviderIntervals());
+    }
+
+    /**
+     * Intervals sorted by start. maxDuration only ever grows, which bounds how
+     * far back an overlapping interval can start even if stored ranges overlap.
+     */
+    private static final class ProviderIntervals {
+        private final TreeSet<BookingSlotDTO> byStart = new TreeSet<>(BY_START);
+        private Duration maxDuration = Duration.ZERO;
+
+        synchronized void add(BookingSlotDTO slot) {
+            byStart.add(slot);
+            Duration duration = Duration.between(slot.startsTs(), slot.endTs());
+            if (duration.compareTo(maxDuration) > 0) {
+                maxDuration = duration;
+            }
+        }
+
+        synchronized void remove(BookingSlotDTO slot) {
+            byStart.remove(slot);
+        }
+
+        synchronized boolean overlaps(LocalDateTime startTs, LocalDateTime endTs) {
+            BookingSlotDTO from = new BookingSlotDTO(Long.MIN_VALUE, null, startTs.minus(maxDuration), null);
+            BookingSlotDTO to = new BookingSlotDTO(Long.MAX_VALUE, null, endTs, null);
+            for (BookingSlotDTO slot : byStart.subSet(from, true, to, true)) {
+                if (!slot.endTs().isBefore(startTs)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.booking.booking.services;
+
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.booking.booking.repositories.BookingsRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * How far before a range the overlap queries look for bookings still
+ * running in it. New bookings can't be longer than
+ * booking.max-duration-hours, but rows stored before that cap, or under a
+ * larger one, can be; the longest stored booking is read once at startup
+ * and widens the lookback past the cap when it is longer.
+ */
+@Component
+public class BookingLookback {
+    private static final Logger log = LoggerFactory.getLogger(BookingLookback.class);
+
+    @Autowired
+    private BookingsRepository bookingsRepository;
+
+    @Value("${booking.max-duration-hours:168}")
+    private long maxDurationHours = 168;
+
+    private long hours = 168;
+
+    @PostConstruct
+    void load() {
+        Long longestSeconds = bookingsRepository.findLongestDurationSeconds();
+        long longestHours = longestSeconds == null ? 0 : (longestSeconds + 3599) / 3600;
+        hours = Math.max(maxDurationHours, longestHours);
+        if (hours > maxDurationHours) {
+            log.warn("Stored bookings run up to {} h, over booking.max-duration-hours ({}); overlap checks look back {} h",
+                longestHours, maxDurationHours, hours);
+        }
+    }
+
+    /** Earliest start a booking overlapping a range that starts at from can have. */
+    public LocalDateTime earliestStart(LocalDateTime from) {
+        return from.minusHours(hours);
+    }
+}
@@ -0,0 +1,175 @@
+package com.booking.booking.services;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.booking.booking.exceptions.ApiException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs booking writes for a provider on a single thread.
+ *
+ * Providers are spread over N single-threaded partitions with a consistent
+ * hash ring on providerId, so every write for one provider is applied in
+ * order and the check-then-insert in BookingsServices needs no lock inside
+ * this node. Different providers still run in parallel.
+ */
+@Component
+public class BookingWriteEngine {
+    private static final Logger log = LoggerFactory.getLogger(BookingWriteEngine.class);
+
+    @Value("${booking.engine.partitions:0}")
+    private int partitions;
+
+    @Value("${booking.engine.virtual-nodes:64}")
+    private int virtualNodes;
+
+    @Value("${booking.engine.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${booking.engine.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private HashRing ring;
+    private ThreadPoolExecutor[] writers;
+
+    // partition owned by the current writer thread, -1 on request threads
+    private static final ThreadLocal<Integer> CURRENT_PARTITION = ThreadLocal.withInitial(() -> -1);
+
+    @PostConstruct
+    void start() {
+        int size = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        writers = new ThreadPoolExecutor[size];
+        for (int p = 0; p < size; p++) {
+            final int partition = p;
+            writers[p] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(() -> {
+                        CURRENT_PARTITION.set(partition);
+                        runnable.run();
+                    }, "booking-writer-" + partition);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+        ring = new HashRing(size, virtualNodes);
+        log.info("Booking write engine started with {} partitions", size);
+    }
+
+    @PreDestroy
+    void stop() {
+        for (ThreadPoolExecutor writer : writers) {
+            writer.shutdown();
+        }
+    }
+
+    public <T> T execute(Long providerId, Supplier<T> action) {
+        return executeOn(partitionFor(providerId), action);
+    }
+
+    /**
+     * Runs the action on the partitions of both providers, for a write that
+     * moves a booking from one to the other. The lower partition is always
+     * entered first and waits for the higher one, so two moves in opposite
+     * directions can't wait on each other.
+     */
+    public <T> T execute(Long providerId, Long otherProviderId, Supplier<T> action) {
+        int first = partitionFor(providerId);
+        int second = partitionFor(otherProviderId);
+        if (first == second) {
+            return executeOn(first, action);
+        }
+        return executeOn(Math.min(first, second), () -> executeOn(Math.max(first, second), action));
+    }
+
+    private <T> T executeOn(int partition, Supplier<T> action) {
+        if (CURRENT_PARTITION.get() == partition) {
+            return action.get();
+        }
+
+        Task<T> task = new Task<>(action);
+        Future<T> future;
+        try {
+            future = writers[partition].submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new ApiException("BOOKING ENGINE BUSY", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        try {
+            try {
+                return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (task.cancelIfQueued()) {
+                    future.cancel(false);
+                    writers[partition].remove((Runnable) future);
+                    throw new ApiException("BOOKING ENGINE TIMEOUT", HttpStatus.SERVICE_UNAVAILABLE);
+                }
+                // already running: it may still commit, so its outcome is the answer, not a 503
+                return future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException("BOOKING ENGINE INTERRUPTED", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * A write waiting in a partition queue. The writer thread and a caller
+     * that gave up race for it: the writer moves it from QUEUED to RUNNING,
+     * the caller from QUEUED to CANCELLED, and only one of them wins.
+     */
+    private static final class Task<T> implements Callable<T> {
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int CANCELLED = 2;
+
+        private final Supplier<T> action;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        Task(Supplier<T> action) {
+            this.action = action;
+        }
+
+        @Override
+        public T call() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return null;
+            }
+            return action.get();
+        }
+
+        boolean cancelIfQueued() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+    }
+
+    public int partitionFor(Long providerId) {
+        return ring.partitionFor(providerId);
+    }
+
+    public int partitionCount() {
+        return writers.length;
+    }
+}
@@ -1,30 +1,53 @@
 package com.booking.booking.services;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.booking.booking.DTO.BookingBatchResultDTO;
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.DTO.BookingsPageDTO;
 import com.booking.booking.DTO.BookingsRequestDTO;
 import com.booking.booking.DTO.BookingsResponseDTO;
+import com.booking.booking.config.CacheConfig;
 import com.booking.booking.events.bookingEvents.BookingCreatedEvent;
 import com.booking.booking.events.bookingEvents.BookingDeletedEvent;
 import com.booking.booking.events.bookingEvents.BookingUpdatedEvent;
 import com.booking.booking.exceptions.ApiException;
 import com.booking.booking.models.Bookings;
 import com.booking.booking.models.Users;
+import com.booking.booking.repositories.BookingsBatchRepository;
 import com.booking.booking.repositories.BookingsRepository;
+import com.booking.booking.repositories.ProviderLockFenceRepository;
 import com.booking.booking.repositories.UsersRepository;
 import com.booking.booking.services.rabbitMQEvents.MessageProducerBookings;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
 public class BookingsServices {
@@ -41,53 +64,108 @@ public class BookingsServices {
     private LockService lockService;
 
     @Autowired
-    private StringRedisTemplate redisTemplate;
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @Autowired
+    private BookingWriteEngine bookingWriteEngine;
+
+    @Autowired
+    private ProviderLockFenceRepository providerLockFenceRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BookingsBatchRepository bookingsBatchRepository;
+
+    @Autowired
+    private KnownUserIds knownUserIds;
+
+    @Autowired
+    private AvailabilityBitmaps availabilityBitmaps;
+
+    @Autowired
+    private BookingLookback bookingLookback;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${booking.page.default-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${booking.page.max-size:500}")
+    private int maxPageSize = 500;
+
+    @Value("${booking.batch.max-size:500}")
+    private int maxBatchSize = 500;
+
+    @Value("${booking.max-duration-hours:168}")
+    private long maxDurationHours = 168;
+
+    @Value("${booking.availability.enforce:true}")
+    private boolean enforceAvailability = true;
+
+    @Value("${booking.lock.distributed:false}")
+    private boolean distributedLock;
+
+    @Value("${booking.lock.ttl-ms:3000}")
+    private long lockTtlMs = 3000;
 
     
-    @CacheEvict(value = "bookings", allEntries = true)
-    public BookingsResponseDTO saveBooking(BookingsRequestDTO requestDTO,String idempotencyKey){
+    public BookingsResponseDTO saveBooking(BookingsRequestDTO requestDTO){
+
+        checkDuration(requestDTO.startsTs(), requestDTO.endTs());
+
+        BookingsResponseDTO saved = bookingWriteEngine.execute(
+            requestDTO.providerId(),
+            () -> reserveBooking(requestDTO)
+        );
+        evictCachedBookings(null, saved.provider());
+        return saved;
+    }
 
-        String idempotencyRedisKey = "idempotency:" +idempotencyKey;
+    private BookingsResponseDTO reserveBooking(BookingsRequestDTO requestDTO){
 
-        String existing = redisTemplate.opsForValue().get(idempotencyRedisKey);
-        if(existing != null){
-            throw new ApiException("IDEMPOTENCY REPLAY", HttpStatus.CONFLICT);
+        // the write engine already serializes this provider inside the node,
+        // the Redis lock only matters when several nodes take writes for it
+        if(!distributedLock){
+            return transactionTemplate.execute(status -> insertBooking(requestDTO, null));
         }
 
-        String lockKey = String.format(
-            "lock:booking:%d:%s:%s",
+        LockService.Lease lease = lockService.acquireRangeLock(
             requestDTO.providerId(),
             requestDTO.startsTs(),
-            requestDTO.endTs()
+            requestDTO.endTs(),
+            Duration.ofMillis(lockTtlMs)
         );
-
-        boolean locked = lockService.acquireLock(lockKey, Duration.ofSeconds(10));
-        if(!locked){
+        if(lease == null){
             throw new ApiException("LOCK NOT ACQUIRED", HttpStatus.LOCKED);
         }
-        
+
         try{
-            Optional<Bookings> conflict = bookingsRepository.findConflict(
-                requestDTO.providerId(), 
-                requestDTO.startsTs(),
-                requestDTO.endTs()
-            );
+            return transactionTemplate.execute(status ->
+                insertBooking(requestDTO, lease));
+        } finally{
+            lockService.releaseRangeLock(lease);
+        }
+    }
 
-            if(conflict.isPresent()){
-                throw new ApiException("THIS TIME SLOT IS ALREADY BOOKED",
-                 HttpStatus.CONFLICT);
-            }
-        
+    private BookingsResponseDTO insertBooking(BookingsRequestDTO requestDTO, LockService.Lease lease){
+        if(lease != null){
+            checkFence(requestDTO.providerId(), lease);
+        }
 
-        if(conflict.isPresent()){
-            throw new ApiException("THIS TIME SLOT IS ALREADY BOOKED", HttpStatus.CONFLICT);
+        if(hasConflict(requestDTO.providerId(), requestDTO.startsTs(), requestDTO.endTs())){
+            throw new ApiException("THIS TIME SLOT IS ALREADY BOOKED",
+             HttpStatus.CONFLICT);
         }
         
-        Users provider = usersRepository.findById(requestDTO.providerId())
-            .orElseThrow(() -> new ApiException("PROVIDER NOT FOUND",HttpStatus.NOT_FOUND));
-
-        Users customer = usersRepository.findById(requestDTO.customerId())
-            .orElseThrow(() -> new ApiException("CUSTOMER NOT FOUND", HttpStatus.NOT_FOUND));
+        Users provider = userReference(requestDTO.providerId(), "PROVIDER NOT FOUND");
+        Users customer = userReference(requestDTO.customerId(), "CUSTOMER NOT FOUND");
+        checkAvailability(requestDTO.providerId(), requestDTO.startsTs(), requestDTO.endTs());
         
         Bookings booking = Bookings.builder()
             .provider(provider)
@@ -98,12 +176,8 @@ public class BookingsServices {
             .build();
         
         Bookings bookingSaved = bookingsRepository.save(booking);
-
-        redisTemplate.opsForValue()
-            .set(idempotencyRedisKey, 
-                bookingSaved.getId().toString(),
-                Duration.ofHours(24)
-            );
+        BookingSlotDTO slot = toSlot(bookingSaved);
+        AfterCommit.run(() -> bookingIntervalIndex.put(slot));
 
         BookingCreatedEvent bookingCreatedEvent = BookingCreatedEvent.builder()
             .id(bookingSaved.getId())
@@ -126,13 +200,209 @@ public class BookingsServices {
             bookingSaved.getCreatedAt(),
             bookingSaved.getUpdatedAt()
         );
+    }
+
+    /**
+     * Reserves many slots in one call and reports a result per item; a
+     * rejected item doesn't fail the others. Users are loaded with one query,
+     * each provider's items are checked with one range query (or the
+     * conflict index) and inserted in one JDBC batch and transaction on the
+     * provider's writer partition, with its created events written to the
+     * outbox in the same transaction.
+     */
+    public List<BookingBatchResultDTO> saveBookings(List<BookingsRequestDTO> requestDTOs){
+        if(requestDTOs == null || requestDTOs.isEmpty()){
+            throw new ApiException("BOOKING BATCH IS EMPTY", HttpStatus.BAD_REQUEST);
+        }
+        if(requestDTOs.size() > maxBatchSize){
+            throw new ApiException("BOOKING BATCH TOO LARGE", HttpStatus.BAD_REQUEST);
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        for(BookingsRequestDTO requestDTO : requestDTOs){
+            if(requestDTO.providerId() != null) userIds.add(requestDTO.providerId());
+            if(requestDTO.customerId() != null) userIds.add(requestDTO.customerId());
+        }
+        Set<Long> knownUsers = knownUserIds.filterKnown(userIds);
+
+        BookingBatchResultDTO[] results = new BookingBatchResultDTO[requestDTOs.size()];
+        Map<Long, List<BatchItem>> byProvider = new LinkedHashMap<>();
+        for(int i = 0; i < requestDTOs.size(); i++){
+            BookingsRequestDTO requestDTO = requestDTOs.get(i);
+            try{
+                validateBatchItem(requestDTO, knownUsers);
+                byProvider.computeIfAbsent(requestDTO.providerId(), id -> new ArrayList<>())
+                    .add(new BatchItem(i, requestDTO));
+            } catch(ApiException e){
+                results[i] = failedItem(i, e);
+            }
+        }
+
+        for(Map.Entry<Long, List<BatchItem>> group : byProvider.entrySet()){
+            List<BatchItem> items = group.getValue();
+            try{
+                List<BookingBatchResultDTO> groupResults = bookingWriteEngine.execute(
+                    group.getKey(),
+                    () -> reserveBatch(group.getKey(), items)
+                );
+                for(BookingBatchResultDTO result : groupResults){
+                    results[result.index()] = result;
+                }
+                evictCachedBookings(null, group.getKey());
+            } catch(ApiException e){
+                for(BatchItem item : items){
+                    results[item.index()] = failedItem(item.index(), e);
+                }
+            }
+        }
+
+        return List.of(results);
+    }
+
+    private List<BookingBatchResultDTO> reserveBatch(Long providerId, List<BatchItem> items){
+        if(!distributedLock){
+            return transactionTemplate.execute(status -> insertBatch(providerId, items, null));
+        }
+
+        // one lease over the buckets the items touch, not the span between
+        // them: items weeks apart would otherwise lock every hour in between
+        List<String> keys = new ArrayList<>();
+        for(BatchItem item : items){
+            keys.addAll(lockService.rangeLockKeys(providerId, item.request().startsTs(), item.request().endTs()));
+        }
+        LockService.Lease lease = lockService.acquireRangeLock(providerId, keys, Duration.ofMillis(lockTtlMs));
+        if(lease == null){
+            throw new ApiException("LOCK NOT ACQUIRED", HttpStatus.LOCKED);
+        }
+
+        try{
+            return transactionTemplate.execute(status -> insertBatch(providerId, items, lease));
+        } finally{
+            lockService.releaseRangeLock(lease);
+        }
+    }
+
+    private List<BookingBatchResultDTO> insertBatch(Long providerId, List<BatchItem> items, LockService.Lease lease){
+        if(lease != null){
+            checkFence(providerId, lease);
+        }
+
+        List<BookingIntervalIndex.Answer> answers = new ArrayList<>(items.size());
+        boolean needsDatabase = distributedLock;
+        for(BatchItem item : items){
+            BookingIntervalIndex.Answer answer = distributedLock
+                ? BookingIntervalIndex.Answer.UNKNOWN
+                : bookingIntervalIndex.check(providerId, item.request().startsTs(), item.request().endTs());
+            answers.add(answer);
+            needsDatabase |= answer == BookingIntervalIndex.Answer.UNKNOWN;
+        }
+
+        List<BookingSlotDTO> booked = needsDatabase
+            ? new ArrayList<>(bookingsRepository.findSlotsOverlapping(
+                providerId, batchStart(items), batchEnd(items), bookingLookback.earliestStart(batchStart(items))))
+            : new ArrayList<>();
+
+        List<BookingBatchResultDTO> results = new ArrayList<>(items.size());
+        List<BatchItem> accepted = new ArrayList<>();
+        for(int i = 0; i < items.size(); i++){
+            BatchItem item = items.get(i);
+            BookingsRequestDTO requestDTO = item.request();
+            boolean conflict = answers.get(i) == BookingIntervalIndex.Answer.CONFLICT
+                || overlapsAny(booked, requestDTO.startsTs(), requestDTO.endTs());
+
+            if(conflict){
+                results.add(failedItem(item.index(),
+                    new ApiException("THIS TIME SLOT IS ALREADY BOOKED", HttpStatus.CONFLICT)));
+                continue;
+            }
+            // later items in the batch must not overlap the ones accepted before them
+            booked.add(new BookingSlotDTO(null, providerId, requestDTO.startsTs(), requestDTO.endTs()));
+            accepted.add(item);
+        }
+
+        if(accepted.isEmpty()){
+            return results;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = bookingsBatchRepository.insertAll(
+            accepted.stream().map(BatchItem::request).toList(), now);
+
+        List<BookingCreatedEvent> events = new ArrayList<>(accepted.size());
+        List<BookingSlotDTO> slots = new ArrayList<>(accepted.size());
+        for(int i = 0; i < accepted.size(); i++){
+            BatchItem item = accepted.get(i);
+            BookingsRequestDTO requestDTO = item.request();
+            slots.add(new BookingSlotDTO(ids.get(i), providerId, requestDTO.startsTs(), requestDTO.endTs()));
+            BookingsResponseDTO booking = new BookingsResponseDTO(
+                ids.get(i),
+                providerId,
+                requestDTO.customerId(),
+                requestDTO.startsTs(),
+                requestDTO.endTs(),
+                requestDTO.status(),
+                now,
+                now
+            );
+            results.add(new BookingBatchResultDTO(item.index(), HttpStatus.CREATED.value(), booking, null));
+            events.add(toCreatedEvent(booking));
+        }
+
+        messageProducerBookings.sendBookingCreateEvents(events);
+        AfterCommit.run(() -> slots.forEach(bookingIntervalIndex::put));
+        return results;
+    }
+
+    private void validateBatchItem(BookingsRequestDTO requestDTO, Set<Long> knownUsers){
+        if(requestDTO == null || requestDTO.startsTs() == null || requestDTO.endTs() == null
+                || requestDTO.endTs().isBefore(requestDTO.startsTs())){
+            throw new ApiException("INVALID BOOKING INTERVAL", HttpStatus.BAD_REQUEST);
+        }
+        checkDuration(requestDTO.startsTs(), requestDTO.endTs());
+        if(!knownUsers.contains(requestDTO.providerId())){
+            throw new ApiException("PROVIDER NOT FOUND", HttpStatus.NOT_FOUND);
+        }
+        if(!knownUsers.contains(requestDTO.customerId())){
+            throw new ApiException("CUSTOMER NOT FOUND", HttpStatus.NOT_FOUND);
+        }
+        checkAvailability(requestDTO.providerId(), requestDTO.startsTs(), requestDTO.endTs());
+    }
+
+    private BookingBatchResultDTO failedItem(int index, ApiException e){
+        return new BookingBatchResultDTO(index, e.getStatus().value(), null, e.getMessage());
+    }
+
+    private BookingCreatedEvent toCreatedEvent(BookingsResponseDTO booking){
+        return BookingCreatedEvent.builder()
+            .id(booking.id())
+            .customerId(booking.customer())
+            .endTs(booking.endTs())
+            .startsTs(booking.startsTs())
+            .providerId(booking.provider())
+            .eventTs(LocalDateTime.now())
+            .build();
+    }
+
+    private static boolean overlapsAny(List<BookingSlotDTO> slots, LocalDateTime startTs, LocalDateTime endTs){
+        for(BookingSlotDTO slot : slots){
+            if(!slot.startsTs().isAfter(endTs) && !slot.endTs().isBefore(startTs)){
+                return true;
+            }
+        }
+        return false;
+    }
 
-    } finally{
-        lockService.releaseLock(lockKey);
+    private static LocalDateTime batchStart(List<BatchItem> items){
+        return items.stream().map(item -> item.request().startsTs()).min(LocalDateTime::compareTo).orElseThrow();
     }
+
+    private static LocalDateTime batchEnd(List<BatchItem> items){
+        return items.stream().map(item -> item.request().endTs()).max(LocalDateTime::compareTo).orElseThrow();
     }
 
-    @Cacheable(value = "bookings", key = "#id")
+    private record BatchItem(int index, BookingsRequestDTO request) {}
+
+    @Cacheable(value = CacheConfig.BOOKINGS, key = "#id")
     public BookingsResponseDTO getBookingById(Long id){
         Optional<Bookings> bookingsFound = bookingsRepository.findById(id);
         if(bookingsFound.isEmpty()){
@@ -151,8 +421,7 @@ public class BookingsServices {
         );
     }
 
-    
-    @CacheEvict(value = "bookings", allEntries = true)
+    @Transactional
     public BookingsResponseDTO deleteBooking(Long id){
         Optional<Bookings> bookingsFound = bookingsRepository.findById(id);
         if(bookingsFound.isEmpty()){
@@ -160,6 +429,8 @@ public class BookingsServices {
         }
 
         bookingsRepository.deleteById(id);
+        AfterCommit.run(() -> bookingIntervalIndex.remove(id));
+        evictCachedBookings(id, bookingsFound.get().getProvider().getId());
 
         BookingDeletedEvent bookingDeletedEvent = BookingDeletedEvent.builder()
             .id(bookingsFound.get().getId())
@@ -185,16 +456,34 @@ public class BookingsServices {
     }
 
     public BookingsResponseDTO updateBooking(Long id,BookingsRequestDTO bookingsRequestDTO){
+        checkDuration(bookingsRequestDTO.startsTs(), bookingsRequestDTO.endTs());
+
+        // a booking moving to another provider leaves the old one's slot free:
+        // both providers' writes have to wait for it
+        Long currentProviderId = bookingsRepository.findProviderId(id)
+            .orElseThrow(() -> new ApiException("BOOKINGS NOT FOUND", HttpStatus.NOT_FOUND));
+
+        return bookingWriteEngine.execute(
+            currentProviderId,
+            bookingsRequestDTO.providerId(),
+            () -> transactionTemplate.execute(status -> applyBookingUpdate(id, currentProviderId, bookingsRequestDTO))
+        );
+    }
+
+    private BookingsResponseDTO applyBookingUpdate(Long id, Long currentProviderId, BookingsRequestDTO bookingsRequestDTO){
         
         Bookings booking = bookingsRepository.findById(id)
         .orElseThrow(() -> new ApiException(
             "BOOKINGS NOT FOUND", HttpStatus.NOT_FOUND));
+        // moved by another update between the lookup and this partition
+        if(!booking.getProvider().getId().equals(currentProviderId)){
+            throw new ApiException("BOOKING CHANGED CONCURRENTLY", HttpStatus.CONFLICT);
+        }
 
-        Users provider = usersRepository.findById(bookingsRequestDTO.providerId())
-            .orElseThrow(() -> new ApiException("PROVIDER NOT FOUND",HttpStatus.NOT_FOUND));
-
-        Users customer = usersRepository.findById(bookingsRequestDTO.customerId())
-            .orElseThrow(() -> new ApiException("CUSTOMER NOT FOUND", HttpStatus.NOT_FOUND));
+        Users provider = userReference(bookingsRequestDTO.providerId(), "PROVIDER NOT FOUND");
+        Users customer = userReference(bookingsRequestDTO.customerId(), "CUSTOMER NOT FOUND");
+        checkAvailability(bookingsRequestDTO.providerId(), bookingsRequestDTO.startsTs(), bookingsRequestDTO.endTs());
+        Long previousProviderId = booking.getProvider().getId();
 
         booking.setProvider(provider);
         booking.setCustomer(customer);
@@ -203,6 +492,9 @@ public class BookingsServices {
         booking.setStatus(bookingsRequestDTO.status());
 
         Bookings saved = bookingsRepository.save(booking);
+        BookingSlotDTO slot = toSlot(saved);
+        AfterCommit.run(() -> bookingIntervalIndex.put(slot));
+        evictCachedBookings(saved.getId(), previousProviderId, saved.getProvider().getId());
 
          BookingUpdatedEvent event = BookingUpdatedEvent.builder()
             .id(saved.getId())
@@ -228,24 +520,197 @@ public class BookingsServices {
         );
     }
 
-    @Cacheable(value = "bookings", key = "'all'")
-    public List<BookingsResponseDTO> getAllBookings(){
-        List<Bookings> bookingsFound = bookingsRepository.findAll();
-        if(bookingsFound.isEmpty()){
+    @Cacheable(value = CacheConfig.PROVIDER_BOOKINGS, key = "#providerId")
+    public List<BookingsResponseDTO> getBookingsByProvider(Long providerId){
+        return bookingsRepository.findProviderBookings(providerId);
+    }
+
+    /**
+     * Keyset page over all bookings ordered by id. The cursor is opaque to
+     * clients; each page is one indexed range scan however deep it is.
+     */
+    public BookingsPageDTO getAllBookings(String cursor, Integer size){
+        int limit = pageSize(size);
+        long afterId = cursor == null ? 0L : decodeCursor(cursor, 1, position -> Long.valueOf(position[0]));
+        List<BookingsResponseDTO> items = bookingsRepository.findPageAfterId(afterId, PageRequest.of(0, limit));
+
+        if(cursor == null && items.isEmpty()){
             throw new ApiException("BOOKINGS NOT FOUND", HttpStatus.NOT_FOUND);
         }
 
-        return bookingsFound.stream()
-            .map(b -> new BookingsResponseDTO(
-                    b.getId(),
-                    b.getProvider().getId(),
-                    b.getCustomer().getId(),
-                    b.getStartsTs(),
-                    b.getEndTs(),
-                    b.getStatus(),
-                    b.getCreatedAt(),
-                    b.getUpdatedAt()))
-                    .collect(Collectors.toList());
+        String next = items.size() < limit ? null
+            : encodeCursor(String.valueOf(items.get(items.size() - 1).id()));
+        return new BookingsPageDTO(items, next);
+    }
+
+    /** Keyset page of one provider's bookings ordered by (startsTs, id). */
+    public BookingsPageDTO getProviderBookingsPage(Long providerId, String cursor, Integer size){
+        int limit = pageSize(size);
+        List<BookingsResponseDTO> items;
+        if(cursor == null){
+            items = bookingsRepository.findProviderPage(providerId, PageRequest.of(0, limit));
+        } else{
+            ProviderPosition after = decodeCursor(cursor, 2,
+                position -> new ProviderPosition(LocalDateTime.parse(position[0]), Long.valueOf(position[1])));
+            items = bookingsRepository.findProviderPageAfter(
+                providerId, after.startsTs(), after.id(), PageRequest.of(0, limit));
+        }
+
+        String next = null;
+        if(items.size() == limit){
+            BookingsResponseDTO last = items.get(items.size() - 1);
+            next = encodeCursor(last.startsTs() + "|" + last.id());
+        }
+        return new BookingsPageDTO(items, next);
+    }
+
+    /**
+     * Writes every booking as one JSON line while reading a forward-only
+     * result set, so memory stays flat whatever the table size.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllBookings(OutputStream out) throws IOException{
+        try(Stream<BookingsResponseDTO> bookings = bookingsRepository.streamAll()){
+            Iterator<BookingsResponseDTO> iterator = bookings.iterator();
+            int written = 0;
+            while(iterator.hasNext()){
+                out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                out.write('\n');
+                if(++written % 500 == 0){
+                    out.flush();
+                }
+            }
+            out.flush();
+        }
+    }
+
+    private int pageSize(Integer size){
+        if(size == null){
+            return defaultPageSize;
+        }
+        if(size < 1 || size > maxPageSize){
+            throw new ApiException("INVALID PAGE SIZE", HttpStatus.BAD_REQUEST);
+        }
+        return size;
+    }
+
+    private static String encodeCursor(String position){
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor of fields parts and parses them. Cursors come back
+     * from clients, so anything that doesn't parse (bad Base64, wrong field
+     * count, a tampered number or timestamp) is a 400, never a 500.
+     */
+    private static <T> T decodeCursor(String cursor, int fields, Function<String[], T> parse){
+        try{
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split("\\|", -1);
+            if(parts.length != fields){
+                throw new ApiException("INVALID CURSOR", HttpStatus.BAD_REQUEST);
+            }
+            return parse.apply(parts);
+        } catch(IllegalArgumentException | DateTimeParseException e){
+            // NumberFormatException is an IllegalArgumentException
+            throw new ApiException("INVALID CURSOR", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private record ProviderPosition(LocalDateTime startsTs, Long id) {}
+
+    /**
+     * Rejects the write when a newer lease already wrote on one of its time
+     * buckets, so a request whose lock expired during a pause can't overwrite
+     * the work of whoever took the buckets next. Leases on other buckets of
+     * the provider don't count. Runs inside the insert transaction; the fence
+     * rows' locks order writers that share buckets.
+     */
+    private void checkFence(Long providerId, LockService.Lease lease){
+        if(lease.isLost()
+                || !providerLockFenceRepository.advance(providerId, lease.getBuckets(), lease.getFencingToken())){
+            throw new ApiException("LOCK LEASE LOST", HttpStatus.CONFLICT);
+        }
+    }
+
+    private boolean hasConflict(Long providerId, LocalDateTime startTs, LocalDateTime endTs){
+        // other nodes write this provider too, only the database sees their bookings
+        if(distributedLock){
+            return conflictInDatabase(providerId, startTs, endTs);
+        }
+
+        BookingIntervalIndex.Answer answer = bookingIntervalIndex.check(providerId, startTs, endTs);
+        if(answer == BookingIntervalIndex.Answer.CONFLICT){
+            return true;
+        }
+        if(answer == BookingIntervalIndex.Answer.FREE){
+            return false;
+        }
+        return conflictInDatabase(providerId, startTs, endTs);
+    }
+
+    private boolean conflictInDatabase(Long providerId, LocalDateTime startTs, LocalDateTime endTs){
+        if(startTs == null || endTs == null){
+            return false;
+        }
+        return bookingsRepository.findConflictingId(
+            providerId, startTs, endTs, bookingLookback.earliestStart(startTs)).isPresent();
+    }
+
+    // keeps the conflict query's backwards scan bounded
+    private void checkDuration(LocalDateTime startTs, LocalDateTime endTs){
+        if(startTs != null && endTs != null
+                && Duration.between(startTs, endTs).compareTo(Duration.ofHours(maxDurationHours)) > 0){
+            throw new ApiException("BOOKING INTERVAL TOO LONG", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    // the provider's cached weekly bitmap, no query once it is loaded
+    private void checkAvailability(Long providerId, LocalDateTime startTs, LocalDateTime endTs){
+        if(enforceAvailability && !availabilityBitmaps.allows(providerId, startTs, endTs)){
+            throw new ApiException("OUTSIDE PROVIDER AVAILABILITY", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Drops only the entries a write touched: the booking itself and the
+     * booking lists of the providers involved. Other nodes drop their local
+     * copies through the cache invalidation channel. Inside a transaction
+     * this waits for the commit: evicting earlier lets a concurrent read
+     * cache the old row again until the TTL runs out.
+     */
+    private void evictCachedBookings(Long bookingId, Long... providerIds){
+        AfterCommit.run(() -> evictNow(bookingId, providerIds));
+    }
+
+    private void evictNow(Long bookingId, Long... providerIds){
+        Cache bookings = cacheManager.getCache(CacheConfig.BOOKINGS);
+        if(bookingId != null && bookings != null){
+            bookings.evict(bookingId);
+        }
+        Cache providerBookings = cacheManager.getCache(CacheConfig.PROVIDER_BOOKINGS);
+        if(providerBookings != null){
+            for(Long providerId : providerIds){
+                if(providerId != null){
+                    providerBookings.evict(providerId);
+                }
+            }
+        }
+    }
+
+    // Bookings only needs the foreign key: an uninitialized proxy, no SELECT
+    private Users userReference(Long userId, String notFoundMessage){
+        knownUserIds.require(userId, notFoundMessage);
+        return usersRepository.getReferenceById(userId);
+    }
 
-    }   
+    private BookingSlotDTO toSlot(Bookings booking){
+        return new BookingSlotDTO(
+            booking.getId(),
+            booking.getProvider().getId(),
+            booking.getStartsTs(),
+            booking.getEndTs()
+        );
+    }
 }
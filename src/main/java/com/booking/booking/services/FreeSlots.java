@@ -0,0 +1,129 @@
+package com.booking.booking.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.DTO.FreeSlotDTO;
+import com.booking.booking.models.ProviderAvailability;
+
+/**
+ * Free slots of one provider: weekly availability expanded over a date
+ * range, minus its bookings.
+ *
+ * Windows and bookings are each sorted and merged once, then swept
+ * together: the candidate slot only moves forward, and so does the pointer
+ * into the bookings, so a query costs O(windows + bookings + slots) after
+ * the sort. Bookings are closed intervals like in the conflict check, so a
+ * slot touching a booking is not free. Candidates start on a grid of step
+ * from the start of their window; after a booking the next one is the first
+ * grid point past its end.
+ */
+final class FreeSlots {
+
+    private record Interval(LocalDateTime start, LocalDateTime end) {}
+
+    private static final Comparator<Interval> BY_START = Comparator.comparing(Interval::start);
+
+    private FreeSlots() {
+    }
+
+    /** Slots of duration inside [from, to), at most limit of them, earliest first. */
+    static List<FreeSlotDTO> find(List<ProviderAvailability> weekly, List<BookingSlotDTO> bookings,
+                                  LocalDate from, LocalDate to, Duration duration, Duration step, int limit) {
+        List<Interval> windows = merge(expand(weekly, from, to));
+        List<Interval> busy = merge(bookings.stream()
+            .map(booking -> new Interval(booking.startsTs(), booking.endTs()))
+            .toList());
+
+        List<FreeSlotDTO> slots = new ArrayList<>();
+        int next = 0;
+        for (Interval window : windows) {
+            LocalDateTime start = window.start();
+            while (!start.plus(duration).isAfter(window.end())) {
+                LocalDateTime end = start.plus(duration);
+                while (next < busy.size() && busy.get(next).end().isBefore(start)) {
+                    next++;
+                }
+                if (next < busy.size() && !busy.get(next).start().isAfter(end)) {
+                    start = firstGridPointAfter(window.start(), busy.get(next).end(), step);
+                    continue;
+                }
+                slots.add(new FreeSlotDTO(start, end));
+                if (slots.size() >= limit) {
+                    return slots;
+                }
+                start = start.plus(step);
+            }
+        }
+        return slots;
+    }
+
+    /** Whether [start, end] lies inside the weekly windows, adjacent windows joined. */
+    static boolean covers(List<ProviderAvailability> weekly, LocalDateTime start, LocalDateTime end) {
+        for (Interval window : merge(expand(weekly, start.toLocalDate(), end.toLocalDate().plusDays(1)))) {
+            if (!start.isBefore(window.start()) && !end.isAfter(window.end())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Every weekly window on every date of the range, clipped to it. A window
+     * ending at or before its start runs past midnight, so the day before the
+     * range is expanded too.
+     */
+    private static List<Interval> expand(List<ProviderAvailability> weekly, LocalDate from, LocalDate to) {
+        LocalDateTime rangeStart = from.atStartOfDay();
+        LocalDateTime rangeEnd = to.atStartOfDay();
+        List<Interval> windows = new ArrayList<>();
+        for (LocalDate date = from.minusDays(1); date.isBefore(to); date = date.plusDays(1)) {
+            int dayOfWeek = date.getDayOfWeek().getValue();
+            for (ProviderAvailability availability : weekly) {
+                if (availability.getDay_of_week() != dayOfWeek
+                        || availability.getStart_time() == null || availability.getEnd_time() == null
+                        || availability.getStart_time().equals(availability.getEnd_time())) {
+                    continue;
+                }
+                LocalDateTime start = date.atTime(availability.getStart_time());
+                LocalDateTime end = availability.getEnd_time().isAfter(availability.getStart_time())
+                    ? date.atTime(availability.getEnd_time())
+                    : date.plusDays(1).atTime(availability.getEnd_time());
+                start = start.isBefore(rangeStart) ? rangeStart : start;
+                end = end.isAfter(rangeEnd) ? rangeEnd : end;
+                if (start.isBefore(end)) {
+                    windows.add(new Interval(start, end));
+                }
+            }
+        }
+        return windows;
+    }
+
+    // sorts and joins intervals that overlap or touch
+    private static List<Interval> merge(List<Interval> intervals) {
+        List<Interval> sorted = new ArrayList<>(intervals);
+        sorted.sort(BY_START);
+        List<Interval> merged = new ArrayList<>(sorted.size());
+        for (Interval interval : sorted) {
+            Interval last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !interval.start().isAfter(last.end())) {
+                if (interval.end().isAfter(last.end())) {
+                    merged.set(merged.size() - 1, new Interval(last.start(), interval.end()));
+                }
+            } else {
+                merged.add(interval);
+            }
+        }
+        return merged;
+    }
+
+    private static LocalDateTime firstGridPointAfter(LocalDateTime origin, LocalDateTime after, Duration step) {
+        long steps = Duration.between(origin, after).toNanos() / step.toNanos() + 1;
+        return origin.plus(step.multipliedBy(steps));
+    }
+}
@@ -0,0 +1,40 @@
+package com.booking.booking.services;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring over a fixed number of partitions, each placed at
+ * virtualNodes points. A key belongs to the first point at or after its
+ * hash, so the same key always lands on the same partition. Shared by
+ * BookingWriteEngine and ProjectionDispatcher, which both partition work
+ * by provider id.
+ */
+public final class HashRing {
+
+    private final TreeMap<Long, Integer> points = new TreeMap<>();
+
+    public HashRing(int partitions, int virtualNodes) {
+        for (int partition = 0; partition < partitions; partition++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                points.put(mix(((long) partition << 32) | v), partition);
+            }
+        }
+    }
+
+    public int partitionFor(Long key) {
+        long hash = mix(key == null ? 0L : key);
+        Map.Entry<Long, Integer> entry = points.ceilingEntry(hash);
+        return (entry != null ? entry : points.firstEntry()).getValue();
+    }
+
+    // 64-bit finalizer from MurmurHash3, spreads sequential ids over the ring
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93fe53e3a4fL;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,84 @@
+package com.booking.booking.services;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.booking.booking.exceptions.ApiException;
+import com.booking.booking.repositories.UsersRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * User ids already known to exist. The booking write path only needs the
+ * ids to set foreign keys, so once an id has been validated it is linked
+ * through a reference proxy without loading the Users row again.
+ *
+ * Kept current by UsersServices; users are never deleted in this service,
+ * so an id that was valid once stays valid. Bounded by max-size: past it
+ * the least useful ids are evicted one by one, so only they go back to a
+ * query.
+ */
+@Component
+public class KnownUserIds {
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Value("${booking.known-users.max-size:100000}")
+    private int maxSize = 100000;
+
+    private Cache<Long, Boolean> known;
+
+    @PostConstruct
+    void start(){
+        known = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Throws NOT_FOUND with the given message unless the user exists. Costs
+     * one existsById on the first call for an id and nothing afterwards.
+     */
+    public void require(Long userId, String notFoundMessage){
+        if(userId != null && known.getIfPresent(userId) != null){
+            return;
+        }
+        if(userId == null || !usersRepository.existsById(userId)){
+            throw new ApiException(notFoundMessage, HttpStatus.NOT_FOUND);
+        }
+        remember(userId);
+    }
+
+    /** The subset of ids that exist, with one query for the ones not cached yet. */
+    public Set<Long> filterKnown(Collection<Long> userIds){
+        Set<Long> found = new HashSet<>();
+        Set<Long> missing = new HashSet<>();
+        for(Long userId : userIds){
+            if(known.getIfPresent(userId) != null){
+                found.add(userId);
+            } else{
+                missing.add(userId);
+            }
+        }
+        if(!missing.isEmpty()){
+            for(Long userId : usersRepository.findExistingIds(missing)){
+                found.add(userId);
+                remember(userId);
+            }
+        }
+        return found;
+    }
+
+    public void remember(Long userId){
+        if(userId != null){
+            known.put(userId, Boolean.TRUE);
+        }
+    }
+}
@@ -1,50 +1,229 @@
 package com.booking.booking.services;
 
 import java.time.Duration;
-import java.util.function.Supplier;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.web.server.ResponseStatusException;
 
 import com.booking.booking.exceptions.ApiException;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
 @Service
 public class LockService {
+    private static final Logger log = LoggerFactory.getLogger(LockService.class);
+
+    // all-or-nothing: take every bucket of the range or none of them, then
+    // hand out the next fencing token of the provider (last key)
+    private static final RedisScript<Long> ACQUIRE_ALL = new DefaultRedisScript<>("""
+            local buckets = #KEYS - 1
+            for i = 1, buckets do
+                if redis.call('EXISTS', KEYS[i]) == 1 then
+                    return 0
+                end
+            end
+            for i = 1, buckets do
+                redis.call('SET', KEYS[i], ARGV[1], 'PX', ARGV[2])
+            end
+            return redis.call('INCR', KEYS[#KEYS])
+            """, Long.class);
+
+    // only touch keys still owned by this lease
+    private static final RedisScript<Long> RENEW_ALL = new DefaultRedisScript<>("""
+            local renewed = 0
+            for i, key in ipairs(KEYS) do
+                if redis.call('GET', key) == ARGV[1] then
+                    redis.call('PEXPIRE', key, ARGV[2])
+                    renewed = renewed + 1
+                end
+            end
+            return renewed
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE_ALL = new DefaultRedisScript<>("""
+            local released = 0
+            for i, key in ipairs(KEYS) do
+                if redis.call('GET', key) == ARGV[1] then
+                    redis.call('DEL', key)
+                    released = released + 1
+                end
+            end
+            return released
+            """, Long.class);
+
+    /**
+     * A held range lock. The owner value is unique per acquisition, so only
+     * this lease can renew or release its keys. fencingToken grows per
+     * provider with every acquisition; writers record it on each of the
+     * lease's buckets in the database, so a holder whose lease expired
+     * mid-request can't write after a newer one on the same buckets.
+     */
+    public static final class Lease {
+        private final List<String> keys;
+        private final String owner;
+        private final long fencingToken;
+        private final Duration ttl;
+        private volatile boolean lost;
+
+        Lease(List<String> keys, String owner, long fencingToken, Duration ttl) {
+            this.keys = keys;
+            this.owner = owner;
+            this.fencingToken = fencingToken;
+            this.ttl = ttl;
+        }
+
+        public List<String> getKeys() { return keys; }
+        public String getOwner() { return owner; }
+        public long getFencingToken() { return fencingToken; }
+        public boolean isLost() { return lost; }
+
+        // the time buckets held, the last segment of each key
+        public List<Long> getBuckets() {
+            return keys.stream().map(LockService::bucketOfKey).toList();
+        }
+    }
 
     @Autowired
     private StringRedisTemplate redisTemplate;
 
-    public boolean acquireLock(String key,Duration ttl){
-        Boolean success = redisTemplate.
-        opsForValue().
-        setIfAbsent(key, "locked",ttl);
-        return Boolean.TRUE.equals(success);    
+    @Value("${booking.lock.bucket-minutes:60}")
+    private int bucketMinutes = 60;
+
+    @Value("${booking.lock.max-buckets:168}")
+    private int maxBuckets = 168;
+
+    @Value("${booking.lock.renew-interval-ms:1000}")
+    private long renewIntervalMs = 1000;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Lease> held = new ConcurrentHashMap<>();
+    private ScheduledExecutorService watchdog;
+
+    @PostConstruct
+    void startWatchdog() {
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lock-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleAtFixedRate(this::renewHeldLeases, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
     }
 
-     public <T> T execute(String key, Supplier<T> action) {
+    @PreDestroy
+    void stopWatchdog() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+    }
+
+    /**
+     * Keys of the time buckets an interval touches for one provider. Two
+     * overlapping intervals always share at least one bucket; intervals in
+     * different buckets never contend. The {providerId} hash tag keeps all
+     * keys of a provider in the same Redis Cluster slot for the Lua script.
+     */
+    public List<String> rangeLockKeys(Long providerId, LocalDateTime startTs, LocalDateTime endTs){
+        long first = bucketOf(startTs);
+        long last = Math.max(first, bucketOf(endTs));
+
+        if(last - first + 1 > maxBuckets){
+            throw new ApiException("BOOKING INTERVAL TOO LONG", HttpStatus.BAD_REQUEST);
+        }
 
-        if (key == null || key.isBlank()) {
-            return action.get();
+        List<String> keys = new ArrayList<>((int) (last - first + 1));
+        for(long bucket = first; bucket <= last; bucket++){
+            keys.add("lock:booking:{" + providerId + "}:" + bucket);
         }
+        return keys;
+    }
+
+    /**
+     * Takes the range lock for the interval, or returns null when any of its
+     * buckets is held. The lease is renewed in the background until released.
+     */
+    public Lease acquireRangeLock(Long providerId, LocalDateTime startTs, LocalDateTime endTs, Duration ttl){
+        return acquireRangeLock(providerId, rangeLockKeys(providerId, startTs, endTs), ttl);
+    }
 
-        Boolean acquired = redisTemplate
-            .opsForValue()
-            .setIfAbsent("idempotency:" + key, "LOCK", Duration.ofMinutes(10));
+    /**
+     * Takes the given bucket keys of one provider under a single lease, for
+     * batches whose items sit far apart. Duplicates are dropped and the keys
+     * are taken in bucket order, so overlapping batches agree on the order.
+     */
+    public Lease acquireRangeLock(Long providerId, Collection<String> bucketKeys, Duration ttl){
+        List<String> keys = bucketKeys.stream()
+            .distinct()
+            .sorted(Comparator.comparingLong(LockService::bucketOfKey))
+            .toList();
+        List<String> scriptKeys = new ArrayList<>(keys);
+        scriptKeys.add("lock:fence:{" + providerId + "}");
 
-        if (Boolean.FALSE.equals(acquired)) {
-            throw new ApiException(
-                "Request already processed",
-                HttpStatus.CONFLICT
-            );
+        String owner = nodeId + ":" + UUID.randomUUID();
+        Long token = redisTemplate.execute(
+            ACQUIRE_ALL,
+            scriptKeys,
+            owner,
+            String.valueOf(ttl.toMillis())
+        );
+        if(token == null || token == 0L){
+            return null;
         }
 
-        return action.get();
+        Lease lease = new Lease(keys, owner, token, ttl);
+        held.put(owner, lease);
+        return lease;
     }
-    
-    public void releaseLock(String key){
-        redisTemplate.delete(key);
+
+    public void releaseRangeLock(Lease lease){
+        held.remove(lease.getOwner());
+        redisTemplate.execute(RELEASE_ALL, lease.getKeys(), lease.getOwner());
+    }
+
+    void renewHeldLeases(){
+        for(Lease lease : held.values()){
+            try{
+                Long renewed = redisTemplate.execute(
+                    RENEW_ALL,
+                    lease.getKeys(),
+                    lease.getOwner(),
+                    String.valueOf(lease.ttl.toMillis())
+                );
+                if(renewed == null || renewed < lease.getKeys().size()){
+                    lease.lost = true;
+                    held.remove(lease.getOwner());
+                    log.warn("Lock lease {} lost before release (fencing token {})", lease.getOwner(), lease.getFencingToken());
+                }
+            } catch(RuntimeException e){
+                log.warn("Could not renew lock lease {}: {}", lease.getOwner(), e.getMessage());
+            }
+        }
+    }
+
+    private static long bucketOfKey(String key){
+        return Long.parseLong(key.substring(key.lastIndexOf(':') + 1));
+    }
+
+    private long bucketOf(LocalDateTime ts){
+        return Math.floorDiv(ts.toEpochSecond(ZoneOffset.UTC) / 60, bucketMinutes);
     }
 }
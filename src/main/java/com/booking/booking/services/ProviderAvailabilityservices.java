@@ -1,23 +1,32 @@
 package com.booking.booking.services;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.DTO.FreeSlotDTO;
 import com.booking.booking.DTO.ProviderAvailabilityRequestDTO;
 import com.booking.booking.DTO.ProviderAvailabilityResponseDTO;
+import com.booking.booking.DTO.WorkingMinutesDTO;
 import com.booking.booking.events.providerEvents.ProviderAvailabilityCreatedEvent;
 import com.booking.booking.events.providerEvents.ProviderAvailabilityDeletedEvent;
 import com.booking.booking.events.providerEvents.ProviderAvailabilityUpdatedEvent;
 import com.booking.booking.exceptions.ApiException;
 import com.booking.booking.models.ProviderAvailability;
 import com.booking.booking.models.Users;
+import com.booking.booking.repositories.BookingsRepository;
 import com.booking.booking.repositories.ProviderAvailabilityRepository;
 import com.booking.booking.repositories.UsersRepository;
 import com.booking.booking.services.rabbitMQEvents.MessageProducerProvider;
@@ -35,19 +44,21 @@ public class ProviderAvailabilityservices {
     private MessageProducerProvider messageProducerProvider;
 
     @Autowired
-    private LockService idempotencyService;
+    private BookingsRepository bookingsRepository;
 
-    public ProviderAvailabilityResponseDTO saveProviderAvailability(
-            ProviderAvailabilityRequestDTO requestDTO,
-            String idempotencyKey) {
+    @Autowired
+    private AvailabilityBitmaps availabilityBitmaps;
 
-        return idempotencyService.execute(
-            idempotencyKey,
-            () -> createAvailability(requestDTO)
-        );
-    }
+    @Autowired
+    private BookingLookback bookingLookback;
 
+    @Value("${booking.slots.max-range-days:62}")
+    private long maxSlotRangeDays = 62;
 
+    @Value("${booking.slots.max-results:2000}")
+    private int maxSlotResults = 2000;
+
+    @Transactional
     public ProviderAvailabilityResponseDTO createAvailability(ProviderAvailabilityRequestDTO requestDTO){
         
         Users provider = usersRepository.findById(requestDTO.providerId())
@@ -61,6 +72,7 @@ public class ProviderAvailabilityservices {
             .build();
         
         ProviderAvailability result = providerRepository.save(providerToBeSaved);
+        availabilityBitmaps.rebuildAfterCommit(provider.getId());
 
         // create event for rabbitMQ
         ProviderAvailabilityCreatedEvent event = ProviderAvailabilityCreatedEvent.builder()            
@@ -85,11 +97,13 @@ public class ProviderAvailabilityservices {
             );
     }
 
+    @Transactional
     public ProviderAvailabilityResponseDTO deleteProviderById(Long id){
         ProviderAvailability providerFound = providerRepository.findById(id)
             .orElseThrow(() -> new ApiException("Provider availability not found", HttpStatus.NOT_FOUND));
 
         providerRepository.deleteById(id);
+        availabilityBitmaps.rebuildAfterCommit(providerFound.getProvider().getId());
 
 
         // delete event for rabbitMQ
@@ -128,6 +142,7 @@ public class ProviderAvailabilityservices {
         );
     }
 
+    @Transactional
     public ProviderAvailabilityResponseDTO updateProvider(Long id,ProviderAvailabilityRequestDTO requestDTO){
         ProviderAvailability providerFound = providerRepository.findById(id)
             .orElseThrow(() -> new ApiException("Provider availability not found", HttpStatus.NOT_FOUND));
@@ -135,6 +150,8 @@ public class ProviderAvailabilityservices {
         Users provider = usersRepository.findById(requestDTO.providerId())
             .orElseThrow(() -> new ApiException("User not found", HttpStatus.NOT_FOUND));
         
+        Long previousProviderId = providerFound.getProvider() == null ? null : providerFound.getProvider().getId();
+
         // updating data
         providerFound.setDay_of_week(requestDTO.day_of_week());
         providerFound.setEnd_time(requestDTO.end_time());
@@ -142,6 +159,7 @@ public class ProviderAvailabilityservices {
         providerFound.setStart_time(requestDTO.startTime());
 
         ProviderAvailability updated = providerRepository.save(providerFound);
+        availabilityBitmaps.rebuildAfterCommit(previousProviderId, provider.getId());
 
          // delete event for rabbitMQ
         ProviderAvailabilityUpdatedEvent event = ProviderAvailabilityUpdatedEvent.builder()            
@@ -182,5 +200,53 @@ public class ProviderAvailabilityservices {
               .collect(Collectors.toList());
     }
 
+    /**
+     * Open slots of durationMinutes in [from, to), every stepMinutes
+     * (default: back to back). Two reads: the provider's weekly windows and
+     * its bookings touching the range, through the provider/start index.
+     */
+    public List<FreeSlotDTO> findFreeSlots(Long providerId, LocalDate from, LocalDate to,
+                                           Integer durationMinutes, Integer stepMinutes){
+        if(from == null || to == null || !from.isBefore(to)
+                || durationMinutes == null || durationMinutes <= 0
+                || (stepMinutes != null && stepMinutes <= 0)){
+            throw new ApiException("INVALID SLOT SEARCH", HttpStatus.BAD_REQUEST);
+        }
+        if(ChronoUnit.DAYS.between(from, to) > maxSlotRangeDays){
+            throw new ApiException("SLOT SEARCH RANGE TOO LONG", HttpStatus.BAD_REQUEST);
+        }
+
+        List<ProviderAvailability> weekly = providerRepository.findByProviderId(providerId);
+        if(weekly.isEmpty()){
+            return List.of();
+        }
+        LocalDateTime fromTs = from.atStartOfDay();
+        LocalDateTime toTs = to.atStartOfDay();
+        List<BookingSlotDTO> booked = bookingsRepository.findSlotsOverlapping(
+            providerId, fromTs, toTs, bookingLookback.earliestStart(fromTs));
+
+        Duration duration = Duration.ofMinutes(durationMinutes);
+        Duration step = stepMinutes == null ? duration : Duration.ofMinutes(stepMinutes);
+        return FreeSlots.find(weekly, booked, from, to, duration, step, maxSlotResults);
+    }
 
+    /**
+     * Working minutes on date and how many of them no booking takes, from
+     * the provider's cached weekly bitmap and one bookings read.
+     */
+    public WorkingMinutesDTO findWorkingMinutes(Long providerId, LocalDate date){
+        if(date == null){
+            throw new ApiException("INVALID SLOT SEARCH", HttpStatus.BAD_REQUEST);
+        }
+        WeeklyAvailability weekly = availabilityBitmaps.get(providerId);
+        int working = weekly.minutes(date.getDayOfWeek());
+        if(working == 0){
+            return new WorkingMinutesDTO(date, 0, 0);
+        }
+        LocalDateTime fromTs = date.atStartOfDay();
+        LocalDateTime toTs = fromTs.plusDays(1);
+        List<BookingSlotDTO> booked = bookingsRepository.findSlotsOverlapping(
+            providerId, fromTs, toTs, bookingLookback.earliestStart(fromTs));
+        return new WorkingMinutesDTO(date, working, weekly.freeMinutes(date, booked));
+    }
 }
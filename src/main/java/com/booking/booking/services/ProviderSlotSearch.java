@@ -0,0 +1,480 @@
+package com.booking.booking.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.booking.booking.DTO.AvailabilityWindowDTO;
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.DTO.ProviderSlotDTO;
+import com.booking.booking.exceptions.ApiException;
+import com.booking.booking.repositories.BookingsRepository;
+import com.booking.booking.repositories.ProviderAvailabilityRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * "Which providers are free at 3pm Tuesday": the earliest open slot of
+ * every provider in a time range, best K first.
+ *
+ * Two bulk reads (all windows on the range's weekdays, all bookings
+ * touching the range) are packed into one Calendars of flat long arrays in
+ * epoch seconds, each provider a slice of it. A ForkJoin pass then sweeps
+ * every provider's slice like FreeSlots does, stopping at its first free
+ * slot; the sweep only reads arrays and writes one long per provider, so it
+ * allocates nothing. A bounded heap of indices picks the top K.
+ */
+@Service
+public class ProviderSlotSearch {
+    private static final Logger log = LoggerFactory.getLogger(ProviderSlotSearch.class);
+
+    static final long NONE = Long.MAX_VALUE;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    @Autowired
+    private ProviderAvailabilityRepository providerAvailabilityRepository;
+
+    @Autowired
+    private BookingsRepository bookingsRepository;
+
+    @Autowired
+    private BookingLookback bookingLookback;
+
+    @Value("${booking.search.max-range-days:14}")
+    private long maxRangeDays = 14;
+
+    @Value("${booking.search.max-results:100}")
+    private int maxResults = 100;
+
+    // 0 = one worker per available processor
+    @Value("${booking.search.parallelism:0}")
+    private int parallelism;
+
+    @Value("${booking.search.leaf-size:512}")
+    private int leafSize = 512;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    void start() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void stop() {
+        pool.shutdown();
+    }
+
+    /**
+     * Up to limit providers with an open slot of durationMinutes in
+     * [from, to), earliest slot first (ties by provider id). providerIds
+     * narrows the candidates; null means every provider.
+     */
+    public List<ProviderSlotDTO> findEarliest(LocalDateTime from, LocalDateTime to, Integer durationMinutes,
+                                              Integer stepMinutes, Integer limit, Collection<Long> providerIds) {
+        if (from == null || to == null || !from.isBefore(to)
+                || durationMinutes == null || durationMinutes <= 0
+                || (stepMinutes != null && stepMinutes <= 0)
+                || (limit != null && (limit <= 0 || limit > maxResults))) {
+            throw new ApiException("INVALID SLOT SEARCH", HttpStatus.BAD_REQUEST);
+        }
+        if (Duration.between(from, to).compareTo(Duration.ofDays(maxRangeDays)) > 0) {
+            throw new ApiException("SLOT SEARCH RANGE TOO LONG", HttpStatus.BAD_REQUEST);
+        }
+
+        long started = System.nanoTime();
+        if (providerIds != null && providerIds.isEmpty()) {
+            return List.of();
+        }
+        // a narrowed search reads only its candidates' windows and bookings
+        List<AvailabilityWindowDTO> windows = providerIds == null
+            ? providerAvailabilityRepository.findWindowsOnDays(weekdays(from, to))
+            : providerAvailabilityRepository.findWindowsOfProviders(new HashSet<>(providerIds));
+        if (windows.isEmpty()) {
+            return List.of();
+        }
+        List<BookingSlotDTO> bookings = providerIds == null
+            ? bookingsRepository.findAllSlotsOverlapping(from, to, bookingLookback.earliestStart(from))
+            : bookingsRepository.findSlotsOfProvidersOverlapping(candidates(windows), from, to,
+                bookingLookback.earliestStart(from));
+        long loaded = System.nanoTime();
+
+        Calendars calendars = Calendars.build(windows, bookings, from, to);
+        long duration = Duration.ofMinutes(durationMinutes).toSeconds();
+        long step = stepMinutes == null ? duration : Duration.ofMinutes(stepMinutes).toSeconds();
+        long[] earliest = new long[calendars.size()];
+        pool.invoke(new Sweep(calendars, earliest, 0, calendars.size(), duration, step, leafSize));
+        int[] best = top(earliest, calendars.providerIds, limit == null ? maxResults : limit);
+
+        List<ProviderSlotDTO> result = new ArrayList<>(best.length);
+        for (int index : best) {
+            LocalDateTime start = LocalDateTime.ofEpochSecond(earliest[index], 0, ZoneOffset.UTC);
+            result.add(new ProviderSlotDTO(calendars.providerIds[index], start, start.plusSeconds(duration)));
+        }
+        log.debug("Slot search over {} providers: load {} ms, evaluate {} ms", calendars.size(),
+            (loaded - started) / 1_000_000, (System.nanoTime() - loaded) / 1_000_000);
+        return result;
+    }
+
+    // providers with at least one window; the others can't have a slot
+    private static Set<Long> candidates(List<AvailabilityWindowDTO> windows) {
+        Set<Long> providers = new HashSet<>();
+        for (AvailabilityWindowDTO window : windows) {
+            providers.add(window.providerId());
+        }
+        return providers;
+    }
+
+    // weekdays of the range, plus the day before for windows running past midnight
+    private static Collection<Integer> weekdays(LocalDateTime from, LocalDateTime to) {
+        TreeSet<Integer> days = new TreeSet<>();
+        for (LocalDate date = from.toLocalDate().minusDays(1); !date.isAfter(to.toLocalDate()) && days.size() < 7;
+                date = date.plusDays(1)) {
+            days.add(date.getDayOfWeek().getValue());
+        }
+        return days;
+    }
+
+    /** Indices of the limit smallest earliest slots, in order; a max-heap keeps the current best. */
+    static int[] top(long[] earliest, long[] providerIds, int limit) {
+        int[] heap = new int[Math.min(limit, earliest.length)];
+        int size = 0;
+        for (int i = 0; i < earliest.length; i++) {
+            if (earliest[i] == NONE) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = i;
+                siftUp(heap, size++, earliest, providerIds);
+            } else if (before(i, heap[0], earliest, providerIds)) {
+                heap[0] = i;
+                siftDown(heap, size, earliest, providerIds);
+            }
+        }
+        int[] best = new int[size];
+        // popping the max-heap fills the result from the back
+        for (int n = size - 1; n >= 0; n--) {
+            best[n] = heap[0];
+            heap[0] = heap[n];
+            siftDown(heap, n, earliest, providerIds);
+        }
+        return best;
+    }
+
+    private static boolean before(int a, int b, long[] earliest, long[] providerIds) {
+        return earliest[a] < earliest[b] || (earliest[a] == earliest[b] && providerIds[a] < providerIds[b]);
+    }
+
+    private static void siftUp(int[] heap, int at, long[] earliest, long[] providerIds) {
+        while (at > 0) {
+            int parent = (at - 1) / 2;
+            if (!before(heap[parent], heap[at], earliest, providerIds)) {
+                return;
+            }
+            swap(heap, parent, at);
+            at = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, long[] earliest, long[] providerIds) {
+        int at = 0;
+        while (true) {
+            int largest = at;
+            for (int child = 2 * at + 1; child <= 2 * at + 2 && child < size; child++) {
+                if (before(heap[largest], heap[child], earliest, providerIds)) {
+                    largest = child;
+                }
+            }
+            if (largest == at) {
+                return;
+            }
+            swap(heap, at, largest);
+            at = largest;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int held = heap[a];
+        heap[a] = heap[b];
+        heap[b] = held;
+    }
+
+    /**
+     * First slot start of one provider, or NONE. Same rules as FreeSlots:
+     * windows and busy blocks are sorted, merged [start, end] pairs, a slot
+     * touching a block is taken, and candidates sit on a grid of step from
+     * their window's start.
+     */
+    static long earliest(long[] windows, int windowFrom, int windowTo, long[] busy, int busyFrom, int busyTo,
+                         long duration, long step) {
+        int next = busyFrom;
+        for (int w = windowFrom; w < windowTo; w += 2) {
+            long origin = windows[w];
+            long start = origin;
+            while (start + duration <= windows[w + 1]) {
+                while (next < busyTo && busy[next + 1] < start) {
+                    next += 2;
+                }
+                if (next < busyTo && busy[next] <= start + duration) {
+                    start = origin + ((busy[next + 1] - origin) / step + 1) * step;
+                    continue;
+                }
+                return start;
+            }
+        }
+        return NONE;
+    }
+
+    private static final class Sweep extends RecursiveAction {
+        private final Calendars calendars;
+        private final long[] earliest;
+        private final int from;
+        private final int to;
+        private final long duration;
+        private final long step;
+        private final int leafSize;
+
+        Sweep(Calendars calendars, long[] earliest, int from, int to, long duration, long step, int leafSize) {
+            this.calendars = calendars;
+            this.earliest = earliest;
+            this.from = from;
+            this.to = to;
+            this.duration = duration;
+            this.step = step;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                for (int i = from; i < to; i++) {
+                    earliest[i] = ProviderSlotSearch.earliest(
+                        calendars.windows, 2 * calendars.windowOffsets[i], 2 * calendars.windowOffsets[i + 1],
+                        calendars.busy, 2 * calendars.busyOffsets[i], 2 * calendars.busyOffsets[i + 1],
+                        duration, step);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Sweep(calendars, earliest, from, middle, duration, step, leafSize),
+                new Sweep(calendars, earliest, middle, to, duration, step, leafSize));
+        }
+    }
+
+    /**
+     * Every candidate provider's windows and busy blocks over the range, as
+     * merged [start, end] pairs in epoch seconds. Provider i owns pairs
+     * windowOffsets[i] until windowOffsets[i + 1] of windows, and likewise
+     * for busy.
+     */
+    static final class Calendars {
+        final long[] providerIds;
+        final int[] windowOffsets;
+        final long[] windows;
+        final int[] busyOffsets;
+        final long[] busy;
+
+        private Calendars(long[] providerIds, int[] windowOffsets, long[] windows, int[] busyOffsets, long[] busy) {
+            this.providerIds = providerIds;
+            this.windowOffsets = windowOffsets;
+            this.windows = windows;
+            this.busyOffsets = busyOffsets;
+            this.busy = busy;
+        }
+
+        int size() {
+            return providerIds.length;
+        }
+
+        static Calendars build(List<AvailabilityWindowDTO> weekly, List<BookingSlotDTO> bookings,
+                               LocalDateTime from, LocalDateTime to) {
+            long rangeStart = seconds(from);
+            long rangeEnd = seconds(to);
+            long firstDay = from.toLocalDate().toEpochDay() - 1;
+            long lastDay = to.toLocalDate().toEpochDay();
+
+            // windows bucketed by provider in order of first appearance, one map lookup per row
+            Map<Long, Integer> indexOf = new HashMap<>();
+            long[] candidates = new long[64];
+            int[] candidateOf = new int[weekly.size()];
+            long[] windowStart = new long[weekly.size()];
+            long[] windowEnd = new long[weekly.size()];
+            for (int w = 0; w < weekly.size(); w++) {
+                AvailabilityWindowDTO window = weekly.get(w);
+                if (window.providerId() == null || window.startTime() == null || window.endTime() == null
+                        || window.startTime().equals(window.endTime())) {
+                    candidateOf[w] = -1;
+                    continue;
+                }
+                Integer index = indexOf.get(window.providerId());
+                if (index == null) {
+                    index = indexOf.size();
+                    indexOf.put(window.providerId(), index);
+                    if (index == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, index * 2);
+                    }
+                    candidates[index] = window.providerId();
+                }
+                candidateOf[w] = index;
+                windowStart[w] = window.startTime().toSecondOfDay();
+                windowEnd[w] = window.endTime().toSecondOfDay();
+            }
+            int candidateCount = indexOf.size();
+            int[] slices = new int[candidateCount + 1];
+            int[] byCandidate = bucket(candidateOf, candidateCount, slices);
+
+            long[] ids = new long[candidateCount];
+            int[] kept = new int[candidateCount];
+            int[] windowOffsets = new int[candidateCount + 1];
+            IntervalBuffer windows = new IntervalBuffer();
+            int size = 0;
+            for (int candidate = 0; candidate < candidateCount; candidate++) {
+                sortBy(byCandidate, slices[candidate], slices[candidate + 1], windowStart);
+                int offset = windows.size();
+                // days ascending, windows of a day by start time: starts never go back
+                for (long day = firstDay; day <= lastDay; day++) {
+                    // epoch day 0 was a Thursday
+                    int dayOfWeek = (int) Math.floorMod(day + 3, 7) + 1;
+                    long midnight = day * SECONDS_PER_DAY;
+                    for (int k = slices[candidate]; k < slices[candidate + 1]; k++) {
+                        int w = byCandidate[k];
+                        if (weekly.get(w).dayOfWeek() != dayOfWeek) {
+                            continue;
+                        }
+                        long start = midnight + windowStart[w];
+                        long stop = midnight + windowEnd[w] + (windowEnd[w] > windowStart[w] ? 0 : SECONDS_PER_DAY);
+                        windows.addMerged(offset, Math.max(start, rangeStart), Math.min(stop, rangeEnd));
+                    }
+                }
+                if (windows.size() > offset) {
+                    kept[candidate] = size;
+                    ids[size] = candidates[candidate];
+                    windowOffsets[size++] = offset;
+                } else {
+                    kept[candidate] = -1;
+                }
+            }
+            windowOffsets[size] = windows.size();
+
+            int[] providerOf = new int[bookings.size()];
+            long[] bookingStart = new long[bookings.size()];
+            long[] bookingEnd = new long[bookings.size()];
+            for (int b = 0; b < bookings.size(); b++) {
+                BookingSlotDTO booking = bookings.get(b);
+                Integer candidate = booking.startsTs() == null || booking.endTs() == null
+                    ? null : indexOf.get(booking.providerId());
+                providerOf[b] = candidate == null ? -1 : kept[candidate];
+                if (providerOf[b] >= 0) {
+                    bookingStart[b] = seconds(booking.startsTs());
+                    bookingEnd[b] = seconds(booking.endTs());
+                }
+            }
+            int[] bookingSlices = new int[size + 1];
+            int[] byProvider = bucket(providerOf, size, bookingSlices);
+            IntervalBuffer busy = new IntervalBuffer();
+            int[] busyOffsets = new int[size + 1];
+            for (int provider = 0; provider < size; provider++) {
+                // bookings arrive in start order, so this sort is a single pass
+                sortBy(byProvider, bookingSlices[provider], bookingSlices[provider + 1], bookingStart);
+                int offset = busy.size();
+                busyOffsets[provider] = offset;
+                for (int k = bookingSlices[provider]; k < bookingSlices[provider + 1]; k++) {
+                    busy.addMerged(offset, bookingStart[byProvider[k]], bookingEnd[byProvider[k]]);
+                }
+            }
+            busyOffsets[size] = busy.size();
+
+            return new Calendars(Arrays.copyOf(ids, size), Arrays.copyOf(windowOffsets, size + 1),
+                windows.toArray(), busyOffsets, busy.toArray());
+        }
+
+        // stable counting sort of the items with a key >= 0; key k owns order[offsets[k]] until order[offsets[k + 1]]
+        private static int[] bucket(int[] keyOf, int keys, int[] offsets) {
+            for (int key : keyOf) {
+                if (key >= 0) {
+                    offsets[key + 1]++;
+                }
+            }
+            for (int key = 0; key < keys; key++) {
+                offsets[key + 1] += offsets[key];
+            }
+            int[] next = Arrays.copyOf(offsets, keys);
+            int[] order = new int[offsets[keys]];
+            for (int i = 0; i < keyOf.length; i++) {
+                if (keyOf[i] >= 0) {
+                    order[next[keyOf[i]]++] = i;
+                }
+            }
+            return order;
+        }
+
+        // insertion sort of order[from, to) by value; slices are short or already sorted
+        private static void sortBy(int[] order, int from, int to, long[] value) {
+            for (int i = from + 1; i < to; i++) {
+                int held = order[i];
+                int j = i - 1;
+                while (j >= from && value[order[j]] > value[held]) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = held;
+            }
+        }
+
+        private static long seconds(LocalDateTime time) {
+            return time.toEpochSecond(ZoneOffset.UTC);
+        }
+    }
+
+    /** Growable array of [start, end] pairs, appended in start order. */
+    private static final class IntervalBuffer {
+        private long[] values = new long[64];
+        private int pairs;
+
+        int size() {
+            return pairs;
+        }
+
+        // joins the pair with the last one when they overlap or touch, unless that one is before offset
+        void addMerged(int offset, long start, long end) {
+            if (start > end) {
+                return;
+            }
+            if (pairs > offset && start <= values[2 * pairs - 1]) {
+                values[2 * pairs - 1] = Math.max(values[2 * pairs - 1], end);
+                return;
+            }
+            if (2 * pairs + 2 > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[2 * pairs] = start;
+            values[2 * pairs + 1] = end;
+            pairs++;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, 2 * pairs);
+        }
+    }
+}
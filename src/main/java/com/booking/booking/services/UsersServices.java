@@ -9,6 +9,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.booking.booking.DTO.UserResponseDTO;
 import com.booking.booking.ENUMS.RolesENUM;
@@ -28,15 +29,9 @@ public class UsersServices {
     private MessageProducerUsers messageProducerUsers;
 
     @Autowired
-    private LockService idempotencyService;
-
-    public UserResponseDTO getOrCreateUser(Jwt jwt, String idempotencyKey) {
-
-        return idempotencyService.execute(
-                idempotencyKey,
-                () -> createOrGet(jwt));
-    }
+    private KnownUserIds knownUserIds;
 
+    @Transactional
     public UserResponseDTO createOrGet(Jwt jwt) {
 
         String keycloakId = jwt.getSubject();
@@ -56,6 +51,8 @@ public class UsersServices {
                             .build();
 
                     Users savedUser = usersRepository.save(newUser);
+                    // after a rollback the filter would vouch for a user that doesn't exist
+                    AfterCommit.run(() -> knownUserIds.remember(savedUser.getId()));
 
                     messageProducerUsers.sendUsersCreateEvent(
                             UsersCreatedEvent.builder()
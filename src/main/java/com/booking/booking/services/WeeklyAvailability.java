@@ -0,0 +1,193 @@
+package com.booking.booking.services;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.models.ProviderAvailability;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A provider's weekly working hours as one bit per 5 minutes, Monday
+ * 00:00 first: 2016 bits in 32 longs. "Is this interval within working
+ * hours" and "how many working minutes are left on a day" become a few
+ * masked word operations instead of LocalTime comparisons per window.
+ *
+ * A cell is set only when a window covers all of it. When every window
+ * starts and ends on the 5 minute grid the bitmap is exact; otherwise
+ * exact is false and covers() may say no for an interval that does fit,
+ * so callers fall back to the rows.
+ */
+public final class WeeklyAvailability {
+    public static final int SLOT_MINUTES = 5;
+
+    private static final int SLOT_SECONDS = SLOT_MINUTES * 60;
+    private static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    private static final int SLOTS = 7 * SLOTS_PER_DAY;
+    private static final int WORDS = (SLOTS + 63) / 64;
+
+    private final long[] words;
+    private final boolean exact;
+
+    @JsonCreator
+    WeeklyAvailability(@JsonProperty("words") long[] words, @JsonProperty("exact") boolean exact) {
+        this.words = Arrays.copyOf(words, WORDS);
+        this.exact = exact;
+    }
+
+    public static WeeklyAvailability of(Collection<ProviderAvailability> windows) {
+        long[] words = new long[WORDS];
+        boolean exact = true;
+        for (ProviderAvailability window : windows) {
+            if (window.getStart_time() == null || window.getEnd_time() == null
+                    || window.getDay_of_week() < 1 || window.getDay_of_week() > 7
+                    || window.getStart_time().equals(window.getEnd_time())) {
+                continue;
+            }
+            int start = window.getStart_time().toSecondOfDay();
+            int end = window.getEnd_time().toSecondOfDay();
+            exact &= start % SLOT_SECONDS == 0 && end % SLOT_SECONDS == 0;
+            // a window ending before it starts runs past midnight, Sunday's into Monday
+            if (end < start) {
+                end += 24 * 3600;
+            }
+            int day = (window.getDay_of_week() - 1) * SLOTS_PER_DAY;
+            int first = day + (start + SLOT_SECONDS - 1) / SLOT_SECONDS;
+            int last = day + end / SLOT_SECONDS;
+            set(words, first, Math.min(last, SLOTS));
+            if (last > SLOTS) {
+                set(words, 0, last - SLOTS);
+            }
+        }
+        return new WeeklyAvailability(words, exact);
+    }
+
+    @JsonProperty("words")
+    public long[] words() {
+        return words.clone();
+    }
+
+    @JsonProperty("exact")
+    public boolean exact() {
+        return exact;
+    }
+
+    /** False when the provider has no windows configured at all. */
+    public boolean hasWorkingTime() {
+        for (long word : words) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** True when every 5 minute cell [start, end] touches is working time. */
+    public boolean covers(LocalDateTime start, LocalDateTime end) {
+        if (start == null || end == null || end.isBefore(start)) {
+            return false;
+        }
+        Duration length = Duration.between(start, end);
+        long from = secondOfWeek(start) / SLOT_SECONDS;
+        long endSecond = secondOfWeek(start) + length.toSeconds() + (length.getNano() > 0 ? 1 : 0);
+        long to = Math.max(from + 1, (endSecond + SLOT_SECONDS - 1) / SLOT_SECONDS);
+        if (to - from >= SLOTS) {
+            return count(0, SLOTS) == SLOTS;
+        }
+        int first = (int) from;
+        int last = (int) to;
+        if (last <= SLOTS) {
+            return count(first, last) == last - first;
+        }
+        return count(first, SLOTS) == SLOTS - first && count(0, last - SLOTS) == last - SLOTS;
+    }
+
+    /** Working minutes on that weekday, overnight spill from the day before included. */
+    public int minutes(DayOfWeek day) {
+        int first = (day.getValue() - 1) * SLOTS_PER_DAY;
+        return count(first, first + SLOTS_PER_DAY) * SLOT_MINUTES;
+    }
+
+    /**
+     * Working minutes on date not taken by any of the bookings. A booking
+     * takes every cell it overlaps, so partial cells count as busy.
+     */
+    public int freeMinutes(LocalDate date, Collection<BookingSlotDTO> bookings) {
+        int first = (date.getDayOfWeek().getValue() - 1) * SLOTS_PER_DAY;
+        long[] day = new long[(SLOTS_PER_DAY + 63) / 64];
+        for (int w = 0; w < day.length; w++) {
+            day[w] = word(first + 64 * w) & mask(0, Math.min(64, SLOTS_PER_DAY - 64 * w));
+        }
+        LocalDateTime midnight = date.atStartOfDay();
+        for (BookingSlotDTO booking : bookings) {
+            if (booking.startsTs() == null || booking.endTs() == null
+                    || !booking.startsTs().isBefore(midnight.plusDays(1)) || !booking.endTs().isAfter(midnight)) {
+                continue;
+            }
+            long from = booking.startsTs().isBefore(midnight)
+                ? 0 : Duration.between(midnight, booking.startsTs()).toSeconds() / SLOT_SECONDS;
+            long to = booking.endTs().isAfter(midnight.plusDays(1))
+                ? SLOTS_PER_DAY : (Duration.between(midnight, booking.endTs()).toSeconds() + SLOT_SECONDS - 1) / SLOT_SECONDS;
+            clear(day, (int) from, (int) to);
+        }
+        int free = 0;
+        for (long word : day) {
+            free += Long.bitCount(word);
+        }
+        return free * SLOT_MINUTES;
+    }
+
+    private static long secondOfWeek(LocalDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * 24L * 3600 + time.toLocalTime().toSecondOfDay();
+    }
+
+    // the 64 cells from index on; cells past the end of the week read as 0
+    private long word(int index) {
+        int w = index >>> 6;
+        int shift = index & 63;
+        long low = w < WORDS ? words[w] >>> shift : 0;
+        long high = shift != 0 && w + 1 < WORDS ? words[w + 1] << (64 - shift) : 0;
+        return low | high;
+    }
+
+    private int count(int from, int to) {
+        int count = 0;
+        for (int w = from >>> 6; w <= (to - 1) >>> 6 && from < to; w++) {
+            count += Long.bitCount(words[w] & mask(Math.max(from, w << 6) - (w << 6), Math.min(to, (w + 1) << 6) - (w << 6)));
+        }
+        return count;
+    }
+
+    private static void set(long[] words, int from, int to) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6 && from < to; w++) {
+            words[w] |= mask(Math.max(from, w << 6) - (w << 6), Math.min(to, (w + 1) << 6) - (w << 6));
+        }
+    }
+
+    private static void clear(long[] words, int from, int to) {
+        for (int w = from >>> 6; w <= (to - 1) >>> 6 && from < to; w++) {
+            words[w] &= ~mask(Math.max(from, w << 6) - (w << 6), Math.min(to, (w + 1) << 6) - (w << 6));
+        }
+    }
+
+    // bits [from, to) of one word
+    private static long mask(int from, int to) {
+        long upTo = to == 64 ? -1L : (1L << to) - 1;
+        return upTo & (-1L << from);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof WeeklyAvailability that && exact == that.exact && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(words) + Boolean.hashCode(exact);
+    }
+}
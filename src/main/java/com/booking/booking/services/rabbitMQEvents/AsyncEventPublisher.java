@@ -0,0 +1,205 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Publishes messages to RabbitMQ in batches without blocking the caller.
+ *
+ * publish() puts the message on a bounded ring buffer and returns a future
+ * completed with the broker's ack (true) or nack (false). One flusher thread
+ * sends a batch once batch-size messages are queued or linger-ms has passed
+ * since the first one, all on one channel, each with its own correlation id.
+ *
+ * At most max-in-flight messages wait for a confirm; when the broker lags
+ * the flusher stops taking from the buffer, the buffer fills and publish()
+ * gives up after offer-timeout-ms with a RejectedExecutionException.
+ */
+@Profile("!test")
+@Component
+public class AsyncEventPublisher {
+    private static final Logger log = LoggerFactory.getLogger(AsyncEventPublisher.class);
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Value("${booking.publisher.buffer-size:8192}")
+    private int bufferSize = 8192;
+
+    @Value("${booking.publisher.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${booking.publisher.linger-ms:5}")
+    private long lingerMs = 5;
+
+    @Value("${booking.publisher.max-in-flight:10000}")
+    private int maxInFlight = 10000;
+
+    @Value("${booking.publisher.offer-timeout-ms:1000}")
+    private long offerTimeoutMs = 1000;
+
+    @Value("${booking.publisher.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs = 5000;
+
+    private record Pending(String exchange, String routingKey, Message message,
+                           CompletableFuture<Boolean> confirmed, AtomicBoolean settled) {}
+
+    private BlockingQueue<Pending> buffer;
+    private Semaphore inFlight;
+    private Thread flusher;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        inFlight = new Semaphore(Math.max(maxInFlight, batchSize));
+        running = true;
+        flusher = new Thread(this::flushLoop, "event-publisher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+        Pending pending;
+        while (buffer != null && (pending = buffer.poll()) != null) {
+            pending.confirmed().complete(false);
+        }
+    }
+
+    /**
+     * Queues the message. Throws RejectedExecutionException when the buffer
+     * stays full for offer-timeout-ms; nothing was queued in that case.
+     */
+    public CompletableFuture<Boolean> publish(String exchange, String routingKey, Message message) {
+        Pending pending = new Pending(exchange, routingKey, message, new CompletableFuture<>(), new AtomicBoolean());
+        try {
+            if (!running || !buffer.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Event publisher buffer full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while queueing event", e);
+        }
+        return pending.confirmed();
+    }
+
+    int buffered() {
+        return buffer.size();
+    }
+
+    int awaitingConfirm() {
+        return Math.max(maxInFlight, batchSize) - inFlight.availablePermits();
+    }
+
+    private void flushLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                if (nextBatch(batch)) {
+                    inFlight.acquire(batch.size());
+                    send(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.confirmed().complete(false));
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Event publisher flush failed: {}", e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /** Fills the batch up to batch-size or until linger-ms after its first message. */
+    boolean nextBatch(List<Pending> batch) throws InterruptedException {
+        Pending first = buffer.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+        while (batch.size() < batchSize) {
+            if (buffer.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            Pending next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    /** Sends the batch on one channel; the caller holds one in-flight permit per message. */
+    void send(List<Pending> batch) {
+        int[] sent = {0};
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (Pending pending : batch) {
+                    CorrelationData correlation = new CorrelationData();
+                    track(pending, correlation);
+                    operations.send(pending.exchange(), pending.routingKey(), pending.message(), correlation);
+                    sent[0]++;
+                }
+                return null;
+            });
+            log.debug("Event publisher sent {} messages", sent[0]);
+        } catch (RuntimeException e) {
+            log.warn("Event publisher could not send {} messages: {}", batch.size() - sent[0], e.getMessage());
+            // the ones already sent still get their confirm; fail the rest
+            batch.subList(sent[0], batch.size()).forEach(pending -> settle(pending, false));
+        }
+    }
+
+    private void track(Pending pending, CorrelationData correlation) {
+        correlation.getFuture()
+            .orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((confirm, error) -> {
+                boolean ack = error == null && confirm.isAck();
+                if (!ack) {
+                    log.debug("Message {} not confirmed: {}", correlation.getId(),
+                        error != null ? error.toString() : confirm.getReason());
+                }
+                settle(pending, ack);
+            });
+    }
+
+    // the permit goes back before the caller sees the outcome, exactly once
+    private void settle(Pending pending, boolean ack) {
+        if (pending.settled().compareAndSet(false, true)) {
+            inFlight.release();
+            pending.confirmed().complete(ack);
+        }
+    }
+}
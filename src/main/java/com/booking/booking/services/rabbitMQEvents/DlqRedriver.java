@@ -0,0 +1,377 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.booking.booking.DTO.DlqRedriveRequestDTO;
+import com.booking.booking.DTO.DlqRedriveStatusDTO;
+import com.booking.booking.config.EventMessageConverter;
+import com.booking.booking.exceptions.ApiException;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.GetResponse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Moves dead-lettered messages back to the exchange and routing key they
+ * were first published with: read from their x-death header, or from the
+ * origin headers RabbitMQConfig stamps on the messages it dead-letters
+ * itself.
+ *
+ * A redrive pulls the DLQ in batches on one channel with manual acks,
+ * publishes through AsyncEventPublisher at the job's rate and acks each
+ * message only once the broker confirmed its copy, so a crash redelivers
+ * instead of losing it. Messages that don't match the filters, or whose
+ * copy was refused, stay unacked on the channel until the run ends and are
+ * then requeued in place; this keeps them out of later gets without
+ * reordering the DLQ. A messageId seen earlier in the same run is acked
+ * without publishing. Runs one job at a time.
+ */
+@Profile("!test")
+@Component
+public class DlqRedriver {
+    private static final Logger log = LoggerFactory.getLogger(DlqRedriver.class);
+
+    /** Exchange, routing key and time of a dead-letter the broker did not record in x-death. */
+    public static final String ORIGIN_EXCHANGE_HEADER = "booking-origin-exchange";
+    public static final String ORIGIN_ROUTING_KEY_HEADER = "booking-origin-routing-key";
+    public static final String DEAD_AT_HEADER = "booking-dead-at";
+
+    private static final String DEAD_LETTER_ROUTING_KEY = "x-dead-letter-routing-key";
+    private static final int JOBS_KEPT = 50;
+
+    enum State { QUEUED, RUNNING, DONE, CANCELLED, FAILED }
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private AsyncEventPublisher publisher;
+
+    @Autowired
+    private List<Queue> queues;
+
+    @Value("${booking.redrive.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${booking.redrive.rate-per-second:200}")
+    private int defaultRatePerSecond = 200;
+
+    @Value("${booking.redrive.max-rate-per-second:2000}")
+    private int maxRatePerSecond = 2000;
+
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+    private final AtomicReference<Job> active = new AtomicReference<>();
+    private final Map<String, Job> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > JOBS_KEPT;
+        }
+    };
+
+    private Set<String> deadLetterQueues;
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        deadLetterQueues = new HashSet<>();
+        for (Queue queue : queues) {
+            Object dlq = queue.getArguments().get(DEAD_LETTER_ROUTING_KEY);
+            if (dlq != null) {
+                deadLetterQueues.add(dlq.toString());
+            }
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dlq-redrive");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        Job job = active.get();
+        if (job != null) {
+            job.cancelled = true;
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /** Every DLQ the queues dead-letter into, with its current depth. */
+    public Map<String, Long> depths() {
+        Map<String, Long> depths = new TreeMap<>();
+        rabbitTemplate.execute(channel -> {
+            for (String dlq : deadLetterQueues) {
+                depths.put(dlq, channel.queueDeclarePassive(dlq).getMessageCount() * 1L);
+            }
+            return null;
+        });
+        return depths;
+    }
+
+    /** Queues a redrive of one DLQ and returns at once; poll status() for progress. */
+    public DlqRedriveStatusDTO start(String queue, DlqRedriveRequestDTO request) {
+        Job job = register(queue, request);
+        executor.execute(() -> run(job));
+        return job.status();
+    }
+
+    public DlqRedriveStatusDTO status(String jobId) {
+        return find(jobId).status();
+    }
+
+    public List<DlqRedriveStatusDTO> recent() {
+        synchronized (jobs) {
+            return jobs.values().stream().map(Job::status).toList();
+        }
+    }
+
+    /** Stops the job after its current batch; unconfirmed messages stay in the DLQ. */
+    public DlqRedriveStatusDTO cancel(String jobId) {
+        Job job = find(jobId);
+        job.cancelled = true;
+        return job.status();
+    }
+
+    Job register(String queue, DlqRedriveRequestDTO request) {
+        if (!deadLetterQueues.contains(queue)) {
+            throw new ApiException("DLQ NOT FOUND", HttpStatus.NOT_FOUND);
+        }
+        DlqRedriveRequestDTO filters = request != null ? request : new DlqRedriveRequestDTO(null, null, null, null, null);
+        int rate = filters.ratePerSecond() != null ? filters.ratePerSecond() : defaultRatePerSecond;
+        if (rate <= 0 || rate > maxRatePerSecond) {
+            throw new ApiException("INVALID REDRIVE RATE", HttpStatus.BAD_REQUEST);
+        }
+        Job job = new Job(UUID.randomUUID().toString(), queue, filters, rate);
+        if (!active.compareAndSet(null, job)) {
+            throw new ApiException("REDRIVE ALREADY RUNNING", HttpStatus.CONFLICT);
+        }
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+        }
+        return job;
+    }
+
+    void run(Job job) {
+        job.state = State.RUNNING;
+        try {
+            rabbitTemplate.execute(channel -> {
+                drain(channel, job);
+                return null;
+            });
+            job.state = job.cancelled ? State.CANCELLED : State.DONE;
+        } catch (RuntimeException e) {
+            job.error = e.getMessage();
+            job.state = State.FAILED;
+            log.error("Redrive {} of {} failed: {}", job.id, job.queue, e.getMessage());
+        } finally {
+            job.finishedAt = Instant.now();
+            active.compareAndSet(job, null);
+            log.info("Redrive {} of {} ended {}: {} redriven, {} skipped, {} duplicates, {} failed", job.id,
+                job.queue, job.state, job.redriven, job.skipped, job.duplicates, job.failed);
+        }
+    }
+
+    private void drain(Channel channel, Job job) throws IOException {
+        job.queuedAtStart = channel.queueDeclarePassive(job.queue).getMessageCount();
+        TokenBucket bucket = new TokenBucket(job.ratePerSecond, Math.min(batchSize, job.ratePerSecond));
+        Set<String> seen = new HashSet<>();
+        // skipped or refused deliveries, requeued once the run is over
+        List<Long> held = new ArrayList<>();
+        try {
+            while (!job.cancelled && !job.limitReached()) {
+                Map<Long, CompletableFuture<Boolean>> batch = new LinkedHashMap<>();
+                GetResponse response;
+                while (batch.size() < batchSize && !job.limitReached(batch.size())
+                        && (response = channel.basicGet(job.queue, false)) != null) {
+                    long tag = response.getEnvelope().getDeliveryTag();
+                    MessageProperties properties = propertiesConverter.toMessageProperties(
+                        response.getProps(), response.getEnvelope(), StandardCharsets.UTF_8.name());
+                    String[] origin = origin(properties);
+                    if (origin == null || !matches(job.filters, properties, Instant.now())) {
+                        job.skipped.incrementAndGet();
+                        held.add(tag);
+                        continue;
+                    }
+                    String messageId = properties.getMessageId();
+                    if (messageId != null && !seen.add(messageId)) {
+                        job.duplicates.incrementAndGet();
+                        channel.basicAck(tag, false);
+                        continue;
+                    }
+                    bucket.acquire();
+                    try {
+                        batch.put(tag, publisher.publish(origin[0], origin[1], new Message(response.getBody(), properties)));
+                    } catch (RejectedExecutionException e) {
+                        job.failed.incrementAndGet();
+                        held.add(tag);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                for (Map.Entry<Long, CompletableFuture<Boolean>> sent : batch.entrySet()) {
+                    if (confirmed(sent.getValue())) {
+                        channel.basicAck(sent.getKey(), false);
+                        job.redriven.incrementAndGet();
+                    } else {
+                        job.failed.incrementAndGet();
+                        held.add(sent.getKey());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.cancelled = true;
+        } finally {
+            requeue(channel, held);
+        }
+    }
+
+    private static void requeue(Channel channel, Collection<Long> tags) throws IOException {
+        for (long tag : tags) {
+            channel.basicNack(tag, false, true);
+        }
+    }
+
+    private static boolean confirmed(CompletableFuture<Boolean> future) throws InterruptedException {
+        try {
+            // bounded by the publisher's confirm timeout
+            return Boolean.TRUE.equals(future.get());
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /** Exchange and routing key of the first publish, or null if it never was dead-lettered. */
+    static String[] origin(MessageProperties properties) {
+        List<Map<String, ?>> deaths = properties.getXDeathHeader();
+        if (deaths == null || deaths.isEmpty()) {
+            Object exchange = properties.getHeader(ORIGIN_EXCHANGE_HEADER);
+            Object routingKey = properties.getHeader(ORIGIN_ROUTING_KEY_HEADER);
+            return exchange == null || routingKey == null
+                ? null : new String[] { exchange.toString(), routingKey.toString() };
+        }
+        // newest death first; the last entry is the original publish
+        Map<String, ?> first = deaths.get(deaths.size() - 1);
+        Object exchange = first.get("exchange");
+        Object routingKeys = first.get("routing-keys");
+        if (exchange == null || !(routingKeys instanceof List<?> keys) || keys.isEmpty()) {
+            return null;
+        }
+        return new String[] { exchange.toString(), keys.get(0).toString() };
+    }
+
+    static boolean matches(DlqRedriveRequestDTO filters, MessageProperties properties, Instant now) {
+        if (filters.type() != null) {
+            Object typeId = properties.getHeader(EventMessageConverter.TYPE_ID_HEADER);
+            if (typeId == null || !(typeId.equals(filters.type()) || typeId.toString().endsWith("." + filters.type()))) {
+                return false;
+            }
+        }
+        if (filters.minAgeMinutes() == null && filters.maxAgeMinutes() == null) {
+            return true;
+        }
+        Instant deadAt = deadAt(properties);
+        if (deadAt == null) {
+            return false;
+        }
+        long ageMinutes = Duration.between(deadAt, now).toMinutes();
+        return (filters.minAgeMinutes() == null || ageMinutes >= filters.minAgeMinutes())
+            && (filters.maxAgeMinutes() == null || ageMinutes <= filters.maxAgeMinutes());
+    }
+
+    private static Instant deadAt(MessageProperties properties) {
+        List<Map<String, ?>> deaths = properties.getXDeathHeader();
+        if (deaths != null && !deaths.isEmpty() && deaths.get(0).get("time") instanceof Date time) {
+            return time.toInstant();
+        }
+        if (properties.getHeader(DEAD_AT_HEADER) instanceof Number epochMillis) {
+            return Instant.ofEpochMilli(epochMillis.longValue());
+        }
+        return properties.getTimestamp() != null ? properties.getTimestamp().toInstant() : null;
+    }
+
+    private Job find(String jobId) {
+        synchronized (jobs) {
+            Job job = jobs.get(jobId);
+            if (job == null) {
+                throw new ApiException("REDRIVE NOT FOUND", HttpStatus.NOT_FOUND);
+            }
+            return job;
+        }
+    }
+
+    static final class Job {
+        final String id;
+        final String queue;
+        final DlqRedriveRequestDTO filters;
+        final int ratePerSecond;
+        final Instant startedAt = Instant.now();
+        final AtomicLong redriven = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong duplicates = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        volatile State state = State.QUEUED;
+        volatile long queuedAtStart;
+        volatile boolean cancelled;
+        volatile Instant finishedAt;
+        volatile String error;
+
+        Job(String id, String queue, DlqRedriveRequestDTO filters, int ratePerSecond) {
+            this.id = id;
+            this.queue = queue;
+            this.filters = filters;
+            this.ratePerSecond = ratePerSecond;
+        }
+
+        boolean limitReached() {
+            return limitReached(0);
+        }
+
+        boolean limitReached(int pending) {
+            return filters.limit() != null && redriven.get() + pending >= filters.limit();
+        }
+
+        DlqRedriveStatusDTO status() {
+            return new DlqRedriveStatusDTO(id, queue, state.name(), queuedAtStart, redriven.get(), skipped.get(),
+                duplicates.get(), failed.get(), startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+
+import com.booking.booking.config.RabbitMQConfig;
+import com.booking.booking.events.bookingEvents.BookingCreatedEvent;
+import com.booking.booking.events.bookingEvents.BookingDeletedEvent;
+import com.booking.booking.events.bookingEvents.BookingUpdatedEvent;
+import com.booking.booking.repositories.ProjectionRepository;
+import com.booking.booking.repositories.ProjectionRepository.Projected;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps the provider calendars: one document per booking, listed in the
+ * sorted set of its provider by start time.
+ */
+@Profile("!test")
+@Service
+@RequiredArgsConstructor
+public class MessageConsumerBookings {
+    private static final Logger log = LoggerFactory.getLogger(MessageConsumerBookings.class);
+    private final ProjectionDispatcher dispatcher;
+    private final ProjectionRepository projections;
+
+    @RabbitListener(queues = "${rabbitmq.booking.queue.created}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onBookingsCreated(List<Message<BookingCreatedEvent>> messages){
+        dispatcher.dispatch(messages, BookingCreatedEvent::getProviderId, (event, version) ->
+            put(event.getId(), event.getProviderId(), event.getCustomerId(), event.getStartsTs(), event.getEndTs(), version));
+        log.debug("📥 [CONSUMER] {} reservas criadas projetadas", messages.size());
+    }
+
+    @RabbitListener(queues = "${rabbitmq.booking.queue.updated}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onBookingsUpdated(List<Message<BookingUpdatedEvent>> messages){
+        dispatcher.dispatch(messages, BookingUpdatedEvent::getProviderId, (event, version) ->
+            put(event.getId(), event.getProviderId(), event.getCustomerId(), event.getStartsTs(), event.getEndTs(), version));
+        log.debug("📥 [CONSUMER] {} reservas atualizadas projetadas", messages.size());
+    }
+
+    @RabbitListener(queues = "${rabbitmq.booking.queue.deleted}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onBookingsDeleted(List<Message<BookingDeletedEvent>> messages){
+        dispatcher.dispatch(messages, BookingDeletedEvent::getProviderId, (event, version) ->
+            projections.remove(bookingKey(event.getId()), String.valueOf(event.getId()), version));
+        log.debug("📥 [CONSUMER] {} reservas removidas projetadas", messages.size());
+    }
+
+    private void put(Long id, Long providerId, Long customerId, LocalDateTime startsTs, LocalDateTime endTs, long version){
+        projections.put(new Projected(
+            bookingKey(id),
+            calendarKey(providerId),
+            String.valueOf(id),
+            startsTs.toEpochSecond(ZoneOffset.UTC),
+            Map.of(
+                "providerId", String.valueOf(providerId),
+                "customerId", String.valueOf(customerId),
+                "startsTs", startsTs.toString(),
+                "endTs", endTs.toString())
+        ), version);
+    }
+
+    static String bookingKey(Long bookingId){
+        return "projection:booking:" + bookingId;
+    }
+
+    static String calendarKey(Long providerId){
+        return "projection:calendar:" + providerId;
+    }
+}
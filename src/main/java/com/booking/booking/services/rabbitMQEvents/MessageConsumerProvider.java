@@ -0,0 +1,89 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+
+import com.booking.booking.config.RabbitMQConfig;
+import com.booking.booking.events.providerEvents.ProviderAvailabilityCreatedEvent;
+import com.booking.booking.events.providerEvents.ProviderAvailabilityDeletedEvent;
+import com.booking.booking.events.providerEvents.ProviderAvailabilityUpdatedEvent;
+import com.booking.booking.events.providerEvents.ProviderScheduleImportedEvent;
+import com.booking.booking.repositories.ProjectionRepository;
+import com.booking.booking.repositories.ProjectionRepository.Projected;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps the weekly availability of each provider: one document per
+ * availability window, listed in the provider's sorted set by minute of
+ * the week (monday 00:00 = 0).
+ */
+@Profile("!test")
+@Service
+@RequiredArgsConstructor
+public class MessageConsumerProvider {
+    private static final Logger log = LoggerFactory.getLogger(MessageConsumerProvider.class);
+    private final ProjectionDispatcher dispatcher;
+    private final ProjectionRepository projections;
+
+    @RabbitListener(queues = "${rabbitmq.provider.queue.created}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onAvailabilityCreated(List<Message<ProviderAvailabilityCreatedEvent>> messages){
+        dispatcher.dispatch(messages, ProviderAvailabilityCreatedEvent::getProviderId, (event, version) ->
+            put(event.getId(), event.getProviderId(), event.getDay_of_week(), event.getStart_time(), event.getEnd_time(), version));
+        log.debug("📥 [CONSUMER] {} disponibilidades criadas projetadas", messages.size());
+    }
+
+    @RabbitListener(queues = "${rabbitmq.provider.queue.updated}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onAvailabilityUpdated(List<Message<ProviderAvailabilityUpdatedEvent>> messages){
+        dispatcher.dispatch(messages, ProviderAvailabilityUpdatedEvent::getProviderId, (event, version) ->
+            put(event.getId(), event.getProviderId(), event.getDay_of_week(), event.getStart_time(), event.getEnd_time(), version));
+        log.debug("📥 [CONSUMER] {} disponibilidades atualizadas projetadas", messages.size());
+    }
+
+    @RabbitListener(queues = "${rabbitmq.provider.queue.deleted}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onAvailabilityDeleted(List<Message<ProviderAvailabilityDeletedEvent>> messages){
+        dispatcher.dispatch(messages, ProviderAvailabilityDeletedEvent::getProviderId, (event, version) ->
+            projections.remove(availabilityKey(event.getId()), String.valueOf(event.getId()), version));
+        log.debug("📥 [CONSUMER] {} disponibilidades removidas projetadas", messages.size());
+    }
+
+    @RabbitListener(queues = "${rabbitmq.provider.queue.imported:provider.imported.queue}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onScheduleImported(List<Message<ProviderScheduleImportedEvent>> messages){
+        dispatcher.dispatch(messages, ProviderScheduleImportedEvent::getProviderId, (event, version) -> {
+            for(ProviderScheduleImportedEvent.Window window : event.getWindows()){
+                put(window.getId(), event.getProviderId(), window.getDay_of_week(), window.getStart_time(), window.getEnd_time(), version);
+            }
+        });
+        log.debug("📥 [CONSUMER] {} importações de agenda projetadas", messages.size());
+    }
+
+    private void put(Long id, Long providerId, int dayOfWeek, LocalTime startTime, LocalTime endTime, long version){
+        projections.put(new Projected(
+            availabilityKey(id),
+            weekKey(providerId),
+            String.valueOf(id),
+            (dayOfWeek - 1) * 1440 + startTime.getHour() * 60 + startTime.getMinute(),
+            Map.of(
+                "providerId", String.valueOf(providerId),
+                "dayOfWeek", String.valueOf(dayOfWeek),
+                "startTime", startTime.toString(),
+                "endTime", endTime.toString())
+        ), version);
+    }
+
+    static String availabilityKey(Long availabilityId){
+        return "projection:availability:" + availabilityId;
+    }
+
+    static String weekKey(Long providerId){
+        return "projection:availability-week:" + providerId;
+    }
+}
@@ -0,0 +1,67 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+
+import com.booking.booking.config.RabbitMQConfig;
+import com.booking.booking.events.usersEvents.UsersCreatedEvent;
+import com.booking.booking.events.usersEvents.UsersDeletedEvent;
+import com.booking.booking.events.usersEvents.UsersUpdatedEvent;
+import com.booking.booking.repositories.ProjectionRepository;
+import com.booking.booking.repositories.ProjectionRepository.Projected;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps the public profile of each user (never the password) for the
+ * calendar and availability views.
+ */
+@Profile("!test")
+@Service
+@RequiredArgsConstructor
+public class MessageConsumerUsers {
+    private static final Logger log = LoggerFactory.getLogger(MessageConsumerUsers.class);
+    private final ProjectionDispatcher dispatcher;
+    private final ProjectionRepository projections;
+
+    @RabbitListener(queues = "${rabbitmq.users.queue.created}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onUsersCreated(List<Message<UsersCreatedEvent>> messages){
+        dispatcher.dispatch(messages, UsersCreatedEvent::getId, (event, version) ->
+            put(event.getId(), event.getName(), event.getEmail(), event.getRoles(), version));
+        log.debug("📥 [CONSUMER] {} usuários criados projetados", messages.size());
+    }
+
+    @RabbitListener(queues = "${rabbitmq.users.queue.updated}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onUsersUpdated(List<Message<UsersUpdatedEvent>> messages){
+        dispatcher.dispatch(messages, UsersUpdatedEvent::getId, (event, version) ->
+            put(event.getId(), event.getName(), event.getEmail(), event.getRoles(), version));
+        log.debug("📥 [CONSUMER] {} usuários atualizados projetados", messages.size());
+    }
+
+    @RabbitListener(queues = "${rabbitmq.users.queue.deleted}", containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void onUsersDeleted(List<Message<UsersDeletedEvent>> messages){
+        dispatcher.dispatch(messages, UsersDeletedEvent::getId, (event, version) ->
+            projections.remove(userKey(event.getId()), String.valueOf(event.getId()), version));
+        log.debug("📥 [CONSUMER] {} usuários removidos projetados", messages.size());
+    }
+
+    private void put(Long id, String name, String email, String roles, long version){
+        Map<String, String> fields = new HashMap<>();
+        fields.put("name", name == null ? "" : name);
+        fields.put("email", email == null ? "" : email);
+        fields.put("roles", roles == null ? "" : roles);
+        projections.put(new Projected(userKey(id), null, String.valueOf(id), 0, fields), version);
+    }
+
+    static String userKey(Long userId){
+        return "projection:user:" + userId;
+    }
+}
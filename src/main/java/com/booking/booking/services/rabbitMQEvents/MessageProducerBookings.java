@@ -1,22 +1,36 @@
 package com.booking.booking.services.rabbitMQEvents;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.booking.booking.events.bookingEvents.BookingCreatedEvent;
 import com.booking.booking.events.bookingEvents.BookingDeletedEvent;
 import com.booking.booking.events.bookingEvents.BookingUpdatedEvent;
+import com.booking.booking.repositories.OutboxRepository;
+import com.booking.booking.repositories.OutboxRepository.PendingMessage;
 
 import lombok.RequiredArgsConstructor;
 
+/**
+ * Writes booking events to the outbox, keyed by booking id. Within the
+ * coalescing window an update or delete replaces the booking's unclaimed
+ * rows instead of queueing behind them: the latest update wins, an update
+ * of an unpublished create becomes that create with the new state, and a
+ * delete of an unpublished create drops both. The replacing row is
+ * appended with a new (higher) id, so consumers still see versions grow,
+ * and it keeps the oldest row's time so a steady stream of updates is
+ * still published once per window.
+ */
 @Service
 @RequiredArgsConstructor
 public class MessageProducerBookings {
     private static final Logger log = LoggerFactory.getLogger(MessageProducerBookings.class);
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxRepository outboxRepository;
 
     @Value("${rabbitmq.booking.exchange}")
     private String bookingsExchange;
@@ -30,18 +44,72 @@ public class MessageProducerBookings {
     @Value("${rabbitmq.booking.routing.deleted}")
     private String deletedRK;
 
+    @Value("${booking.outbox.coalesce-window-ms:200}")
+    private long coalesceWindowMs;
+
     public void sendBookingCreateEvent(BookingCreatedEvent event){
-        rabbitTemplate.convertAndSend(bookingsExchange,createdRK,event);
-        log.info("📤 [PRODUCER] Evento enviado para RabbitMQ: {}", event);
+        outboxRepository.append(bookingsExchange,createdRK,aggregateKey(event.getId()),LocalDateTime.now(),event);
+        log.debug("📤 [PRODUCER] Evento gravado no outbox: {}", event);
+    }
+
+    // one JDBC batch for all events of the batch
+    public void sendBookingCreateEvents(List<BookingCreatedEvent> events){
+        if(events.isEmpty()){
+            return;
+        }
+        outboxRepository.appendAll(bookingsExchange,createdRK,events,event -> aggregateKey(event.getId()));
+        log.debug("📤 [PRODUCER] {} eventos gravados no outbox", events.size());
     }
 
     public void sendBookingUpdateEvent(BookingUpdatedEvent event){
-        rabbitTemplate.convertAndSend(bookingsExchange,updatedRK,event);
-        log.info("📤 [PRODUCER] Evento enviado para RabbitMQ: {}", event);
+        String key = aggregateKey(event.getId());
+        List<PendingMessage> pending = pending(key);
+        LocalDateTime windowStart = windowStart(pending);
+        outboxRepository.deleteAll(pending.stream().map(PendingMessage::id).toList());
+
+        if(containsCreate(pending)){
+            // nobody has seen the booking yet: publish it as created, with its latest state
+            outboxRepository.append(bookingsExchange,createdRK,key,windowStart,BookingCreatedEvent.builder()
+                .id(event.getId())
+                .providerId(event.getProviderId())
+                .customerId(event.getCustomerId())
+                .startsTs(event.getStartsTs())
+                .endTs(event.getEndTs())
+                .eventTs(event.getEventTs())
+                .build());
+        } else {
+            outboxRepository.append(bookingsExchange,updatedRK,key,windowStart,event);
+        }
+        log.debug("📤 [PRODUCER] Evento gravado no outbox ({} coalescidos): {}", pending.size(), event);
     }
 
     public void sendBookingDeleteEvent(BookingDeletedEvent event){
-        rabbitTemplate.convertAndSend(bookingsExchange,deletedRK,event);
-        log.info("📤 [PRODUCER] Evento enviado para RabbitMQ: {}", event);
+        String key = aggregateKey(event.getId());
+        List<PendingMessage> pending = pending(key);
+        outboxRepository.deleteAll(pending.stream().map(PendingMessage::id).toList());
+
+        if(containsCreate(pending)){
+            // created and deleted within one window: neither goes out
+            log.debug("📤 [PRODUCER] Criação e remoção canceladas no outbox: {}", event);
+            return;
+        }
+        outboxRepository.append(bookingsExchange,deletedRK,key,windowStart(pending),event);
+        log.debug("📤 [PRODUCER] Evento gravado no outbox ({} coalescidos): {}", pending.size(), event);
+    }
+
+    private List<PendingMessage> pending(String key){
+        return coalesceWindowMs > 0 && key != null ? outboxRepository.lockPending(key) : List.of();
+    }
+
+    private boolean containsCreate(List<PendingMessage> pending){
+        return pending.stream().anyMatch(message -> createdRK.equals(message.routingKey()));
+    }
+
+    private static LocalDateTime windowStart(List<PendingMessage> pending){
+        return pending.isEmpty() ? LocalDateTime.now() : pending.get(0).createdAt();
+    }
+
+    private static String aggregateKey(Long bookingId){
+        return bookingId == null ? null : "booking:" + bookingId;
     }
 }
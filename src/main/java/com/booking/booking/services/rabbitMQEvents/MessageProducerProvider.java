@@ -1,14 +1,17 @@
 package com.booking.booking.services.rabbitMQEvents;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.booking.booking.events.providerEvents.ProviderAvailabilityCreatedEvent;
 import com.booking.booking.events.providerEvents.ProviderAvailabilityDeletedEvent;
 import com.booking.booking.events.providerEvents.ProviderAvailabilityUpdatedEvent;
+import com.booking.booking.events.providerEvents.ProviderScheduleImportedEvent;
+import com.booking.booking.repositories.OutboxRepository;
 
 import lombok.RequiredArgsConstructor;
 
@@ -16,7 +19,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class MessageProducerProvider {
     private static final Logger log = LoggerFactory.getLogger(MessageProducerProvider.class);
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxRepository outboxRepository;
 
     @Value("${rabbitmq.provider.exchange}")
     private String providerExchange;
@@ -30,18 +33,30 @@ public class MessageProducerProvider {
     @Value("${rabbitmq.provider.routing.deleted}")
     private String deletedRK;
 
+    @Value("${rabbitmq.provider.routing.imported:provider.imported}")
+    private String importedRK;
+
     public void sendProviderCreateEvent(ProviderAvailabilityCreatedEvent event){
-        rabbitTemplate.convertAndSend(providerExchange,createdRK,event);
-        log.info("📤 [PRODUCER] Evento enviado para RabbitMQ: {}", event);
+        outboxRepository.append(providerExchange,createdRK,event);
+        log.debug("📤 [PRODUCER] Evento gravado no outbox: {}", event);
     }
 
     public void sendProviderUpdateEvent(ProviderAvailabilityUpdatedEvent event){
-        rabbitTemplate.convertAndSend(providerExchange,updatedRK,event);
-        log.info("📤 [PRODUCER] Evento enviado para RabbitMQ: {}", event);
+        outboxRepository.append(providerExchange,updatedRK,event);
+        log.debug("📤 [PRODUCER] Evento gravado no outbox: {}", event);
     }
 
     public void sendProviderDeleteEvent(ProviderAvailabilityDeletedEvent event){
-        rabbitTemplate.convertAndSend(providerExchange,deletedRK,event);
-        log.info("📤 [PRODUCER] Evento enviado para RabbitMQ: {}", event);
+        outboxRepository.append(providerExchange,deletedRK,event);
+        log.debug("📤 [PRODUCER] Evento gravado no outbox: {}", event);
+    }
+
+    // one event per provider, every one in a single outbox batch
+    public void sendProviderScheduleImportedEvents(List<ProviderScheduleImportedEvent> events){
+        if(events.isEmpty()){
+            return;
+        }
+        outboxRepository.appendAll(providerExchange,importedRK,events);
+        log.debug("📤 [PRODUCER] {} eventos gravados no outbox", events.size());
     }
 }
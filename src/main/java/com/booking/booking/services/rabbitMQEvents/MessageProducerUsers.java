@@ -2,12 +2,13 @@ package com.booking.booking.services.rabbitMQEvents;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+
 import com.booking.booking.events.usersEvents.UsersCreatedEvent;
 import com.booking.booking.events.usersEvents.UsersDeletedEvent;
 import com.booking.booking.events.usersEvents.UsersUpdatedEvent;
+import com.booking.booking.repositories.OutboxRepository;
 
 import lombok.RequiredArgsConstructor;
 
@@ -15,7 +16,7 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class MessageProducerUsers {
     private static final Logger log = LoggerFactory.getLogger(MessageProducerUsers.class);
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxRepository outboxRepository;
 
     @Value("${rabbitmq.users.exchange}")
     private String usersExchange;
@@ -30,17 +31,17 @@ public class MessageProducerUsers {
     private String deletedRK;
 
     public void sendUsersCreateEvent(UsersCreatedEvent event){
-        rabbitTemplate.convertAndSend(usersExchange,createdRK,event);
-        log.info("📤 [PRODUCER] Evento enviado para RabbitMQ: {}", event);
+        outboxRepository.append(usersExchange,createdRK,event);
+        log.debug("📤 [PRODUCER] Evento gravado no outbox: {}", event);
     }
 
     public void sendProviderUpdateEvent(UsersUpdatedEvent event){
-        rabbitTemplate.convertAndSend(usersExchange,updatedRK,event);
-        log.info("📤 [PRODUCER] Evento enviado para RabbitMQ: {}", event);
+        outboxRepository.append(usersExchange,updatedRK,event);
+        log.debug("📤 [PRODUCER] Evento gravado no outbox: {}", event);
     }
 
     public void sendProviderDeleteEvent(UsersDeletedEvent event){
-        rabbitTemplate.convertAndSend(usersExchange,deletedRK,event);
-        log.info("📤 [PRODUCER] Evento enviado para RabbitMQ: {}", event);
+        outboxRepository.append(usersExchange,deletedRK,event);
+        log.debug("📤 [PRODUCER] Evento gravado no outbox: {}", event);
     }
 }
@@ -0,0 +1,183 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booking.booking.config.EventMessageConverter;
+import com.booking.booking.repositories.OutboxRepository;
+import com.booking.booking.repositories.OutboxRepository.OutboxMessage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Publishes the outbox to RabbitMQ through AsyncEventPublisher.
+ *
+ * Each run claims the oldest unclaimed rows in a short transaction and hands
+ * them to the publisher without waiting; later runs claim the next rows while
+ * those confirms are still pending. Acked rows are deleted, nacked or
+ * rejected ones released for the next run. A crash leaves rows claimed until
+ * claim-ttl-ms, after which they are published again, so delivery is at
+ * least once and messageId ("outbox-{id}") identifies duplicates. Rows of
+ * an aggregate wait coalesce-window-ms before they are claimed, so a burst
+ * of changes to one booking goes out as its last state.
+ */
+@Profile("!test")
+@Component
+public class OutboxRelay {
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    static final String MESSAGE_ID_PREFIX = "outbox-";
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private AsyncEventPublisher publisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${booking.outbox.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${booking.outbox.poll-interval-ms:100}")
+    private long pollIntervalMs = 100;
+
+    @Value("${booking.outbox.claim-ttl-ms:30000}")
+    private long claimTtlMs = 30000;
+
+    @Value("${booking.outbox.coalesce-window-ms:200}")
+    private long coalesceWindowMs = 200;
+
+    // filled by confirm callbacks, emptied by the relay thread
+    private final Queue<Long> acked = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> nacked = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::drain, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    void drain() {
+        try {
+            settle();
+            // keep going while batches come back full
+            while (relayBatch() == batchSize) {
+                settle();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed, retrying in {} ms: {}", pollIntervalMs, e.getMessage());
+        }
+    }
+
+    int relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMessage> batch = transactionTemplate.execute(
+            status -> outboxRepository.claimOldest(batchSize, now, now.plus(claimTtlMs, ChronoUnit.MILLIS),
+                now.minus(coalesceWindowMs, ChronoUnit.MILLIS)));
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            long id = batch.get(i).id();
+            try {
+                publisher.publish(batch.get(i).exchange(), batch.get(i).routingKey(), toAmqp(batch.get(i)))
+                    .whenComplete((ack, error) -> (Boolean.TRUE.equals(ack) ? acked : nacked).add(id));
+            } catch (RejectedExecutionException e) {
+                // broker is lagging: give the rest back and stop this run
+                List<Long> rest = batch.subList(i, batch.size()).stream().map(OutboxMessage::id).toList();
+                transactionTemplate.executeWithoutResult(status -> outboxRepository.releaseAll(rest));
+                log.debug("Outbox relay backed off with {} messages queued", rest.size());
+                return i;
+            }
+        }
+        return batch.size();
+    }
+
+    /** Deletes confirmed rows and releases the ones the broker refused. */
+    void settle() {
+        List<Long> confirmed = takeAll(acked);
+        if (!confirmed.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteAll(confirmed));
+            log.debug("Outbox relay confirmed {} messages", confirmed.size());
+        }
+        List<Long> refused = takeAll(nacked);
+        if (!refused.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.releaseAll(refused));
+            log.warn("Outbox relay got {} nacks, messages will be retried", refused.size());
+        }
+    }
+
+    private static List<Long> takeAll(Queue<Long> queue) {
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = queue.poll()) != null) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    static Message toAmqp(OutboxMessage message) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(message.contentType());
+        if (MessageProperties.CONTENT_TYPE_JSON.equals(message.contentType())) {
+            properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        }
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setMessageId(MESSAGE_ID_PREFIX + message.id());
+        properties.setHeader(EventMessageConverter.TYPE_ID_HEADER, message.typeId());
+        return new Message(message.body(), properties);
+    }
+
+    /**
+     * The outbox row id a message was published from, or null. Ids grow in
+     * commit order for the writes of one provider, so consumers use them as
+     * the version of the change.
+     */
+    static Long outboxId(String messageId) {
+        if (messageId == null || !messageId.startsWith(MESSAGE_ID_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(messageId.substring(MESSAGE_ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.booking.booking.services.HashRing;
+
+/**
+ * Applies a consumed batch on all cores while keeping per-key order.
+ *
+ * Keys (the provider id for bookings and availability) are spread over N
+ * single-threaded partitions with a consistent hash ring, like
+ * BookingWriteEngine does for writes. The events of one key run on one
+ * partition in the order they were received; dispatch() returns once the
+ * whole batch is applied, so the listener acks it in one go afterwards.
+ */
+@Profile("!test")
+@Component
+public class ProjectionDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(ProjectionDispatcher.class);
+
+    @Value("${booking.consumer.partitions:0}")
+    private int partitions;
+
+    @Value("${booking.consumer.virtual-nodes:64}")
+    private int virtualNodes = 64;
+
+    private HashRing ring;
+    private ExecutorService[] workers;
+
+    @PostConstruct
+    void start() {
+        int size = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        workers = new ExecutorService[size];
+        for (int p = 0; p < size; p++) {
+            final int partition = p;
+            workers[p] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "projection-" + partition);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        ring = new HashRing(size, virtualNodes);
+        log.info("Projection dispatcher started with {} partitions", size);
+    }
+
+    @PreDestroy
+    void stop() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    /**
+     * Applies every message with its outbox id as the version, in order per
+     * key. A message that fails doesn't stop the ones after it, the
+     * versioned projections don't depend on each other; once all partitions
+     * are done a FailedMessagesException names the failures. The batch is
+     * then retried as a whole, which the versions also tolerate, and only
+     * the messages still failing are dead-lettered. Messages that did not
+     * come from the outbox have no version and are skipped.
+     */
+    public <T> void dispatch(List<Message<T>> messages, Function<T, Long> keyOf, BiConsumer<T, Long> apply) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<List<Message<T>>> byPartition = new ArrayList<>(workers.length);
+        for (int p = 0; p < workers.length; p++) {
+            byPartition.add(new ArrayList<>());
+        }
+        for (Message<T> message : messages) {
+            byPartition.get(partitionFor(keyOf.apply(message.getPayload()))).add(message);
+        }
+
+        Set<String> failed = ConcurrentHashMap.newKeySet();
+        AtomicReference<RuntimeException> firstFailure = new AtomicReference<>();
+        List<Future<?>> running = new ArrayList<>(workers.length);
+        for (int p = 0; p < workers.length; p++) {
+            List<Message<T>> slice = byPartition.get(p);
+            if (!slice.isEmpty()) {
+                running.add(workers[p].submit(() -> slice.forEach(message -> {
+                    String messageId = message.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class);
+                    Long version = OutboxRelay.outboxId(messageId);
+                    if (version == null) {
+                        log.warn("Skipping message {} without an outbox id", messageId);
+                        return;
+                    }
+                    try {
+                        apply.accept(message.getPayload(), version);
+                    } catch (RuntimeException e) {
+                        failed.add(messageId);
+                        firstFailure.compareAndSet(null, e);
+                    }
+                })));
+            }
+        }
+
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while applying projections", e);
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new FailedMessagesException(failed, firstFailure.get());
+        }
+    }
+
+    /** The messages of a batch that could not be applied, by message id; the first failure is the cause. */
+    public static class FailedMessagesException extends RuntimeException {
+        private final Set<String> messageIds;
+
+        public FailedMessagesException(Set<String> messageIds, RuntimeException cause) {
+            super(messageIds.size() + " projection message(s) failed: " + cause.getMessage(), cause);
+            this.messageIds = Set.copyOf(messageIds);
+        }
+
+        public Set<String> getMessageIds() {
+            return messageIds;
+        }
+    }
+
+    public int partitionFor(Long key) {
+        return ring.partitionFor(key);
+    }
+
+    public int partitionCount() {
+        return workers.length;
+    }
+}
@@ -0,0 +1,36 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket for a single caller: up to burst permits at once, then
+ * permitsPerSecond on average. acquire() takes the token on credit and
+ * sleeps until the debt is paid, so the rate holds without a refill thread.
+ */
+final class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    void acquire() throws InterruptedException {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        tokens -= 1;
+        if (tokens < 0) {
+            TimeUnit.NANOSECONDS.sleep((long) Math.ceil(-tokens / permitsPerNano));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+create table users (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    keycloak_id varchar(255) not null unique,
+    email varchar(255) unique,
+    roles enum ('ADMIN','CLIENT','PROVIDER'),
+    created_at timestamp(6),
+    primary key (id)
+);
+
+create table bookings (
+    id bigint generated by default as identity,
+    provider_id bigint,
+    customer_id bigint,
+    start_ts timestamp(6),
+    end_ts timestamp(6),
+    status enum ('CANCELLED','CONFIRMED','PENDING'),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    primary key (id),
+    foreign key (provider_id) references users (id),
+    foreign key (customer_id) references users (id)
+);
+
+create table provider_availability (
+    id bigint generated by default as identity,
+    day_of_week integer not null,
+    start_time time(6),
+    end_time time(6),
+    provider_id bigint,
+    primary key (id),
+    foreign key (provider_id) references users (id)
+);
@@ -0,0 +1,5 @@
+create table if not exists provider_lock_fence (
+    provider_id bigint not null,
+    token bigint not null,
+    primary key (provider_id)
+);
@@ -0,0 +1 @@
+create index idx_bookings_provider_start_end on bookings (provider_id, start_ts, end_ts);
@@ -0,0 +1,3 @@
+-- Cross-provider slot search reads every booking touching a time range;
+-- without a provider to seek on it range-scans start_ts.
+create index idx_bookings_start_end on bookings (start_ts, end_ts);
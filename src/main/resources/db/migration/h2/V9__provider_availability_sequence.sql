@@ -0,0 +1,5 @@
+-- pooled ids for provider_availability: Hibernate reads 50 ids per call and
+-- hands out the 50 up to the value it read, so the sequence starts 50 past
+-- the last existing id
+create sequence provider_availability_seq start with 50 increment by 50;
+alter sequence provider_availability_seq restart with (select coalesce(max(id), 0) + 50 from provider_availability);
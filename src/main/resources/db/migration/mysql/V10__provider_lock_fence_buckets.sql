@@ -0,0 +1,9 @@
+-- fencing tokens are checked per lock time bucket, not per provider; the
+-- old rows can go, every lease handed out from now on has a higher token
+drop table provider_lock_fence;
+create table provider_lock_fence (
+    provider_id bigint not null,
+    bucket bigint not null,
+    token bigint not null,
+    primary key (provider_id, bucket)
+) engine=InnoDB;
@@ -0,0 +1,37 @@
+-- Schema as Hibernate ddl-auto=update created it. Existing databases are
+-- baselined at this version and start from V2.
+create table users (
+    id bigint not null auto_increment,
+    name varchar(255) not null,
+    keycloak_id varchar(255) not null,
+    email varchar(255),
+    roles enum ('ADMIN','CLIENT','PROVIDER'),
+    created_at datetime(6),
+    primary key (id),
+    constraint UK366dgrd625s5659shyen79mmw unique (keycloak_id),
+    constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email)
+) engine=InnoDB;
+
+create table bookings (
+    id bigint not null auto_increment,
+    provider_id bigint,
+    customer_id bigint,
+    start_ts datetime(6),
+    end_ts datetime(6),
+    status enum ('CANCELLED','CONFIRMED','PENDING'),
+    created_at datetime(6),
+    updated_at datetime(6),
+    primary key (id),
+    constraint FKnuv5epx29ao9njgi1cosrcsjr foreign key (provider_id) references users (id),
+    constraint FKib6gjgj2e9binkktxmm175bmm foreign key (customer_id) references users (id)
+) engine=InnoDB;
+
+create table provider_availability (
+    id bigint not null auto_increment,
+    day_of_week integer not null,
+    start_time time(6),
+    end_time time(6),
+    provider_id bigint,
+    primary key (id),
+    constraint FKn4x0ac01ohbpcraevk9l4mf6b foreign key (provider_id) references users (id)
+) engine=InnoDB;
@@ -0,0 +1,6 @@
+-- may already exist where ddl-auto=update ran after fencing tokens shipped
+create table if not exists provider_lock_fence (
+    provider_id bigint not null,
+    token bigint not null,
+    primary key (provider_id)
+) engine=InnoDB;
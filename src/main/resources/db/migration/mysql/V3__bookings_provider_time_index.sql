@@ -0,0 +1,3 @@
+-- Conflict checks seek on provider_id and range-scan start_ts backwards;
+-- end_ts in the index lets the overlap test run without touching rows.
+create index idx_bookings_provider_start_end on bookings (provider_id, start_ts, end_ts);
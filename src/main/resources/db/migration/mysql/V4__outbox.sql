@@ -0,0 +1,22 @@
+-- events written in the same transaction as the change they describe,
+-- published and deleted by OutboxRelay. body is the encoded message (JSON
+-- or Avro) and content_type says which, so the relay publishes it as is.
+-- claimed_until marks rows handed to the publisher and waiting for a broker
+-- confirm; another relay may take them again once the claim has expired.
+-- aggregate_key is the entity an event is about (e.g. booking:42); unclaimed
+-- rows of the same key are coalesced while they wait out the coalescing window
+create table outbox (
+    id bigint not null auto_increment,
+    exchange_name varchar(255) not null,
+    routing_key varchar(255) not null,
+    type_id varchar(255) not null,
+    content_type varchar(100) not null default 'application/json',
+    body mediumblob not null,
+    created_at datetime(6) not null,
+    claimed_until datetime(6) null,
+    aggregate_key varchar(100) null,
+    primary key (id),
+    -- the relay's claim scan: unclaimed or expired rows, oldest first
+    index idx_outbox_claimed_until (claimed_until, id),
+    index idx_outbox_aggregate_key (aggregate_key)
+) engine=InnoDB;
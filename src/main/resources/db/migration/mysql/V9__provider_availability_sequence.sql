@@ -0,0 +1,8 @@
+-- pooled ids for provider_availability: Hibernate reads 50 ids per call and
+-- hands out the 50 up to the value it read, so the sequence starts 50 past
+-- the last existing id. MySQL has no sequences; Hibernate keeps the value
+-- in this one-row table instead
+create table provider_availability_seq (
+    next_val bigint
+) engine=InnoDB;
+insert into provider_availability_seq (next_val) select coalesce(max(id), 0) + 50 from provider_availability;
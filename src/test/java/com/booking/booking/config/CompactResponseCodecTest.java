@@ -0,0 +1,103 @@
+package com.booking.booking.config;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.booking.booking.DTO.BookingBatchResultDTO;
+import com.booking.booking.DTO.BookingsResponseDTO;
+import com.booking.booking.ENUMS.StatusENUM;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+public class CompactResponseCodecTest {
+
+    private final ObjectMapper mapper = new ObjectMapper()
+        .findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final CompactResponseCodec codec = new CompactResponseCodec(mapper);
+
+    private List<BookingBatchResultDTO> batchResponse(int size) {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 7, 9, 0);
+        List<BookingBatchResultDTO> results = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            results.add(new BookingBatchResultDTO(i, 201, new BookingsResponseDTO(
+                1000L + i, 1L, 2L, start.plusHours(i), start.plusHours(i).plusMinutes(30),
+                StatusENUM.PENDING, start, null), null));
+        }
+        return results;
+    }
+
+    @Test
+    void shouldReplayStatusHeadersAndSameJson() throws Exception {
+        List<BookingBatchResultDTO> body = batchResponse(3);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LOCATION, "/bookings/1000");
+        headers.add(HttpHeaders.CONTENT_LENGTH, "999");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        codec.replay(codec.encode(207, headers, body), response);
+
+        assertAll(
+            () -> assertEquals(207, response.getStatus()),
+            () -> assertEquals("/bookings/1000", response.getHeader(HttpHeaders.LOCATION)),
+            () -> assertEquals("application/json", response.getContentType()),
+            () -> assertEquals(mapper.readTree(mapper.writeValueAsString(body)),
+                               mapper.readTree(response.getContentAsString())));
+    }
+
+    @Test
+    void shouldStoreAtLeastFiveTimesLessThanJson() throws Exception {
+        List<BookingBatchResultDTO> body = batchResponse(200);
+        String previous = "201:" + mapper.writeValueAsString(body);
+
+        byte[] payload = codec.encode(201, new HttpHeaders(), body);
+
+        assertTrue(previous.length() >= 5 * payload.length,
+            "json " + previous.length() + " bytes, compact " + payload.length + " bytes");
+    }
+
+    @Test
+    void shouldReplayLargeBodiesInFullByDefault() throws Exception {
+        List<BookingBatchResultDTO> body = batchResponse(2000);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        codec.replay(codec.encode(201, new HttpHeaders(), body), response);
+
+        assertAll(
+            () -> assertTrue(mapper.writeValueAsBytes(body).length > 65536),
+            () -> assertEquals(201, response.getStatus()),
+            () -> assertNull(response.getHeader(CompactResponseCodec.DIGEST_HEADER)),
+            () -> assertEquals(mapper.readTree(mapper.writeValueAsString(body)),
+                               mapper.readTree(response.getContentAsString())));
+    }
+
+    @Test
+    void shouldAnswerConflictWhenOnlyTheDigestWasKept() throws Exception {
+        ReflectionTestUtils.setField(codec, "hashOnlyAboveBytes", 1024);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LOCATION, "/bookings/1000");
+
+        byte[] payload = codec.encode(201, headers, batchResponse(500));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        codec.replay(payload, response);
+
+        assertAll(
+            () -> assertTrue(payload.length < 128),
+            // never a success without the results the client is retrying for
+            () -> assertEquals(409, response.getStatus()),
+            () -> assertNull(response.getHeader(HttpHeaders.LOCATION)),
+            () -> assertTrue(response.getHeader(CompactResponseCodec.DIGEST_HEADER).startsWith("sha-256=")),
+            () -> assertTrue(response.getContentAsString().contains("status 201")));
+    }
+}
@@ -0,0 +1,124 @@
+package com.booking.booking.config;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import com.booking.booking.events.bookingEvents.BookingCreatedEvent;
+import com.booking.booking.events.bookingEvents.BookingDeletedEvent;
+import com.booking.booking.events.bookingEvents.BookingUpdatedEvent;
+import com.booking.booking.events.providerEvents.ProviderAvailabilityCreatedEvent;
+import com.booking.booking.events.providerEvents.ProviderAvailabilityDeletedEvent;
+import com.booking.booking.events.providerEvents.ProviderAvailabilityUpdatedEvent;
+import com.booking.booking.events.providerEvents.ProviderScheduleImportedEvent;
+import com.booking.booking.events.usersEvents.UsersCreatedEvent;
+import com.booking.booking.events.usersEvents.UsersDeletedEvent;
+import com.booking.booking.events.usersEvents.UsersUpdatedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+public class EventMessageConverterTest {
+
+    private static final LocalDateTime TS = LocalDateTime.of(2030, 1, 7, 9, 30, 15, 123_456_000);
+
+    private final ObjectMapper mapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final List<EventCodec> codecs = List.of(new JsonEventCodec(mapper), new AvroEventCodec(new EventSchemas()));
+
+    private final EventMessageConverter avro = new EventMessageConverter(codecs, "avro");
+    private final EventMessageConverter json = new EventMessageConverter(codecs, "json");
+
+    static List<Object> allEvents() {
+        return List.of(
+            BookingCreatedEvent.builder().id(1L).providerId(2L).customerId(3L).startsTs(TS).endTs(TS.plusHours(1)).eventTs(TS).build(),
+            BookingUpdatedEvent.builder().id(1L).providerId(2L).customerId(3L).startsTs(TS).endTs(TS.plusHours(2)).eventTs(TS).build(),
+            BookingDeletedEvent.builder().id(1L).providerId(2L).customerId(3L).startsTs(TS).endTs(TS.plusHours(2)).eventTs(TS).build(),
+            ProviderAvailabilityCreatedEvent.builder().id(4L).providerId(2L).day_of_week(1)
+                .start_time(LocalTime.of(9, 0)).end_time(LocalTime.of(17, 30)).eventTs(TS).build(),
+            ProviderAvailabilityUpdatedEvent.builder().id(4L).providerId(2L).day_of_week(7)
+                .start_time(LocalTime.of(8, 0)).end_time(LocalTime.of(12, 0)).eventTs(TS).build(),
+            ProviderAvailabilityDeletedEvent.builder().id(4L).providerId(2L).day_of_week(7)
+                .start_time(LocalTime.of(8, 0)).end_time(LocalTime.of(12, 0)).eventTs(TS).build(),
+            ProviderScheduleImportedEvent.builder().providerId(2L).eventTs(TS).windows(List.of(
+                ProviderScheduleImportedEvent.Window.builder().id(51L).day_of_week(1)
+                    .start_time(LocalTime.of(9, 0)).end_time(LocalTime.of(12, 0)).build(),
+                ProviderScheduleImportedEvent.Window.builder().id(52L).day_of_week(1)
+                    .start_time(LocalTime.of(13, 0)).end_time(LocalTime.of(18, 0)).build())).build(),
+            UsersCreatedEvent.builder().id(5L).name("Ana").email("ana@example.com").roles("[CUSTOMER]").createdAt(TS).eventTs(TS).build(),
+            UsersUpdatedEvent.builder().id(5L).name("Ana Lima").email("ana@example.com").roles("[CUSTOMER]").createdAt(TS).build(),
+            UsersDeletedEvent.builder().id(5L).eventTs(TS).build());
+    }
+
+    @Test
+    void shouldRoundTripEveryEventThroughAvro() {
+        for (Object event : allEvents()) {
+            Message message = avro.toMessage(event, new MessageProperties());
+
+            assertAll(
+                () -> assertEquals("application/avro", message.getMessageProperties().getContentType()),
+                () -> assertEquals(event, avro.fromMessage(message)));
+        }
+    }
+
+    @Test
+    void shouldWriteAvroAtLeastTwiceSmallerThanJson() {
+        for (Object event : allEvents()) {
+            int avroSize = avro.toMessage(event, new MessageProperties()).getBody().length;
+            int jsonSize = json.toMessage(event, new MessageProperties()).getBody().length;
+
+            assertTrue(avroSize * 2 <= jsonSize, event.getClass().getSimpleName() + ": " + avroSize + " vs " + jsonSize);
+        }
+    }
+
+    @Test
+    void shouldNeverPublishUserPassword() {
+        UsersCreatedEvent event = UsersCreatedEvent.builder().id(5L).name("Ana").password("secret").build();
+
+        UsersCreatedEvent read = (UsersCreatedEvent) avro.fromMessage(avro.toMessage(event, new MessageProperties()));
+
+        assertNull(read.getPassword());
+    }
+
+    @Test
+    void shouldReadJsonMessagesWhileWritingAvro() {
+        for (Object event : allEvents()) {
+            Message message = json.toMessage(event, new MessageProperties());
+
+            assertEquals(event, avro.fromMessage(message));
+        }
+    }
+
+    @Test
+    void shouldRefuseJsonTypesOutsideEventsPackage() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setHeader(EventMessageConverter.TYPE_ID_HEADER, "java.lang.ProcessBuilder");
+
+        assertThrows(MessageConversionException.class,
+            () -> json.fromMessage(new Message("{}".getBytes(StandardCharsets.UTF_8), properties)));
+    }
+
+    @Test
+    void shouldRejectUnknownSchemaFingerprint() {
+        byte[] body = avro.toMessage(allEvents().get(0), new MessageProperties()).getBody();
+        body[2] ^= 0x55;
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(AvroEventCodec.CONTENT_TYPE);
+
+        assertThrows(MessageConversionException.class, () -> avro.fromMessage(new Message(body, properties)));
+    }
+}
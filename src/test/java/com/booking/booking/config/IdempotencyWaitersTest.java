@@ -0,0 +1,171 @@
+package com.booking.booking.config;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.booking.booking.repositories.IdempotencyRepository;
+import com.booking.booking.repositories.IdempotencyRepository.Claim;
+import com.booking.booking.repositories.IdempotencyRepository.State;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class IdempotencyWaitersTest {
+
+    private IdempotencyRepository repo;
+    private CompactResponseCodec codec;
+    private IdempotencyWaiters waiters;
+
+    @BeforeEach
+    void setup() {
+        repo = mock(IdempotencyRepository.class);
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        codec = new CompactResponseCodec(mapper);
+        waiters = new IdempotencyWaiters(repo, mock(RedisMessageListenerContainer.class), mapper, codec);
+    }
+
+    private MockHttpServletRequest asyncRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/bookings/register");
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    private byte[] stored(int status, Object body) throws Exception {
+        return codec.encode(status, new HttpHeaders(), body);
+    }
+
+    @Test
+    void shouldAnswerAllDuplicatesWithOneReadWhenOriginalCompletes() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        MockHttpServletRequest firstRequest = asyncRequest();
+        MockHttpServletRequest secondRequest = asyncRequest();
+        when(repo.peek("abc")).thenReturn(
+            new Claim(State.IN_FLIGHT, null),
+            new Claim(State.IN_FLIGHT, null),
+            new Claim(State.COMPLETED, stored(201, Map.of("id", 7))));
+
+        waiters.park("abc", firstRequest, first);
+        waiters.park("abc", secondRequest, second);
+        assertAll(
+            () -> assertEquals(2, waiters.parkedCount("abc")),
+            () -> assertTrue(firstRequest.isAsyncStarted()));
+
+        waiters.onDone("abc");
+
+        assertAll(
+            () -> assertEquals(0, waiters.parkedCount("abc")),
+            () -> assertEquals(201, first.getStatus()),
+            () -> assertEquals("{\"id\":7}", first.getContentAsString()),
+            () -> assertEquals(201, second.getStatus()),
+            () -> assertEquals("{\"id\":7}", second.getContentAsString()),
+            () -> assertFalse(firstRequest.isAsyncStarted()));
+        verify(repo, times(3)).peek("abc");
+    }
+
+    @Test
+    void shouldNotParkWhenOriginalFinishedBeforeSubscribing() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(repo.peek("abc")).thenReturn(new Claim(State.COMPLETED, stored(200, Map.of())));
+
+        waiters.park("abc", asyncRequest(), response);
+
+        assertAll(
+            () -> assertEquals(0, waiters.parkedCount("abc")),
+            () -> assertEquals(200, response.getStatus()));
+    }
+
+    @Test
+    void shouldTellDuplicatesToRetryWhenOriginalFailed() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(repo.peek("abc")).thenReturn(new Claim(State.IN_FLIGHT, null), (Claim) null);
+
+        waiters.park("abc", asyncRequest(), response);
+        waiters.onDone("abc");
+
+        assertAll(
+            () -> assertEquals(409, response.getStatus()),
+            () -> assertTrue(response.getContentAsString().contains("Original request failed, retry")));
+    }
+
+    @Test
+    void shouldKeepWaitingWhenKeyWasClaimedAgain() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(repo.peek("abc")).thenReturn(new Claim(State.IN_FLIGHT, null));
+
+        waiters.park("abc", asyncRequest(), response);
+        waiters.onDone("abc");
+
+        assertEquals(1, waiters.parkedCount("abc"));
+    }
+
+    @Test
+    void shouldAnswerWhenTheNewerAttemptFinishesWhileWaitersAreReparked() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        // parked, the key is claimed again, and that attempt completes before the waiter is back on the map
+        when(repo.peek("abc")).thenReturn(
+            new Claim(State.IN_FLIGHT, null),
+            new Claim(State.IN_FLIGHT, null),
+            new Claim(State.COMPLETED, stored(201, Map.of("id", 8))));
+
+        waiters.park("abc", asyncRequest(), response);
+        waiters.onDone("abc");
+
+        assertAll(
+            () -> assertEquals(0, waiters.parkedCount("abc")),
+            () -> assertEquals(201, response.getStatus()),
+            () -> assertEquals("{\"id\":8}", response.getContentAsString()));
+    }
+
+    @Test
+    void shouldReadTheKeyOffThePubSubThread() throws Exception {
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        IdempotencyWaiters subscribed = new IdempotencyWaiters(repo, container, new ObjectMapper(), codec);
+        subscribed.subscribe();
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(container).addMessageListener(listener.capture(), any(Topic.class));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(repo.peek("abc")).thenReturn(new Claim(State.IN_FLIGHT, null));
+        subscribed.park("abc", asyncRequest(), response);
+
+        CompletableFuture<String> readOn = new CompletableFuture<>();
+        when(repo.peek("abc")).thenAnswer(call -> {
+            readOn.complete(Thread.currentThread().getName());
+            return new Claim(State.COMPLETED, stored(200, Map.of()));
+        });
+        try {
+            listener.getValue().onMessage(new DefaultMessage(
+                IdempotencyRepository.DONE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "abc".getBytes(StandardCharsets.UTF_8)), null);
+
+            assertAll(
+                () -> assertTrue(readOn.get(5, TimeUnit.SECONDS).startsWith("idempotency-waiters-")),
+                () -> assertNotEquals(Thread.currentThread().getName(), readOn.get()));
+        } finally {
+            subscribed.stop();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.booking.booking.config;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+
+import com.booking.booking.services.rabbitMQEvents.ProjectionDispatcher;
+
+public class RabbitMQConfigTest {
+
+    private static final Map<String, String> DLQS = Map.of("booking.created.queue", "booking.created.dlq");
+
+    private static Message message(String messageId) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(messageId);
+        properties.setConsumerQueue("booking.created.queue");
+        return new Message(new byte[0], properties);
+    }
+
+    private static Throwable failed(String messageId) {
+        return new ListenerExecutionFailedException("listener failed",
+            new ProjectionDispatcher.FailedMessagesException(Set.of(messageId), new IllegalStateException("poison")));
+    }
+
+    private static void confirmSends(RabbitTemplate template, boolean ack) {
+        doAnswer(invocation -> {
+            invocation.getArgument(3, CorrelationData.class).getFuture().complete(new CorrelationData.Confirm(ack, null));
+            return null;
+        }).when(template).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    void shouldDeadLetterOnlyTheFailedMessagesOfABatch() {
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        confirmSends(template, true);
+        Message poison = message("outbox-2");
+
+        RabbitMQConfig.recoverBatch(template, DLQS, 1000,
+            List.of(message("outbox-1"), poison, message("outbox-3")), failed("outbox-2"));
+
+        verify(template).send(eq(""), eq("booking.created.dlq"), eq(poison), any(CorrelationData.class));
+        verifyNoMoreInteractions(template);
+    }
+
+    @Test
+    void shouldRejectTheBatchWhenTheBrokerRefusesACopy() {
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        confirmSends(template, false);
+
+        assertThrows(AmqpRejectAndDontRequeueException.class, () -> RabbitMQConfig.recoverBatch(
+            template, DLQS, 1000, List.of(message("outbox-1")), failed("outbox-1")));
+    }
+
+    @Test
+    void shouldRejectTheWholeBatchWhenNoMessageIsNamed() {
+        RabbitTemplate template = mock(RabbitTemplate.class);
+
+        assertThrows(AmqpRejectAndDontRequeueException.class, () -> RabbitMQConfig.recoverBatch(
+            template, DLQS, 1000, List.of(message("outbox-1")), new IllegalStateException("cannot convert")));
+
+        verify(template, never()).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+}
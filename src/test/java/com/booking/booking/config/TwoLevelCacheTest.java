@@ -0,0 +1,70 @@
+package com.booking.booking.config;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+public class TwoLevelCacheTest {
+
+    private ConcurrentMapCache local;
+    private ConcurrentMapCache remote;
+    private List<String> published;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    void setup() {
+        local = new ConcurrentMapCache("local");
+        remote = new ConcurrentMapCache("remote");
+        published = new ArrayList<>();
+        cache = new TwoLevelCache("bookings", local, remote,
+            (name, key) -> published.add(name + "|" + key));
+    }
+
+    @Test
+    void shouldFillLocalTierFromRemoteHit() {
+        remote.put(1L, "booking-1");
+
+        assertEquals("booking-1", cache.get(1L, String.class));
+        remote.evict(1L);
+
+        assertAll(
+            () -> assertNotNull(local.get("1")),
+            () -> assertEquals("booking-1", cache.get(1L, String.class))
+        );
+    }
+
+    @Test
+    void shouldEvictOnlyTheKeyAndBroadcastIt() {
+        cache.put(1L, "booking-1");
+        cache.put(2L, "booking-2");
+
+        cache.evict(1L);
+
+        assertAll(
+            () -> assertNull(cache.get(1L)),
+            () -> assertEquals("booking-2", cache.get(2L, String.class)),
+            () -> assertEquals(List.of("bookings|1"), published)
+        );
+    }
+
+    @Test
+    void shouldDropOnlyLocalCopyOnRemoteInvalidation() {
+        cache.put(1L, "booking-1");
+
+        cache.evictLocal("1");
+
+        assertAll(
+            () -> assertNull(local.get("1")),
+            () -> assertNotNull(remote.get(1L)),
+            () -> assertEquals(List.of(), published)
+        );
+    }
+}
@@ -1,41 +1,20 @@
 package com.booking.booking.integration;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.assertThrows;
-import static org.junit.Assert.assertTrue;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
-
-import java.time.LocalTime;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.springframework.test.context.junit.jupiter.SpringExtension;
-import org.springframework.web.server.ResponseStatusException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.http.HttpStatus;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
-import org.testcontainers.utility.DockerImageName;
-
-import com.booking.booking.DTO.ProviderAvailabilityRequestDTO;
-import com.booking.booking.DTO.ProviderAvailabilityResponseDTO;
-import com.booking.booking.ENUMS.RolesENUM;
-import com.booking.booking.exceptions.ApiException;
-import com.booking.booking.models.Users;
-import com.booking.booking.repositories.ProviderAvailabilityRepository;
-import com.booking.booking.repositories.UsersRepository;
-import com.booking.booking.services.ProviderAvailabilityservices;
-import com.booking.booking.services.rabbitMQEvents.MessageProducerProvider;
+
+import com.booking.booking.repositories.IdempotencyRepository;
+import com.booking.booking.repositories.IdempotencyRepository.State;
 
 @SpringBootTest
 @Testcontainers
@@ -57,67 +36,37 @@ public class ProviderAvailabilityIdempotencyIT {
     }
 
     @Autowired
-    private ProviderAvailabilityservices service;
-
-    @Autowired
-    private ProviderAvailabilityRepository providerRepository;
-
-    @Autowired
-    private UsersRepository usersRepository;
-
-    @MockBean
-    private MessageProducerProvider messageProducerProvider;
-
-    @Autowired
-    private StringRedisTemplate redisTemplate;
+    private IdempotencyRepository idempotencyRepository;
 
     @Test
     void shouldBlockSecondRequestWithSameIdempotencyKey() {
 
-        // ===== GIVEN =====
-        Users user = usersRepository.save(
-            Users.builder()
-                .email("email@email.com")
-                .name("user1")
-                .keycloakId("keycloak-key-123")
-                .roles(RolesENUM.PROVIDER)
-                .build()
-        );
-
-        ProviderAvailabilityRequestDTO request =
-            new ProviderAvailabilityRequestDTO(
-                1,
-                LocalTime.of(9, 0),
-                LocalTime.of(18, 0),
-                user.getId()
-            );
-
         String idempotencyKey = "idem-integration-123";
 
-        // ===== WHEN =====
-        ProviderAvailabilityResponseDTO firstResponse =
-            service.saveProviderAvailability(request, idempotencyKey);
+        // ===== first request claims the key =====
+        assertEquals(State.CLAIMED, idempotencyRepository.claim(idempotencyKey).state());
 
-        // ===== THEN (1ª chamada ok) =====
-        assertNotNull(firstResponse.id());
-        assertEquals(1, providerRepository.count());
+        // ===== repeat while the first one runs =====
+        assertEquals(State.IN_FLIGHT, idempotencyRepository.claim(idempotencyKey).state());
 
-        verify(messageProducerProvider, times(1))
-            .sendProviderCreateEvent(any());
+        // ===== repeat after it finished gets the stored response =====
+        byte[] payload = {1, 0, (byte) 201, 0, 0, (byte) 0xff};
+        idempotencyRepository.complete(idempotencyKey, payload);
+        idempotencyRepository.release(idempotencyKey);
 
-       ResponseStatusException ex =
-        assertThrows(ResponseStatusException.class, () -> {
-            service.saveProviderAvailability(request, idempotencyKey);
-        });
+        IdempotencyRepository.Claim replay = idempotencyRepository.claim(idempotencyKey);
+        assertEquals(State.COMPLETED, replay.state());
+        assertArrayEquals(payload, replay.payload());
+    }
 
-        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
-        assertEquals("Request already processed", ex.getReason());
+    @Test
+    void shouldFreeKeyWhenRequestFails() {
 
-        assertEquals(1, providerRepository.count());
+        String idempotencyKey = "idem-integration-456";
 
-        verify(messageProducerProvider, times(1))
-            .sendProviderCreateEvent(any());
+        idempotencyRepository.claim(idempotencyKey);
+        idempotencyRepository.release(idempotencyKey);
 
-       
+        assertEquals(State.CLAIMED, idempotencyRepository.claim(idempotencyKey).state());
     }
 }
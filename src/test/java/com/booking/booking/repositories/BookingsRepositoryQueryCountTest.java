@@ -0,0 +1,126 @@
+package com.booking.booking.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.booking.booking.DTO.BookingsResponseDTO;
+import com.booking.booking.ENUMS.RolesENUM;
+import com.booking.booking.models.Bookings;
+import com.booking.booking.models.Users;
+
+/**
+ * Booking reads must cost a fixed number of statements however many rows
+ * they return, instead of one extra Users SELECT per provider/customer.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+public class BookingsRepositoryQueryCountTest {
+
+    @Autowired
+    private BookingsRepository bookingsRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+    private Users provider;
+
+    @BeforeEach
+    void setup() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 7, 9, 0);
+        provider = entityManager.persist(user("provider", RolesENUM.PROVIDER));
+        for (int i = 0; i < 20; i++) {
+            Users customer = entityManager.persist(user("customer" + i, RolesENUM.CLIENT));
+            entityManager.persist(Bookings.builder()
+                .provider(provider)
+                .customer(customer)
+                .startsTs(start.plusHours(i))
+                .endTs(start.plusHours(i).plusMinutes(30))
+                .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldLoadEntitiesWithoutFetchingUsers() {
+        List<Bookings> bookings = bookingsRepository.findAll();
+        bookings.forEach(b -> b.getCustomer().getId());
+
+        assertAll(
+            () -> assertEquals(20, bookings.size()),
+            () -> assertEquals(1, statistics.getPrepareStatementCount())
+        );
+    }
+
+    @Test
+    void shouldServeListEndpointsWithOneStatementEach() {
+        List<BookingsResponseDTO> page = bookingsRepository.findPageAfterId(0L, PageRequest.of(0, 50));
+        List<BookingsResponseDTO> providerPage = bookingsRepository.findProviderPage(provider.getId(), PageRequest.of(0, 50));
+        List<BookingsResponseDTO> providerBookings = bookingsRepository.findProviderBookings(provider.getId());
+        long streamed;
+        try (Stream<BookingsResponseDTO> stream = bookingsRepository.streamAll()) {
+            streamed = stream.count();
+        }
+
+        assertAll(
+            () -> assertEquals(20, page.size()),
+            () -> assertEquals(20, providerPage.size()),
+            () -> assertEquals(20, providerBookings.size()),
+            () -> assertEquals(20, streamed),
+            () -> assertEquals(4, statistics.getPrepareStatementCount()),
+            () -> assertEquals(0, statistics.getEntityLoadCount())
+        );
+    }
+
+    @Test
+    void shouldCheckConflictWithOneStatement() {
+        LocalDateTime nineThirty = LocalDateTime.of(2030, 1, 7, 9, 30);
+
+        assertAll(
+            () -> assertTrue(bookingsRepository.findConflictingId(
+                provider.getId(), nineThirty, nineThirty.plusMinutes(10), nineThirty.minusDays(7)).isPresent()),
+            () -> assertTrue(bookingsRepository.findConflictingId(
+                provider.getId(), nineThirty.plusMinutes(1), nineThirty.plusMinutes(20), nineThirty.minusDays(7)).isEmpty()),
+            () -> assertEquals(2, statistics.getPrepareStatementCount())
+        );
+    }
+
+    @Test
+    void shouldReadTheLongestStoredBookingWithOneStatement() {
+        // every seeded booking runs 30 minutes
+        assertAll(
+            () -> assertEquals(1800L, bookingsRepository.findLongestDurationSeconds()),
+            () -> assertEquals(1, statistics.getPrepareStatementCount())
+        );
+    }
+
+    private static Users user(String name, RolesENUM role) {
+        return Users.builder()
+            .name(name)
+            .keycloakId("kc-" + name)
+            .email(name + "@booking.com")
+            .roles(role)
+            .createdAt(LocalDateTime.now())
+            .build();
+    }
+}
@@ -0,0 +1,107 @@
+package com.booking.booking.repositories;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyRepositoryTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @InjectMocks
+    private IdempotencyRepository repository;
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scriptReturns(byte[] result) {
+        when(redisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+            anyList(), any(), any())).thenReturn(result);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldClaimFreeKeyInOneScriptCall() {
+        scriptReturns(null);
+
+        IdempotencyRepository.Claim claim = repository.claim("abc");
+
+        assertEquals(IdempotencyRepository.State.CLAIMED, claim.state());
+        ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+            eq(List.of("idempotency:abc")), args.capture(), args.capture());
+        assertArrayEquals(bytes("IN_FLIGHT"), (byte[]) args.getAllValues().get(0));
+        assertArrayEquals(bytes("30000"), (byte[]) args.getAllValues().get(1));
+        verifyNoMoreInteractions(redisTemplate);
+    }
+
+    @Test
+    void shouldReportInFlightWhileFirstRequestRuns() {
+        scriptReturns(bytes("IN_FLIGHT"));
+
+        assertEquals(IdempotencyRepository.State.IN_FLIGHT, repository.claim("abc").state());
+    }
+
+    @Test
+    void shouldReturnStoredPayloadForCompletedKey() {
+        byte[] payload = {1, 0, (byte) 201, 0, 0, 42};
+        scriptReturns(payload);
+
+        IdempotencyRepository.Claim claim = repository.claim("abc");
+
+        assertAll(
+            () -> assertEquals(IdempotencyRepository.State.COMPLETED, claim.state()),
+            () -> assertArrayEquals(payload, claim.payload()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStoreResponseAndNotifyWaitersInOneScriptCall() {
+        byte[] payload = {1, 2, 3};
+
+        repository.complete("abc", payload);
+        repository.release("abc");
+
+        ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+        verify(redisTemplate).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+            eq(List.of("idempotency:abc")), args.capture(), args.capture(), args.capture(), args.capture());
+        assertAll(
+            () -> assertSame(payload, args.getAllValues().get(0)),
+            () -> assertArrayEquals(bytes("86400000"), (byte[]) args.getAllValues().get(1)),
+            () -> assertArrayEquals(bytes("idempotency:done"), (byte[]) args.getAllValues().get(2)),
+            () -> assertArrayEquals(bytes("abc"), (byte[]) args.getAllValues().get(3)));
+        verify(redisTemplate).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+            eq(List.of("idempotency:abc")), any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPeekWithoutClaiming() {
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(null, bytes("IN_FLIGHT"));
+
+        assertNull(repository.peek("abc"));
+        assertEquals(IdempotencyRepository.State.IN_FLIGHT, repository.peek("abc").state());
+        verify(redisTemplate, never()).execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+            anyList(), any(), any());
+    }
+}
@@ -0,0 +1,123 @@
+package com.booking.booking.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.booking.booking.config.AvroEventCodec;
+import com.booking.booking.config.EventMessageConverter;
+import com.booking.booking.config.EventSchemas;
+import com.booking.booking.config.JsonEventCodec;
+import com.booking.booking.events.bookingEvents.BookingCreatedEvent;
+import com.booking.booking.repositories.OutboxRepository.OutboxMessage;
+import com.booking.booking.repositories.OutboxRepository.PendingMessage;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({OutboxRepository.class, EventMessageConverter.class, JsonEventCodec.class, AvroEventCodec.class, EventSchemas.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class OutboxRepositoryTest {
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    private BookingCreatedEvent event(long id) {
+        return BookingCreatedEvent.builder()
+            .id(id)
+            .providerId(1L)
+            .customerId(2L)
+            .startsTs(LocalDateTime.of(2030, 1, 7, 9, 0))
+            .endTs(LocalDateTime.of(2030, 1, 7, 10, 0))
+            .eventTs(LocalDateTime.of(2030, 1, 1, 0, 0))
+            .build();
+    }
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Test
+    void shouldClaimOldestMessagesInOrderAndDeleteOnlyThoseGiven() {
+        outboxRepository.append("booking-exchange", "booking.created", event(1));
+        outboxRepository.appendAll("booking-exchange", "booking.created", List.of(event(2), event(3)));
+
+        List<OutboxMessage> oldest = outboxRepository.claimOldest(2, NOW, NOW.plusSeconds(30), NOW);
+        assertAll(
+            () -> assertEquals(2, oldest.size()),
+            () -> assertTrue(oldest.get(0).id() < oldest.get(1).id()),
+            () -> assertEquals("booking-exchange", oldest.get(0).exchange()),
+            () -> assertEquals("booking.created", oldest.get(0).routingKey()),
+            () -> assertEquals(BookingCreatedEvent.class.getName(), oldest.get(0).typeId()),
+            () -> assertEquals("application/json", oldest.get(0).contentType()),
+            () -> assertTrue(new String(oldest.get(0).body(), StandardCharsets.UTF_8).contains("\"id\":1")));
+
+        outboxRepository.deleteAll(oldest.stream().map(OutboxMessage::id).toList());
+
+        List<OutboxMessage> rest = outboxRepository.claimOldest(10, NOW, NOW.plusSeconds(30), NOW);
+        assertEquals(1, rest.size());
+        assertTrue(new String(rest.get(0).body(), StandardCharsets.UTF_8).contains("\"id\":3"));
+    }
+
+    @Test
+    void shouldSkipLiveClaimsUntilReleasedOrExpired() {
+        outboxRepository.appendAll("booking-exchange", "booking.created", List.of(event(1), event(2)));
+
+        List<OutboxMessage> first = outboxRepository.claimOldest(1, NOW, NOW.plusSeconds(30), NOW);
+        List<OutboxMessage> second = outboxRepository.claimOldest(10, NOW, NOW.plusSeconds(30), NOW);
+        assertAll(
+            () -> assertEquals(1, second.size()),
+            () -> assertTrue(new String(second.get(0).body(), StandardCharsets.UTF_8).contains("\"id\":2")),
+            () -> assertTrue(outboxRepository.claimOldest(10, NOW, NOW.plusSeconds(30), NOW).isEmpty()));
+
+        outboxRepository.releaseAll(List.of(first.get(0).id()));
+        List<OutboxMessage> released = outboxRepository.claimOldest(10, NOW, NOW.plusSeconds(30), NOW);
+        assertEquals(List.of(first.get(0).id()), released.stream().map(OutboxMessage::id).toList());
+
+        // both claims have run out a minute later
+        assertEquals(2, outboxRepository.claimOldest(10, NOW.plusMinutes(1), NOW.plusMinutes(2), NOW.plusMinutes(1)).size());
+    }
+
+    @Test
+    void shouldHoldKeyedMessagesForTheWindowAndListOnlyUnclaimedOnesAsPending() {
+        LocalDateTime written = LocalDateTime.of(2030, 1, 1, 11, 59, 59);
+        outboxRepository.append("booking-exchange", "booking.created", "booking:1", written, event(1));
+        outboxRepository.append("booking-exchange", "booking.updated", "booking:1", written, event(1));
+        outboxRepository.append("booking-exchange", "booking.created", event(2));
+
+        List<OutboxMessage> beforeWindow = outboxRepository.claimOldest(10, NOW, NOW.plusSeconds(30), written.minusNanos(1));
+        assertAll(
+            () -> assertEquals(1, beforeWindow.size()),
+            () -> assertTrue(new String(beforeWindow.get(0).body(), StandardCharsets.UTF_8).contains("\"id\":2")));
+
+        List<PendingMessage> pending = outboxRepository.lockPending("booking:1");
+        assertAll(
+            () -> assertEquals(List.of("booking.created", "booking.updated"),
+                pending.stream().map(PendingMessage::routingKey).toList()),
+            () -> assertEquals(written, pending.get(0).createdAt()),
+            () -> assertTrue(outboxRepository.lockPending("booking:2").isEmpty()));
+
+        assertEquals(2, outboxRepository.claimOldest(10, NOW, NOW.plusSeconds(30), written).size());
+        assertTrue(outboxRepository.lockPending("booking:1").isEmpty());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void shouldRefuseAppendOutsideTransaction() {
+        assertThrows(IllegalTransactionStateException.class,
+            () -> outboxRepository.append("booking-exchange", "booking.created", event(1)));
+    }
+}
@@ -0,0 +1,82 @@
+package com.booking.booking.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.booking.booking.repositories.ProjectionRepository.Projected;
+
+@ExtendWith(MockitoExtension.class)
+public class ProjectionRepositoryTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @InjectMocks
+    private ProjectionRepository repository;
+
+    private final Projected booking = new Projected("projection:booking:1", "projection:calendar:5", "1", 100,
+        Map.of("providerId", "5"));
+
+    @BeforeEach
+    void setup() {
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldDeclareDocumentAndBothIndexesInTheScriptCall() {
+        when(hashOperations.get("projection:booking:1", "index")).thenReturn("projection:calendar:4");
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+
+        assertTrue(repository.put(booking, 10));
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class),
+            eq(List.of("projection:booking:1", "projection:calendar:5", "projection:calendar:4")), args.capture());
+        List<Object> values = List.of(args.getValue());
+        assertEquals(List.of("10", "1", "100.0", "0", "604800", "projection:calendar:5", "projection:calendar:4",
+            "providerId", "5"), values);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReportStaleVersionAsNotWritten() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+
+        assertFalse(repository.put(booking, 3));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReReadIndexWhenDocumentMovedMeanwhile() {
+        when(hashOperations.get("projection:booking:1", "index")).thenReturn(null, "projection:calendar:9");
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(-1L, 1L);
+
+        assertTrue(repository.remove("projection:booking:1", "1", 11));
+
+        verify(redisTemplate).execute(any(RedisScript.class),
+            eq(List.of("projection:booking:1", "projection:booking:1", "projection:calendar:9")), any(Object[].class));
+    }
+}
@@ -0,0 +1,84 @@
+package com.booking.booking.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.booking.booking.DTO.AvailabilityWindowDTO;
+import com.booking.booking.ENUMS.RolesENUM;
+import com.booking.booking.models.ProviderAvailability;
+import com.booking.booking.models.Users;
+
+/**
+ * Bulk imports take their ids from the pooled sequence: a handful of
+ * sequence reads per import and inserts sent in JDBC batches, instead of
+ * one identity insert round trip per window.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+public class ProviderAvailabilityImportRepositoryTest {
+
+    @Autowired
+    private ProviderAvailabilityRepository providerAvailabilityRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void shouldInsertImportedWindowsInBatches() {
+        Users provider = entityManager.persist(Users.builder()
+            .name("provider")
+            .keycloakId("kc-provider")
+            .email("provider@booking.com")
+            .roles(RolesENUM.PROVIDER)
+            .createdAt(LocalDateTime.now())
+            .build());
+        ProviderAvailability first = providerAvailabilityRepository.saveAndFlush(window(provider, 1, 0));
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ProviderAvailability> windows = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            windows.add(window(entityManager.getEntityManager().getReference(Users.class, provider.getId()),
+                i % 7 + 1, i / 7 + 1));
+        }
+        List<ProviderAvailability> saved = providerAvailabilityRepository.saveAll(windows);
+        entityManager.flush();
+
+        List<AvailabilityWindowDTO> stored = providerAvailabilityRepository.findWindowsOfProviders(List.of(provider.getId()));
+        assertAll(
+            () -> assertEquals(121, stored.size()),
+            () -> assertTrue(saved.stream().allMatch(window -> window.getId() > first.getId())),
+            () -> assertEquals(120, saved.stream().map(ProviderAvailability::getId).distinct().count()),
+            // 120 inserts, 50 per batch
+            () -> assertEquals(120, statistics.getEntityInsertCount()),
+            () -> assertTrue(statistics.getPrepareStatementCount() <= 6,
+                statistics.getPrepareStatementCount() + " statements"));
+    }
+
+    // one hour starting at hour on dayOfWeek
+    private static ProviderAvailability window(Users provider, int dayOfWeek, int hour) {
+        return ProviderAvailability.builder()
+            .provider(provider)
+            .day_of_week(dayOfWeek)
+            .start_time(LocalTime.of(hour, 0))
+            .end_time(LocalTime.of(hour + 1, 0))
+            .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.booking.booking.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ProviderLockFenceRepository.class)
+public class ProviderLockFenceRepositoryTest {
+
+    @Autowired
+    private ProviderLockFenceRepository fenceRepository;
+
+    @Test
+    void shouldFenceOnlyWritersSharingABucket() {
+        // token 6 writes bucket 10 first, then the older token 5 on bucket 11
+        boolean newerFirst = fenceRepository.advance(1L, List.of(10L), 6L);
+        boolean olderElsewhere = fenceRepository.advance(1L, List.of(11L), 5L);
+        boolean olderOnSharedBucket = fenceRepository.advance(1L, List.of(11L, 10L), 5L);
+        boolean otherProvider = fenceRepository.advance(2L, List.of(10L), 1L);
+        boolean newest = fenceRepository.advance(1L, List.of(10L, 11L), 7L);
+        boolean afterNewest = fenceRepository.advance(1L, List.of(11L), 6L);
+
+        assertAll(
+            () -> assertTrue(newerFirst),
+            () -> assertTrue(olderElsewhere),
+            () -> assertFalse(olderOnSharedBucket),
+            () -> assertTrue(otherProvider),
+            () -> assertTrue(newest),
+            () -> assertFalse(afterNewest));
+    }
+}
@@ -0,0 +1,99 @@
+package com.booking.booking.services;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.booking.booking.config.CacheConfig;
+import com.booking.booking.models.ProviderAvailability;
+import com.booking.booking.repositories.ProviderAvailabilityRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class AvailabilityBitmapsTest {
+
+    // a Monday
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 7);
+
+    @Mock
+    private ProviderAvailabilityRepository providerAvailabilityRepository;
+
+    @InjectMocks
+    private AvailabilityBitmaps bitmaps;
+
+    @BeforeEach
+    void setup() {
+        CacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.PROVIDER_AVAILABILITY);
+        ReflectionTestUtils.setField(bitmaps, "cacheManager", cacheManager);
+    }
+
+    private static ProviderAvailability window(int dayOfWeek, LocalTime from, LocalTime to) {
+        return ProviderAvailability.builder()
+            .day_of_week(dayOfWeek)
+            .start_time(from)
+            .end_time(to)
+            .build();
+    }
+
+    @Test
+    void shouldAnswerFromTheCachedBitmapWithoutQueries() {
+        when(providerAvailabilityRepository.findByProviderId(1L))
+            .thenReturn(List.of(window(1, LocalTime.of(9, 0), LocalTime.of(17, 0))));
+        LocalDateTime nine = MONDAY.atTime(9, 0);
+
+        int allowed = 0;
+        for (int i = 0; i < 480; i++) {
+            if (bitmaps.allows(1L, nine.plusMinutes(i), nine.plusMinutes(i + 30))) {
+                allowed++;
+            }
+        }
+
+        // 9:00 to 16:30 starts fit a half hour before 17:00
+        int expectedAllowed = allowed;
+        assertAll(
+            () -> assertEquals(451, expectedAllowed),
+            () -> assertFalse(bitmaps.allows(1L, MONDAY.atTime(16, 45), MONDAY.atTime(17, 15))));
+        verify(providerAvailabilityRepository, times(1)).findByProviderId(1L);
+    }
+
+    @Test
+    void shouldFallBackToTheRowsForWindowsOffTheGrid() {
+        when(providerAvailabilityRepository.findByProviderId(1L))
+            .thenReturn(List.of(window(1, LocalTime.of(9, 2), LocalTime.of(10, 0))));
+
+        assertAll(
+            () -> assertTrue(bitmaps.allows(1L, MONDAY.atTime(9, 10), MONDAY.atTime(9, 40))),
+            () -> assertTrue(bitmaps.allows(1L, MONDAY.atTime(9, 3), MONDAY.atTime(9, 40))),
+            () -> assertFalse(bitmaps.allows(1L, MONDAY.atTime(9, 1), MONDAY.atTime(9, 40))));
+        // one load for the bitmap, one per check the bitmap couldn't settle
+        verify(providerAvailabilityRepository, times(3)).findByProviderId(1L);
+    }
+
+    @Test
+    void shouldAllowAnyTimeForProvidersWithoutWindows() {
+        when(providerAvailabilityRepository.findByProviderId(1L)).thenReturn(List.of());
+
+        assertAll(
+            () -> assertTrue(bitmaps.allows(1L, MONDAY.atTime(3, 0), MONDAY.atTime(4, 0))),
+            () -> assertFalse(bitmaps.get(1L).hasWorkingTime()));
+        verify(providerAvailabilityRepository, times(1)).findByProviderId(1L);
+    }
+}
@@ -0,0 +1,169 @@
+package com.booking.booking.services;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.booking.booking.DTO.AvailabilityImportResultDTO;
+import com.booking.booking.DTO.AvailabilityWindowDTO;
+import com.booking.booking.DTO.ProviderAvailabilityRequestDTO;
+import com.booking.booking.events.providerEvents.ProviderScheduleImportedEvent;
+import com.booking.booking.exceptions.ApiException;
+import com.booking.booking.models.ProviderAvailability;
+import com.booking.booking.models.Users;
+import com.booking.booking.repositories.ProviderAvailabilityRepository;
+import com.booking.booking.repositories.UsersRepository;
+import com.booking.booking.services.rabbitMQEvents.MessageProducerProvider;
+
+@ExtendWith(MockitoExtension.class)
+public class AvailabilityImporterTest {
+
+    @Mock
+    private ProviderAvailabilityRepository providerRepository;
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @Mock
+    private KnownUserIds knownUserIds;
+
+    @Mock
+    private MessageProducerProvider messageProducerProvider;
+
+    @Mock
+    private AvailabilityBitmaps availabilityBitmaps;
+
+    @InjectMocks
+    private AvailabilityImporter importer;
+
+    private static ProviderAvailabilityRequestDTO row(long providerId, int dayOfWeek, int fromHour, int toHour) {
+        return new ProviderAvailabilityRequestDTO(dayOfWeek, LocalTime.of(fromHour, 0), LocalTime.of(toHour, 0), providerId);
+    }
+
+    private static AvailabilityWindowDTO window(int dayOfWeek, int fromHour, int toHour) {
+        return new AvailabilityWindowDTO(1L, dayOfWeek, LocalTime.of(fromHour, 0), LocalTime.of(toHour, 0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldImportValidSchedulesAndRejectTheRestPerProvider() {
+        when(knownUserIds.filterKnown(any())).thenReturn(Set.of(1L, 2L, 3L, 4L));
+        when(providerRepository.findWindowsOfProviders(any())).thenReturn(List.of(
+            new AvailabilityWindowDTO(3L, 2, LocalTime.of(9, 0), LocalTime.of(12, 0))));
+        when(usersRepository.getReferenceById(any())).thenAnswer(call -> Users.builder().id(call.getArgument(0)).build());
+        when(providerRepository.saveAll(anyList())).thenAnswer(call -> {
+            List<ProviderAvailability> windows = call.getArgument(0);
+            long id = 100;
+            for (ProviderAvailability window : windows) {
+                window.setId(id++);
+            }
+            return windows;
+        });
+
+        List<AvailabilityImportResultDTO> results = importer.importWindows(List.of(
+            row(1, 1, 9, 12), row(1, 1, 12, 18), row(1, 2, 9, 18),
+            // overlaps its existing Tuesday window
+            row(3, 2, 11, 13),
+            row(4, 8, 9, 12),
+            row(9, 1, 9, 12),
+            row(2, 7, 22, 2)));
+
+        ArgumentCaptor<List<ProviderScheduleImportedEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(messageProducerProvider).sendProviderScheduleImportedEvents(events.capture());
+        verify(availabilityBitmaps).rebuildAfterCommit(1L, 2L);
+        assertAll(
+            () -> assertEquals(List.of(
+                new AvailabilityImportResultDTO(1L, 201, 3, null),
+                new AvailabilityImportResultDTO(3L, 409, 0, "AVAILABILITY WINDOWS OVERLAP"),
+                new AvailabilityImportResultDTO(4L, 400, 0, "INVALID AVAILABILITY WINDOW"),
+                new AvailabilityImportResultDTO(9L, 404, 0, "PROVIDER NOT FOUND"),
+                new AvailabilityImportResultDTO(2L, 201, 1, null)), results),
+            () -> assertEquals(2, events.getValue().size()),
+            () -> assertEquals(1L, events.getValue().get(0).getProviderId()),
+            () -> assertEquals(List.of(100L, 101L, 102L),
+                events.getValue().get(0).getWindows().stream().map(ProviderScheduleImportedEvent.Window::getId).toList()),
+            () -> assertEquals(103L, events.getValue().get(1).getWindows().get(0).getId()));
+    }
+
+    @Test
+    void shouldWriteNothingWhenNoProviderPasses() {
+        when(knownUserIds.filterKnown(any())).thenReturn(Set.of(1L));
+        when(providerRepository.findWindowsOfProviders(any())).thenReturn(List.of());
+
+        List<AvailabilityImportResultDTO> results = importer.importWindows(List.of(row(1, 3, 9, 12), row(1, 3, 10, 11)));
+
+        verify(providerRepository, never()).saveAll(anyList());
+        verify(messageProducerProvider, never()).sendProviderScheduleImportedEvents(any());
+        assertEquals(List.of(new AvailabilityImportResultDTO(1L, 409, 0, "AVAILABILITY WINDOWS OVERLAP")), results);
+    }
+
+    @Test
+    void shouldRejectEmptyAndOversizedImports() {
+        List<ProviderAvailabilityRequestDTO> tooMany = new ArrayList<>();
+        for (int i = 0; i < 10_001; i++) {
+            tooMany.add(row(1, 1, 9, 10));
+        }
+
+        ApiException empty = assertThrows(ApiException.class, () -> importer.importWindows(List.of()));
+        ApiException tooLarge = assertThrows(ApiException.class, () -> importer.importWindows(tooMany));
+
+        assertAll(
+            () -> assertEquals("AVAILABILITY IMPORT IS EMPTY", empty.getMessage()),
+            () -> assertEquals("AVAILABILITY IMPORT TOO LARGE", tooLarge.getMessage()));
+    }
+
+    @Test
+    void shouldTellOverlapsFromBackToBackAndOvernightWindows() {
+        assertAll(
+            () -> assertFalse(AvailabilityImporter.overlaps(List.of(window(1, 9, 12), window(1, 12, 15), window(2, 9, 12)))),
+            () -> assertTrue(AvailabilityImporter.overlaps(List.of(window(1, 9, 12), window(1, 11, 15)))),
+            // Monday 22:00 to 02:00 runs into Tuesday morning
+            () -> assertTrue(AvailabilityImporter.overlaps(List.of(window(1, 22, 2), window(2, 1, 5)))),
+            () -> assertFalse(AvailabilityImporter.overlaps(List.of(window(1, 22, 2), window(2, 2, 5)))),
+            // and Sunday night into Monday
+            () -> assertTrue(AvailabilityImporter.overlaps(List.of(window(7, 23, 1), window(1, 0, 3)))));
+    }
+
+    @Test
+    void shouldReadCsvWithOrWithoutHeader() throws Exception {
+        String csv = """
+            providerId,dayOfWeek,startTime,endTime
+            1,1,09:00,12:00
+
+            # afternoons
+            2, 3, 13:30:00, 18:00
+            """;
+
+        List<ProviderAvailabilityRequestDTO> rows = importer.readCsv(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        ApiException malformed = assertThrows(ApiException.class, () -> importer.readCsv(
+            new ByteArrayInputStream("1,1,9am,12:00\n".getBytes(StandardCharsets.UTF_8))));
+
+        assertAll(
+            () -> assertEquals(List.of(
+                row(1, 1, 9, 12),
+                new ProviderAvailabilityRequestDTO(3, LocalTime.of(13, 30), LocalTime.of(18, 0), 2L)), rows),
+            () -> assertEquals("INVALID AVAILABILITY CSV", malformed.getMessage()));
+    }
+}
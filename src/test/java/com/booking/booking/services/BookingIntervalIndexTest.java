@@ -0,0 +1,102 @@
+package com.booking.booking.services;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.repositories.BookingsRepository;
+import com.booking.booking.services.BookingIntervalIndex.Answer;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingIntervalIndexTest {
+
+    @Mock
+    private BookingsRepository repository;
+
+    @InjectMocks
+    private BookingIntervalIndex index;
+
+    private final LocalDateTime base = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+
+    @Test
+    void shouldAnswerUnknownBeforeWarmUp() {
+        assertEquals(Answer.UNKNOWN, index.check(1L, base, base.plusHours(1)));
+    }
+
+    @Test
+    void shouldDetectOverlapsWithWarmedBookings() {
+        when(repository.findSlotsEndingAfter(any())).thenReturn(List.of(
+            new BookingSlotDTO(1L, 1L, base, base.plusHours(1)),
+            new BookingSlotDTO(2L, 1L, base.plusHours(3), base.plusHours(4))));
+
+        index.warmUp();
+
+        assertAll(
+            () -> assertEquals(Answer.CONFLICT, index.check(1L, base.plusMinutes(30), base.plusMinutes(90))),
+            () -> assertEquals(Answer.CONFLICT, index.check(1L, base.plusHours(1), base.plusHours(2))),
+            () -> assertEquals(Answer.CONFLICT, index.check(1L, base.minusHours(1), base.plusHours(5))),
+            () -> assertEquals(Answer.FREE, index.check(1L, base.plusMinutes(61), base.plusMinutes(179))),
+            () -> assertEquals(Answer.FREE, index.check(2L, base, base.plusHours(1))),
+            () -> assertEquals(Answer.UNKNOWN, index.check(1L, LocalDateTime.now().minusDays(1), base))
+        );
+    }
+
+    @Test
+    void shouldFollowUpdatesAndDeletes() {
+        when(repository.findSlotsEndingAfter(any())).thenReturn(List.of());
+        index.warmUp();
+
+        index.put(new BookingSlotDTO(1L, 1L, base, base.plusHours(1)));
+        assertEquals(Answer.CONFLICT, index.check(1L, base, base.plusMinutes(10)));
+
+        index.put(new BookingSlotDTO(1L, 2L, base.plusHours(2), base.plusHours(3)));
+        assertAll(
+            () -> assertEquals(Answer.FREE, index.check(1L, base, base.plusMinutes(10))),
+            () -> assertEquals(Answer.CONFLICT, index.check(2L, base.plusHours(2), base.plusHours(2)))
+        );
+
+        index.remove(1L);
+        assertEquals(Answer.FREE, index.check(2L, base.plusHours(2), base.plusHours(3)));
+    }
+
+    @Test
+    void shouldFindLongBookingStartingWellBeforeQuery() {
+        when(repository.findSlotsEndingAfter(any())).thenReturn(List.of());
+        index.warmUp();
+
+        index.put(new BookingSlotDTO(1L, 1L, base, base.plusDays(2)));
+        index.put(new BookingSlotDTO(2L, 1L, base.plusDays(1), base.plusDays(1).plusHours(1)));
+
+        assertEquals(Answer.CONFLICT, index.check(1L, base.plusDays(1).plusHours(5), base.plusDays(1).plusHours(6)));
+    }
+
+    @Test
+    void shouldKeepBookingsWrittenWhileWarmingUp() {
+        when(repository.findSlotsEndingAfter(any())).thenAnswer(call -> {
+            // booking 1 moves to the afternoon and 2 is deleted while the query runs
+            index.put(new BookingSlotDTO(1L, 1L, base.plusHours(5), base.plusHours(6)));
+            index.remove(2L);
+            return List.of(
+                new BookingSlotDTO(1L, 1L, base, base.plusHours(1)),
+                new BookingSlotDTO(2L, 1L, base.plusHours(2), base.plusHours(3)));
+        });
+
+        index.warmUp();
+
+        assertAll(
+            () -> assertEquals(Answer.FREE, index.check(1L, base, base.plusHours(1))),
+            () -> assertEquals(Answer.FREE, index.check(1L, base.plusHours(2), base.plusHours(3))),
+            () -> assertEquals(Answer.CONFLICT, index.check(1L, base.plusHours(5), base.plusHours(6))));
+    }
+}
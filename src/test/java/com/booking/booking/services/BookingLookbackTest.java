@@ -0,0 +1,51 @@
+package com.booking.booking.services;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.booking.booking.repositories.BookingsRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class BookingLookbackTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+    @Mock
+    private BookingsRepository bookingsRepository;
+
+    @InjectMocks
+    private BookingLookback lookback;
+
+    @Test
+    void shouldLookBackPastTheCapWhenLongerBookingsAreStored() {
+        // 200 hours and a second, stored before the 168 h cap
+        when(bookingsRepository.findLongestDurationSeconds()).thenReturn(200 * 3600L + 1);
+
+        lookback.load();
+
+        assertEquals(NINE.minusHours(201), lookback.earliestStart(NINE));
+    }
+
+    @Test
+    void shouldKeepTheCapForShorterOrNoBookings() {
+        when(bookingsRepository.findLongestDurationSeconds()).thenReturn(null, 3600L);
+
+        lookback.load();
+        LocalDateTime empty = lookback.earliestStart(NINE);
+        lookback.load();
+        LocalDateTime shortOnes = lookback.earliestStart(NINE);
+
+        assertAll(
+            () -> assertEquals(NINE.minusHours(168), empty),
+            () -> assertEquals(NINE.minusHours(168), shortOnes));
+    }
+}
@@ -0,0 +1,174 @@
+package com.booking.booking.services;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.booking.booking.exceptions.ApiException;
+
+public class BookingWriteEngineTest {
+
+    private BookingWriteEngine engine;
+
+    @BeforeEach
+    void setup() {
+        engine = new BookingWriteEngine();
+        ReflectionTestUtils.setField(engine, "partitions", 4);
+        ReflectionTestUtils.setField(engine, "virtualNodes", 64);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 10_000);
+        ReflectionTestUtils.setField(engine, "timeoutMs", 5_000L);
+        engine.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    void shouldRouteProviderToStablePartition() {
+        int partition = engine.partitionFor(42L);
+
+        assertAll(
+            () -> assertEquals(4, engine.partitionCount()),
+            () -> assertEquals(partition, engine.partitionFor(42L)),
+            () -> assertTrue(partition >= 0 && partition < 4)
+        );
+    }
+
+    @Test
+    void shouldSerializeWritesForSameProvider() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> engine.execute(7L, () -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                inFlight.decrementAndGet();
+                return 1;
+            }), callers));
+        }
+        int total = 0;
+        for (CompletableFuture<Integer> call : calls) {
+            total += call.get();
+        }
+        callers.shutdown();
+
+        assertEquals(200, total);
+        assertEquals(1, maxInFlight.get());
+    }
+
+    @Test
+    void shouldPropagateApiExceptionFromAction() {
+        ApiException exception = assertThrows(ApiException.class, () ->
+            engine.execute(1L, () -> {
+                throw new ApiException("THIS TIME SLOT IS ALREADY BOOKED", HttpStatus.CONFLICT);
+            }));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    }
+
+    @Test
+    void shouldRunNestedCallForSamePartitionInline() {
+        String result = engine.execute(3L, () -> engine.execute(3L, () -> "OK"));
+
+        assertEquals("OK", result);
+    }
+
+    @Test
+    void shouldWaitForAStartedWriteInsteadOfTimingOut() throws Exception {
+        ReflectionTestUtils.setField(engine, "timeoutMs", 50L);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+
+        // the first write outlives the timeout once running: its caller gets its result
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> engine.execute(7L, () -> {
+            started.countDown();
+            sleep(300);
+            return "COMMITTED";
+        }));
+        started.await();
+        // the second one never leaves the queue in time: 503 and it never runs
+        ApiException timeout = assertThrows(ApiException.class, () -> engine.execute(7L, () -> ran.incrementAndGet()));
+
+        assertAll(
+            () -> assertEquals("COMMITTED", slow.get()),
+            () -> assertEquals("BOOKING ENGINE TIMEOUT", timeout.getMessage()),
+            () -> assertEquals(0, engine.execute(7L, ran::get)));
+    }
+
+    @Test
+    void shouldSerializeAMoveWithBothProvidersWrites() throws Exception {
+        long[] providers = twoProvidersOnDifferentPartitions();
+        AtomicInteger[] inFlight = { new AtomicInteger(), new AtomicInteger() };
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int from = i % 2;
+            boolean move = i % 3 == 0;
+            // a move touches both providers, a plain write only its own
+            Supplier<Integer> write = () -> {
+                for (int p = 0; p < 2; p++) {
+                    if (move || p == from) {
+                        maxInFlight.accumulateAndGet(inFlight[p].incrementAndGet(), Math::max);
+                    }
+                }
+                for (int p = 0; p < 2; p++) {
+                    if (move || p == from) {
+                        inFlight[p].decrementAndGet();
+                    }
+                }
+                return 1;
+            };
+            // moves go both ways, which would deadlock without a fixed order
+            calls.add(CompletableFuture.supplyAsync(() -> move
+                ? engine.execute(providers[from], providers[1 - from], write)
+                : engine.execute(providers[from], write), callers));
+        }
+        int total = 0;
+        for (CompletableFuture<Integer> call : calls) {
+            total += call.get(10, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+
+        assertEquals(300, total);
+        assertEquals(1, maxInFlight.get());
+    }
+
+    private long[] twoProvidersOnDifferentPartitions() {
+        for (long other = 2; ; other++) {
+            if (engine.partitionFor(other) != engine.partitionFor(1L)) {
+                return new long[] { 1L, other };
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
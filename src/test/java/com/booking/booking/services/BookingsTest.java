@@ -2,43 +2,74 @@ package com.booking.booking.services;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.function.Executable;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.HttpStatus;
-
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booking.booking.DTO.BookingBatchResultDTO;
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.DTO.BookingsPageDTO;
 import com.booking.booking.DTO.BookingsRequestDTO;
 import com.booking.booking.DTO.BookingsResponseDTO;
 import com.booking.booking.ENUMS.RolesENUM;
+import com.booking.booking.config.CacheConfig;
 import com.booking.booking.events.bookingEvents.BookingCreatedEvent;
 import com.booking.booking.events.bookingEvents.BookingDeletedEvent;
 import com.booking.booking.events.bookingEvents.BookingUpdatedEvent;
 import com.booking.booking.exceptions.ApiException;
 import com.booking.booking.models.Bookings;
 import com.booking.booking.models.Users;
+import com.booking.booking.repositories.BookingsBatchRepository;
 import com.booking.booking.repositories.BookingsRepository;
+import com.booking.booking.repositories.ProviderLockFenceRepository;
 import com.booking.booking.repositories.UsersRepository;
 import com.booking.booking.services.rabbitMQEvents.MessageProducerBookings;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 @ExtendWith(MockitoExtension.class)
 public class BookingsTest {
@@ -51,18 +82,67 @@ public class BookingsTest {
     @Mock
     private MessageProducerBookings messageProducerBookings;
 
+    // the real lookback with no long bookings stored: the configured 168 h
+    @Spy
+    private BookingLookback bookingLookback = new BookingLookback();
+
     @InjectMocks
     private BookingsServices service;
 
-    @Mock
-    private StringRedisTemplate redisTemplate;
 
     @Mock
     private LockService lockService;
 
+    @Mock
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @Mock
+    private BookingWriteEngine bookingWriteEngine;
+
+    @Mock
+    private ProviderLockFenceRepository providerLockFenceRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private BookingsBatchRepository bookingsBatchRepository;
+
+    @Mock
+    private KnownUserIds knownUserIds;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private AvailabilityBitmaps availabilityBitmaps;
+
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
+
+        // write engine mock: runs the action on the calling thread
+        lenient().when(bookingWriteEngine.execute(any(), any()))
+            .thenAnswer(invocation -> {
+                Supplier<?> supplier = invocation.getArgument(1);
+                return supplier.get();
+            });
+
+        lenient().when(bookingWriteEngine.execute(any(), any(), any()))
+            .thenAnswer(invocation -> {
+                Supplier<?> supplier = invocation.getArgument(2);
+                return supplier.get();
+            });
+
+        // every provider works around the clock unless a test says otherwise
+        lenient().when(availabilityBitmaps.allows(any(), any(), any())).thenReturn(true);
+
+        // writes run in a transaction so their outbox rows commit with them
+        lenient().when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> {
+                TransactionCallback<?> callback = invocation.getArgument(0);
+                return callback.doInTransaction(null);
+            });
     }
 
     @Test
@@ -99,15 +179,12 @@ public class BookingsTest {
             return b;
         });
 
-        when(Userrepository.findById(1L))
-            .thenReturn(Optional.of(provider));
+        when(Userrepository.getReferenceById(1L))
+            .thenReturn(provider);
 
-        when(Userrepository.findById(2L))
-            .thenReturn(Optional.of(customer));
+        when(Userrepository.getReferenceById(2L))
+            .thenReturn(customer);
 
-        when(redisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
-        when(lockService.acquireLock(any(), any())).thenReturn(true);
-        doNothing().when(lockService).releaseLock(any());
 
         BookingsResponseDTO responseDTO = service.saveBooking(
             new BookingsRequestDTO(
@@ -116,7 +193,7 @@ public class BookingsTest {
                booking.getStartsTs(),
                booking.getEndTs(),
                booking.getStatus()
-            ),"idem-key-123"
+            )
         );
 
         assertAll(
@@ -133,6 +210,88 @@ public class BookingsTest {
         // ================
         verify(messageProducerBookings, times(1))
             .sendBookingCreateEvent(any(BookingCreatedEvent.class));
+
+        // users are linked by reference, never loaded
+        verify(knownUserIds, times(1)).require(1L, "PROVIDER NOT FOUND");
+        verify(knownUserIds, times(1)).require(2L, "CUSTOMER NOT FOUND");
+        verify(Userrepository, never()).findById(any());
+    }
+
+    @Test
+    void shouldRejectBookingWhenIndexReportsConflict(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = start.plusHours(1);
+
+        when(bookingIntervalIndex.check(1L, start, end))
+            .thenReturn(BookingIntervalIndex.Answer.CONFLICT);
+
+        ApiException exception = assertThrows(ApiException.class, () ->
+            service.saveBooking(new BookingsRequestDTO(1L, 2L, start, end, null)));
+
+        assertAll(
+            () -> assertEquals("THIS TIME SLOT IS ALREADY BOOKED", exception.getMessage()),
+            () -> assertEquals(HttpStatus.CONFLICT, exception.getStatus())
+        );
+
+        verify(repository, never()).findConflictingId(any(), any(), any(), any());
+        verify(repository, never()).save(any());
+        verify(lockService, never()).acquireRangeLock(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldRejectBookingOutsideProviderAvailability(){
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = start.plusHours(1);
+
+        when(availabilityBitmaps.allows(1L, start, end)).thenReturn(false);
+
+        ApiException exception = assertThrows(ApiException.class, () ->
+            service.saveBooking(new BookingsRequestDTO(1L, 2L, start, end, null)));
+
+        assertAll(
+            () -> assertEquals("OUTSIDE PROVIDER AVAILABILITY", exception.getMessage()),
+            () -> assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus())
+        );
+        verify(repository, never()).save(any());
+        verify(messageProducerBookings, never()).sendBookingCreateEvent(any());
+    }
+
+    @Test
+    void shouldTakeDistributedLockWhenEnabled(){
+        ReflectionTestUtils.setField(service, "distributedLock", true);
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = start.plusHours(1);
+
+        when(lockService.acquireRangeLock(eq(1L), eq(start), eq(end), any())).thenReturn(null);
+
+        ApiException exception = assertThrows(ApiException.class, () ->
+            service.saveBooking(new BookingsRequestDTO(1L, 2L, start, end, null)));
+
+        assertEquals(HttpStatus.LOCKED, exception.getStatus());
+        verify(bookingWriteEngine, times(1)).execute(any(), any());
+        verify(repository, never()).save(any());
+        verify(lockService, never()).releaseRangeLock(any());
+    }
+
+    @Test
+    void shouldRejectWriteFromStaleLease(){
+        ReflectionTestUtils.setField(service, "distributedLock", true);
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        LocalDateTime end = start.plusHours(1);
+        LockService.Lease lease = new LockService.Lease(List.of("lock:booking:{1}:1"), "node:owner", 4L, Duration.ofSeconds(3));
+
+        when(lockService.acquireRangeLock(eq(1L), eq(start), eq(end), any())).thenReturn(lease);
+        when(providerLockFenceRepository.advance(1L, List.of(1L), 4L)).thenReturn(false);
+
+        ApiException exception = assertThrows(ApiException.class, () ->
+            service.saveBooking(new BookingsRequestDTO(1L, 2L, start, end, null)));
+
+        assertAll(
+            () -> assertEquals("LOCK LEASE LOST", exception.getMessage()),
+            () -> assertEquals(HttpStatus.CONFLICT, exception.getStatus())
+        );
+        verify(repository, never()).save(any());
+        verify(lockService, times(1)).releaseRangeLock(lease);
     }
 
     @Test
@@ -256,6 +415,64 @@ public class BookingsTest {
         );
     }
 
+    @Test
+    void shouldTouchTheIntervalIndexOnlyOnceTheDeleteCommits(){
+        Bookings booking = Bookings.builder()
+            .id(5L)
+            .provider(Users.builder().id(1L).build())
+            .customer(Users.builder().id(2L).build())
+            .build();
+        when(repository.findById(5L)).thenReturn(Optional.of(booking));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try{
+            // the outbox write fails after the row is gone: the transaction rolls back
+            doThrow(new IllegalStateException("outbox down"))
+                .when(messageProducerBookings).sendBookingDeleteEvent(any(BookingDeletedEvent.class));
+            assertThrows(IllegalStateException.class, () -> service.deleteBooking(5L));
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+            TransactionSynchronizationManager.clearSynchronization();
+            verify(bookingIntervalIndex, never()).remove(any());
+
+            TransactionSynchronizationManager.initSynchronization();
+            doNothing().when(messageProducerBookings).sendBookingDeleteEvent(any(BookingDeletedEvent.class));
+            service.deleteBooking(5L);
+            verify(bookingIntervalIndex, never()).remove(any());
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            verify(bookingIntervalIndex, times(1)).remove(5L);
+        } finally{
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldEvictTheCachedBookingOnlyOnceTheDeleteCommits(){
+        Bookings booking = Bookings.builder()
+            .id(5L)
+            .provider(Users.builder().id(1L).build())
+            .customer(Users.builder().id(2L).build())
+            .build();
+        Cache bookingsCache = mock(Cache.class);
+        Cache providerCache = mock(Cache.class);
+        when(cacheManager.getCache(CacheConfig.BOOKINGS)).thenReturn(bookingsCache);
+        when(cacheManager.getCache(CacheConfig.PROVIDER_BOOKINGS)).thenReturn(providerCache);
+        when(repository.findById(5L)).thenReturn(Optional.of(booking));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try{
+            service.deleteBooking(5L);
+            verify(bookingsCache, never()).evict(any());
+            verify(providerCache, never()).evict(any());
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            verify(bookingsCache, times(1)).evict(5L);
+            verify(providerCache, times(1)).evict(1L);
+        } finally{
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     void shouldUpdateBookingsuccessfully() {
 
@@ -294,12 +511,13 @@ public class BookingsTest {
                booking.getStatus()
         );
 
-        when(Userrepository.findById(1L))
-            .thenReturn(Optional.of(provider));
+        when(Userrepository.getReferenceById(1L))
+            .thenReturn(provider);
 
-        when(Userrepository.findById(2L))
-            .thenReturn(Optional.of(customer));
+        when(Userrepository.getReferenceById(2L))
+            .thenReturn(customer);
 
+        when(repository.findProviderId(1L)).thenReturn(Optional.of(1L));
         when(repository.findById(1L)).thenReturn(Optional.of(booking));
         when(repository.save(any(Bookings.class))).thenAnswer(inv -> inv.getArgument(0));
 
@@ -327,7 +545,7 @@ public class BookingsTest {
 
     @Test
     void shouldThrowExceptionWhenBookingsNotFound() {
-        when(repository.findById(99L)).thenReturn(Optional.empty());
+        when(repository.findProviderId(99L)).thenReturn(Optional.empty());
 
         Users provider = Users.builder()
             .id(1L)
@@ -368,71 +586,214 @@ public class BookingsTest {
             service.updateBooking(99L, requestDTO);
         });
 
-        verify(repository, times(1)).findById(99L);
+        verify(repository, times(1)).findProviderId(99L);
+        verify(bookingWriteEngine, never()).execute(any(), any(), any());
         verify(messageProducerBookings, never()).sendBookingUpdateEvent(any());
     }
 
     @Test
     void shouldGetAllBookings(){
+        LocalDateTime start = LocalDateTime.now();
+        BookingsResponseDTO booking = new BookingsResponseDTO(1L, 1L, 2L, start, start.plusHours(1), null, start, start);
+        BookingsResponseDTO booking1 = new BookingsResponseDTO(2L, 1L, 2L, start, start.plusHours(1), null, start, start);
 
-        Users provider = Users.builder()
-            .id(1L)
-            .email("email@provider.com")
-            .name("user1")
-            .keycloakId("kc-test-123")
-            .roles(RolesENUM.PROVIDER)
-            .createdAt(LocalDateTime.now())
-            .build();
+        when(repository.findPageAfterId(eq(0L), any())).thenReturn(List.of(booking, booking1));
+        BookingsPageDTO page = service.getAllBookings(null, 2);
 
-        Users customer = Users.builder()
-            .id(2L)
-            .email("email@customer.com")
-            .name("user2")
-            .keycloakId("kc-test-1234")
-            .roles(RolesENUM.CLIENT)
-            .createdAt(LocalDateTime.now())
-            .build();
+        when(repository.findPageAfterId(eq(2L), any())).thenReturn(List.of());
+        BookingsPageDTO nextPage = service.getAllBookings(page.nextCursor(), 2);
 
+        assertAll(
+            () -> assertEquals(booking.id(), page.items().get(0).id()),
+            () -> assertEquals(booking.startsTs(), page.items().get(0).startsTs()),
+            () -> assertEquals(booking.customer(), page.items().get(0).customer()),
+            () -> assertEquals(booking.provider(), page.items().get(0).provider()),
+            () -> assertEquals(2, page.items().size()),
+            () -> assertEquals(List.of(), nextPage.items()),
+            () -> assertNull(nextPage.nextCursor())
+        );
+        verify(repository, never()).findAll();
+    }
 
-        Bookings booking = Bookings.builder()
-            .id(1L)
-            .startsTs(LocalDateTime.now())
-            .customer(customer)
-            .provider(provider)
-            .startsTs(LocalDateTime.now())
-            .build();
+    @Test
+    void shouldContinueProviderPageAfterCursor(){
+        LocalDateTime start = LocalDateTime.of(2030, 1, 7, 9, 0);
+        BookingsResponseDTO first = new BookingsResponseDTO(7L, 1L, 2L, start, start.plusHours(1), null, start, start);
 
-        Bookings booking1 = Bookings.builder()
-            .id(2L)
-            .startsTs(LocalDateTime.now())
-            .customer(customer)
-            .provider(provider)
-            .startsTs(LocalDateTime.now())
-            .build();
+        when(repository.findProviderPage(eq(1L), any())).thenReturn(List.of(first));
+        BookingsPageDTO page = service.getProviderBookingsPage(1L, null, 1);
 
-        when(repository.findAll()).thenReturn(List.of(booking,booking1));
-        List<BookingsResponseDTO> responseDTO = service.getAllBookings();
+        when(repository.findProviderPageAfter(eq(1L), eq(start), eq(7L), any())).thenReturn(List.of());
+        BookingsPageDTO nextPage = service.getProviderBookingsPage(1L, page.nextCursor(), 1);
 
         assertAll(
-            () -> assertEquals(booking.getId(), responseDTO.get(0).id()),
-            () -> assertEquals(booking.getStartsTs(), responseDTO.get(0).startsTs()),
-            () -> assertEquals(booking.getEndTs(), responseDTO.get(0).endTs()),
-            () -> assertEquals(booking.getStatus(), responseDTO.get(0).status()),
-            () -> assertEquals(booking.getCustomer().getId(), responseDTO.get(0).customer()),
-            () -> assertEquals(booking.getProvider().getId(), responseDTO.get(0).provider())
+            () -> assertEquals(List.of(first), page.items()),
+            () -> assertEquals(List.of(), nextPage.items()),
+            () -> assertNull(nextPage.nextCursor())
         );
+    }
+
+    @Test
+    void shouldRejectTamperedCursorsWithBadRequest(){
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        List<Executable> calls = List.of(
+            () -> service.getAllBookings("not base64!", 10),
+            () -> service.getAllBookings(encoder.encodeToString("12abc".getBytes(StandardCharsets.UTF_8)), 10),
+            () -> service.getProviderBookingsPage(1L, encoder.encodeToString("yesterday|7".getBytes(StandardCharsets.UTF_8)), 10),
+            () -> service.getProviderBookingsPage(1L, encoder.encodeToString("2030-01-07T09:00|x".getBytes(StandardCharsets.UTF_8)), 10),
+            () -> service.getProviderBookingsPage(1L, encoder.encodeToString("2030-01-07T09:00".getBytes(StandardCharsets.UTF_8)), 10));
+
+        for(Executable call : calls){
+            ApiException exception = assertThrows(ApiException.class, call);
+            assertAll(
+                () -> assertEquals("INVALID CURSOR", exception.getMessage()),
+                () -> assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus()));
+        }
+        verify(repository, never()).findPageAfterId(any(), any());
+        verify(repository, never()).findProviderPageAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldStreamBookingsAsNdjson() throws Exception{
+        ReflectionTestUtils.setField(service, "objectMapper", new ObjectMapper().registerModule(new JavaTimeModule()));
+        LocalDateTime start = LocalDateTime.of(2030, 1, 7, 9, 0);
+        when(repository.streamAll()).thenReturn(Stream.of(
+            new BookingsResponseDTO(1L, 1L, 2L, start, start.plusHours(1), null, start, start),
+            new BookingsResponseDTO(2L, 1L, 2L, start, start.plusHours(1), null, start, start)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.streamAllBookings(out);
 
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertAll(
+            () -> assertEquals(2, lines.length),
+            () -> assertTrue(lines[0].startsWith("{\"id\":1,")),
+            () -> assertTrue(lines[1].startsWith("{\"id\":2,"))
+        );
     }
 
     @Test
     void shouldReturnErrorOnGetAllBookings(){
-        when(repository.findAll()).thenReturn(List.of());
+        when(repository.findPageAfterId(eq(0L), any())).thenReturn(List.of());
         ApiException exception = assertThrows(ApiException.class, () ->{
-            service.getAllBookings();
+            service.getAllBookings(null, null);
         });
          assertAll(
             () -> assertEquals("BOOKINGS NOT FOUND", exception.getMessage()),
             () -> assertEquals(HttpStatus.NOT_FOUND, exception.getStatus())
         );
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReserveBatchWithOneConflictQueryAndReportEachItem(){
+        LocalDateTime nine = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+        List<BookingsRequestDTO> batch = List.of(
+            new BookingsRequestDTO(1L, 2L, nine, nine.plusMinutes(30), null),
+            new BookingsRequestDTO(1L, 2L, nine.plusHours(1), nine.plusHours(2), null),
+            new BookingsRequestDTO(1L, 2L, nine.plusMinutes(15), nine.plusMinutes(45), null),
+            new BookingsRequestDTO(1L, 99L, nine.plusHours(3), nine.plusHours(4), null)
+        );
+
+        when(knownUserIds.filterKnown(any())).thenReturn(Set.of(1L, 2L));
+        when(availabilityBitmaps.allows(1L, nine.plusMinutes(15), nine.plusMinutes(45))).thenReturn(false);
+        when(bookingIntervalIndex.check(eq(1L), any(), any())).thenReturn(BookingIntervalIndex.Answer.UNKNOWN);
+        when(repository.findSlotsOverlapping(1L, nine, nine.plusHours(2), nine.minusHours(168)))
+            .thenReturn(List.of(new BookingSlotDTO(7L, 1L, nine.plusMinutes(90), nine.plusHours(3))));
+        when(bookingsBatchRepository.insertAll(any(), any())).thenReturn(List.of(10L));
+
+        List<BookingBatchResultDTO> results = service.saveBookings(batch);
+
+        assertAll(
+            () -> assertEquals(4, results.size()),
+            () -> assertEquals(201, results.get(0).status()),
+            () -> assertEquals(10L, results.get(0).booking().id()),
+            () -> assertEquals(409, results.get(1).status()),
+            () -> assertEquals(400, results.get(2).status()),
+            () -> assertEquals("OUTSIDE PROVIDER AVAILABILITY", results.get(2).message()),
+            () -> assertEquals(404, results.get(3).status()),
+            () -> assertEquals("CUSTOMER NOT FOUND", results.get(3).message())
+        );
+        verify(repository, times(1)).findSlotsOverlapping(any(), any(), any(), any());
+        verify(repository, never()).save(any());
+        verify(Userrepository, never()).findById(any());
+
+        ArgumentCaptor<List<BookingsRequestDTO>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bookingsBatchRepository, times(1)).insertAll(inserted.capture(), any());
+        assertEquals(List.of(batch.get(0)), inserted.getValue());
+
+        ArgumentCaptor<List<BookingCreatedEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(messageProducerBookings, times(1)).sendBookingCreateEvents(events.capture());
+        assertEquals(1, events.getValue().size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldLockOnlyTheItemBucketsOfAMultiWeekBatch(){
+        ReflectionTestUtils.setField(service, "distributedLock", true);
+        LocalDateTime nine = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+        LocalDateTime fourWeeksLater = nine.plusWeeks(4);
+        List<BookingsRequestDTO> batch = List.of(
+            new BookingsRequestDTO(1L, 2L, fourWeeksLater, fourWeeksLater.plusMinutes(30), null),
+            new BookingsRequestDTO(1L, 2L, nine, nine.plusMinutes(30), null)
+        );
+
+        when(knownUserIds.filterKnown(any())).thenReturn(Set.of(1L, 2L));
+        when(lockService.rangeLockKeys(1L, fourWeeksLater, fourWeeksLater.plusMinutes(30)))
+            .thenReturn(List.of("lock:booking:{1}:1672"));
+        when(lockService.rangeLockKeys(1L, nine, nine.plusMinutes(30)))
+            .thenReturn(List.of("lock:booking:{1}:1000"));
+        when(lockService.acquireRangeLock(eq(1L), anyCollection(), any())).thenReturn(null);
+
+        List<BookingBatchResultDTO> results = service.saveBookings(batch);
+
+        ArgumentCaptor<Collection<String>> keys = ArgumentCaptor.forClass(Collection.class);
+        verify(lockService, times(1)).acquireRangeLock(eq(1L), keys.capture(), any());
+        assertAll(
+            () -> assertEquals(Set.of("lock:booking:{1}:1000", "lock:booking:{1}:1672"), Set.copyOf(keys.getValue())),
+            () -> assertEquals(423, results.get(0).status()),
+            () -> assertEquals(423, results.get(1).status())
+        );
+        verify(lockService, never()).acquireRangeLock(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldRejectEmptyBatch(){
+        ApiException exception = assertThrows(ApiException.class, () ->
+            service.saveBookings(List.of()));
+
+        assertAll(
+            () -> assertEquals("BOOKING BATCH IS EMPTY", exception.getMessage()),
+            () -> assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus())
+        );
+    }
+
+    @Test
+    void shouldEvictOnlyTouchedCacheEntriesOnUpdate(){
+        Users oldProvider = Users.builder().id(1L).build();
+        Users newProvider = Users.builder().id(3L).build();
+        Users customer = Users.builder().id(2L).build();
+        Bookings booking = Bookings.builder().id(5L).provider(oldProvider).customer(customer).build();
+        Cache bookingsCache = mock(Cache.class);
+        Cache providerCache = mock(Cache.class);
+
+        when(cacheManager.getCache(CacheConfig.BOOKINGS)).thenReturn(bookingsCache);
+        when(cacheManager.getCache(CacheConfig.PROVIDER_BOOKINGS)).thenReturn(providerCache);
+        when(repository.findProviderId(5L)).thenReturn(Optional.of(1L));
+        when(repository.findById(5L)).thenReturn(Optional.of(booking));
+        when(Userrepository.getReferenceById(3L)).thenReturn(newProvider);
+        when(Userrepository.getReferenceById(2L)).thenReturn(customer);
+        when(repository.save(any(Bookings.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        service.updateBooking(5L, new BookingsRequestDTO(3L, 2L, start, start.plusHours(1), null));
+
+        // serialized with the writes of the provider it leaves and the one it joins
+        verify(bookingWriteEngine, times(1)).execute(eq(1L), eq(3L), any());
+        verify(bookingsCache, times(1)).evict(5L);
+        verify(providerCache, times(1)).evict(1L);
+        verify(providerCache, times(1)).evict(3L);
+        verify(bookingsCache, never()).clear();
+        verify(providerCache, never()).clear();
+    }
 }
@@ -0,0 +1,107 @@
+package com.booking.booking.services;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.DTO.FreeSlotDTO;
+import com.booking.booking.models.ProviderAvailability;
+
+public class FreeSlotsTest {
+
+    // a Monday
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 7);
+
+    private static ProviderAvailability window(int dayOfWeek, int fromHour, int toHour) {
+        return ProviderAvailability.builder()
+            .day_of_week(dayOfWeek)
+            .start_time(LocalTime.of(fromHour, 0))
+            .end_time(LocalTime.of(toHour, 0))
+            .build();
+    }
+
+    private static BookingSlotDTO booked(long id, LocalDateTime start, LocalDateTime end) {
+        return new BookingSlotDTO(id, 1L, start, end);
+    }
+
+    private static List<LocalDateTime> starts(List<FreeSlotDTO> slots) {
+        return slots.stream().map(FreeSlotDTO::startsTs).toList();
+    }
+
+    @Test
+    void shouldExpandWeeklyWindowsOverTheRange() {
+        List<FreeSlotDTO> slots = FreeSlots.find(List.of(window(1, 9, 11), window(3, 14, 15)), List.of(),
+            MONDAY, MONDAY.plusDays(14), Duration.ofHours(1), Duration.ofHours(1), 100);
+
+        assertEquals(List.of(
+            MONDAY.atTime(9, 0), MONDAY.atTime(10, 0), MONDAY.plusDays(2).atTime(14, 0),
+            MONDAY.plusDays(7).atTime(9, 0), MONDAY.plusDays(7).atTime(10, 0), MONDAY.plusDays(9).atTime(14, 0)),
+            starts(slots));
+        assertEquals(MONDAY.atTime(10, 0), slots.get(0).endTs());
+    }
+
+    @Test
+    void shouldLeaveOutSlotsTouchingBookingsAndResumeOnTheGrid() {
+        List<FreeSlotDTO> slots = FreeSlots.find(List.of(window(1, 9, 13)),
+            List.of(
+                booked(1, MONDAY.atTime(9, 30), MONDAY.atTime(10, 0)),
+                // overlapping bookings are merged into one busy block
+                booked(2, MONDAY.atTime(10, 50), MONDAY.atTime(11, 10)),
+                booked(3, MONDAY.atTime(11, 0), MONDAY.atTime(11, 20))),
+            MONDAY, MONDAY.plusDays(1), Duration.ofMinutes(30), Duration.ofMinutes(30), 100);
+
+        // 9:00-9:30 and 10:00-10:30 touch booking 1, 10:30-11:00 touches the block
+        assertEquals(List.of(MONDAY.atTime(11, 30), MONDAY.atTime(12, 0), MONDAY.atTime(12, 30)), starts(slots));
+    }
+
+    @Test
+    void shouldHandleWindowsPastMidnightAndBookingsSpanningWindows() {
+        List<FreeSlotDTO> overnight = FreeSlots.find(List.of(window(7, 22, 2)), List.of(),
+            MONDAY, MONDAY.plusDays(1), Duration.ofHours(1), Duration.ofHours(1), 100);
+        List<FreeSlotDTO> blocked = FreeSlots.find(List.of(window(1, 9, 12), window(2, 9, 12)),
+            List.of(booked(1, MONDAY.atTime(8, 0), MONDAY.plusDays(1).atTime(10, 0))),
+            MONDAY, MONDAY.plusDays(2), Duration.ofHours(1), Duration.ofMinutes(15), 100);
+
+        assertAll(
+            // Sunday's 22:00-02:00 spills into Monday; only its Monday part is in range
+            () -> assertEquals(List.of(MONDAY.atTime(0, 0), MONDAY.atTime(1, 0)), starts(overnight)),
+            () -> assertEquals(List.of(MONDAY.plusDays(1).atTime(10, 15), MONDAY.plusDays(1).atTime(10, 30),
+                MONDAY.plusDays(1).atTime(10, 45), MONDAY.plusDays(1).atTime(11, 0)), starts(blocked)));
+    }
+
+    @Test
+    void shouldStopAtTheLimitOnALargeCalendar() {
+        List<ProviderAvailability> weekly = new ArrayList<>();
+        for (int day = 1; day <= 7; day++) {
+            weekly.add(window(day, 0, 23));
+        }
+        List<BookingSlotDTO> bookings = new ArrayList<>();
+        for (int i = 0; i < 8 * 7 * 23; i++) {
+            LocalDateTime start = MONDAY.atStartOfDay().plusHours(i).plusMinutes(20);
+            bookings.add(booked(i, start, start.plusMinutes(10)));
+        }
+
+        List<FreeSlotDTO> all = FreeSlots.find(weekly, bookings, MONDAY, MONDAY.plusWeeks(8),
+            Duration.ofMinutes(10), Duration.ofMinutes(5), 100_000);
+        List<FreeSlotDTO> limited = FreeSlots.find(weekly, bookings, MONDAY, MONDAY.plusWeeks(8),
+            Duration.ofMinutes(10), Duration.ofMinutes(5), 10);
+
+        assertAll(
+            () -> assertEquals(10, limited.size()),
+            () -> assertEquals(all.subList(0, 10), limited),
+            () -> assertTrue(all.stream().allMatch(slot -> bookings.stream().noneMatch(booking ->
+                !booking.startsTs().isAfter(slot.endTs()) && !booking.endTs().isBefore(slot.startsTs())))),
+            () -> assertEquals(List.of(MONDAY.atTime(0, 0), MONDAY.atTime(0, 5), MONDAY.atTime(0, 35)),
+                starts(all.subList(0, 3))));
+    }
+}
@@ -0,0 +1,97 @@
+package com.booking.booking.services;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.booking.booking.exceptions.ApiException;
+import com.booking.booking.repositories.UsersRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class KnownUserIdsTest {
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @InjectMocks
+    private KnownUserIds knownUserIds;
+
+    @BeforeEach
+    void setup(){
+        ReflectionTestUtils.setField(knownUserIds, "maxSize", 100);
+        knownUserIds.start();
+    }
+
+    @Test
+    void shouldQueryUserOnlyOnFirstBooking(){
+        when(usersRepository.existsById(1L)).thenReturn(true);
+
+        // 100 bookings by the same provider: one SELECT instead of 100 findById
+        for(int i = 0; i < 100; i++){
+            knownUserIds.require(1L, "PROVIDER NOT FOUND");
+        }
+
+        verify(usersRepository, times(1)).existsById(1L);
+        verify(usersRepository, never()).findById(any());
+    }
+
+    @Test
+    void shouldNotCacheMissingUser(){
+        when(usersRepository.existsById(9L)).thenReturn(false);
+
+        ApiException first = assertThrows(ApiException.class, () -> knownUserIds.require(9L, "CUSTOMER NOT FOUND"));
+        assertThrows(ApiException.class, () -> knownUserIds.require(9L, "CUSTOMER NOT FOUND"));
+
+        assertAll(
+            () -> assertEquals("CUSTOMER NOT FOUND", first.getMessage()),
+            () -> assertEquals(HttpStatus.NOT_FOUND, first.getStatus())
+        );
+        verify(usersRepository, times(2)).existsById(9L);
+    }
+
+    @Test
+    void shouldSkipQueryForUsersRememberedOnCreate(){
+        knownUserIds.remember(1L);
+        when(usersRepository.findExistingIds(Set.of(2L, 3L))).thenReturn(List.of(2L));
+
+        Set<Long> known = knownUserIds.filterKnown(List.of(1L, 2L, 3L));
+
+        assertEquals(Set.of(1L, 2L), known);
+        verify(usersRepository, times(1)).findExistingIds(Set.of(2L, 3L));
+        verify(usersRepository, never()).existsById(any());
+    }
+
+    @Test
+    void shouldKeepMostIdsWhenFull(){
+        List<Long> ids = new ArrayList<>();
+        for(long id = 1; id <= 200; id++){
+            knownUserIds.remember(id);
+            ids.add(id);
+        }
+        when(usersRepository.findExistingIds(any())).thenReturn(List.of());
+
+        Set<Long> known = knownUserIds.filterKnown(ids);
+
+        // past max-size ids are evicted one at a time, not all at once
+        assertTrue(known.size() >= 100, known.size() + " known");
+    }
+}
@@ -2,18 +2,23 @@ package com.booking.booking.services;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.http.HttpStatus;
 
 import com.booking.booking.exceptions.ApiException;
@@ -24,74 +29,94 @@ public class LockServiceTest {
     @Mock
     private StringRedisTemplate redisTemplate;
 
-    @Mock
-    private ValueOperations<String, String> valueOps;
-
     @InjectMocks
     private LockService lockService;
 
     @Test
-    void shouldExecuteActionWhenKeyDoesNotExist() {
-
-        // GIVEN
-        when(redisTemplate.opsForValue()).thenReturn(valueOps);
-        when(valueOps.setIfAbsent(
-                eq("idempotency:test-key"),
-                eq("LOCK"),
-                any(Duration.class))).thenReturn(true);
-
-        // WHEN
-        String result = lockService.execute("test-key", () -> "OK");
-
-        // THEN
-        assertEquals("OK", result);
-
-        verify(redisTemplate).opsForValue();
-        verify(valueOps).setIfAbsent(
-                eq("idempotency:test-key"),
-                eq("LOCK"),
-                any(Duration.class));
+    void shouldShareBucketsOnlyForOverlappingIntervals() {
+        LocalDateTime nine = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+        List<String> first = lockService.rangeLockKeys(1L, nine, nine.plusMinutes(90));
+        List<String> overlapping = lockService.rangeLockKeys(1L, nine.plusMinutes(30), nine.plusMinutes(45));
+        List<String> later = lockService.rangeLockKeys(1L, nine.plusHours(3), nine.plusHours(4).minusMinutes(1));
+
+        assertEquals(2, first.size());
+        assertTrue(first.containsAll(overlapping));
+        assertTrue(first.stream().noneMatch(later::contains));
+        assertTrue(first.get(0).startsWith("lock:booking:{1}:"));
     }
 
     @Test
-    void shouldThrowConflictWhenKeyAlreadyExists() {
-        // GIVEN
-        when(redisTemplate.opsForValue()).thenReturn(valueOps);
-        when(valueOps.setIfAbsent(
-                eq("idempotency:test-key"),
-                eq("LOCK"),
-                any(Duration.class))).thenReturn(false);
-
-        // WHEN
+    void shouldRejectIntervalSpanningTooManyBuckets() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+
         ApiException ex = assertThrows(ApiException.class,
-                () -> lockService.execute("test-key", () -> "FAIL"));
+                () -> lockService.rangeLockKeys(1L, start, start.plusDays(30)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+    }
 
-        // THEN
-        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
-        assertEquals("Request already processed", ex.getMessage());
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldAcquireAllBucketsAndFencingTokenInOneScriptCall() {
+        LocalDateTime nine = LocalDateTime.of(2030, 1, 7, 9, 0);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(7L);
+
+        LockService.Lease lease = lockService.acquireRangeLock(1L, nine, nine.plusMinutes(30), Duration.ofSeconds(3));
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), keys.capture(), eq(lease.getOwner()), eq("3000"));
+        assertAll(
+            () -> assertEquals(7L, lease.getFencingToken()),
+            () -> assertEquals(List.of("lock:booking:{1}:" + (nine.toEpochSecond(java.time.ZoneOffset.UTC) / 3600)), lease.getKeys()),
+            () -> assertEquals("lock:fence:{1}", keys.getValue().get(keys.getValue().size() - 1))
+        );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldTakeTheUnionOfBatchBucketsInBucketOrder() {
+        LocalDateTime nine = LocalDateTime.of(2030, 1, 7, 9, 0);
+        List<String> keys = new ArrayList<>();
+        keys.addAll(lockService.rangeLockKeys(1L, nine.plusWeeks(3), nine.plusWeeks(3).plusMinutes(30)));
+        keys.addAll(lockService.rangeLockKeys(1L, nine, nine.plusMinutes(90)));
+        keys.addAll(lockService.rangeLockKeys(1L, nine.plusMinutes(30), nine.plusMinutes(45)));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(7L);
+
+        LockService.Lease lease = lockService.acquireRangeLock(1L, keys, Duration.ofSeconds(3));
+
+        long first = nine.toEpochSecond(java.time.ZoneOffset.UTC) / 3600;
+        assertEquals(List.of(first, first + 1, first + 3 * 168), lease.getBuckets());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReturnNullWhenAnyBucketIsHeld() {
+        LocalDateTime nine = LocalDateTime.of(2030, 1, 7, 9, 0);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(0L);
 
-        verify(redisTemplate).opsForValue();
-        verify(valueOps).setIfAbsent(
-                eq("idempotency:test-key"),
-                eq("LOCK"),
-                any(Duration.class));
+        assertNull(lockService.acquireRangeLock(1L, nine, nine.plusMinutes(30), Duration.ofSeconds(3)));
     }
 
     @Test
-    void shouldExecuteActionWhenKeyIsNull() {
+    @SuppressWarnings("unchecked")
+    void shouldMarkLeaseLostWhenRenewalFindsForeignOwner() {
+        LocalDateTime nine = LocalDateTime.of(2030, 1, 7, 9, 0);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(3L, 0L);
 
-        String result = lockService.execute(null, () -> "OK");
+        LockService.Lease lease = lockService.acquireRangeLock(1L, nine, nine.plusMinutes(30), Duration.ofSeconds(3));
+        lockService.renewHeldLeases();
 
-        assertEquals("OK", result);
-        verifyNoInteractions(redisTemplate);
+        assertTrue(lease.isLost());
     }
 
     @Test
-    void shouldExecuteActionWhenKeyIsBlank() {
+    @SuppressWarnings("unchecked")
+    void shouldReleaseOnlyKeysOwnedByLease() {
+        LockService.Lease lease = new LockService.Lease(List.of("lock:booking:{1}:10"), "node:owner", 1L, Duration.ofSeconds(3));
 
-        String result = lockService.execute("   ", () -> "OK");
+        lockService.releaseRangeLock(lease);
 
-        assertEquals("OK", result);
-        verifyNoInteractions(redisTemplate);
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(List.of("lock:booking:{1}:10")), eq("node:owner"));
     }
 }
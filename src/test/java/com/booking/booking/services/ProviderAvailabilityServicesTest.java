@@ -10,10 +10,10 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Supplier;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -22,9 +22,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.DTO.FreeSlotDTO;
 import com.booking.booking.DTO.ProviderAvailabilityRequestDTO;
 import com.booking.booking.DTO.ProviderAvailabilityResponseDTO;
 import com.booking.booking.ENUMS.RolesENUM;
@@ -34,6 +37,7 @@ import com.booking.booking.events.providerEvents.ProviderAvailabilityUpdatedEven
 import com.booking.booking.exceptions.ApiException;
 import com.booking.booking.models.ProviderAvailability;
 import com.booking.booking.models.Users;
+import com.booking.booking.repositories.BookingsRepository;
 import com.booking.booking.repositories.ProviderAvailabilityRepository;
 import com.booking.booking.repositories.UsersRepository;
 import com.booking.booking.services.rabbitMQEvents.MessageProducerProvider;
@@ -51,7 +55,14 @@ public class ProviderAvailabilityServicesTest {
     private MessageProducerProvider messageProducerProvider;
 
     @Mock
-    private LockService idempotencyService;
+    private BookingsRepository bookingsRepository;
+
+    @Mock
+    private AvailabilityBitmaps availabilityBitmaps;
+
+    // the real lookback with no long bookings stored: the configured 168 h
+    @Spy
+    private BookingLookback bookingLookback = new BookingLookback();
 
     @InjectMocks
     private ProviderAvailabilityservices service;
@@ -96,14 +107,7 @@ public class ProviderAvailabilityServicesTest {
                     return p;
                 });
 
-        // 🔑 Idempotency mock: executa direto a action
-        when(idempotencyService.execute(any(), any()))
-                .thenAnswer(invocation -> {
-                    Supplier<?> supplier = invocation.getArgument(1);
-                    return supplier.get();
-                });
-
-        ProviderAvailabilityResponseDTO responseDTO = service.saveProviderAvailability(requestDTO, "idem-key-123");
+        ProviderAvailabilityResponseDTO responseDTO = service.createAvailability(requestDTO);
 
         assertAll(
                 () -> assertEquals(provider.getId(), responseDTO.id()),
@@ -116,36 +120,7 @@ public class ProviderAvailabilityServicesTest {
         verify(repository, times(1)).save(any(ProviderAvailability.class));
         verify(messageProducerProvider, times(1))
                 .sendProviderCreateEvent(any(ProviderAvailabilityCreatedEvent.class));
-    }
-
-    @Test
-    void shouldThrowConflictWhenIdempotencyKeyAlreadyExists() {
-
-        // ===== GIVEN =====
-        ProviderAvailabilityRequestDTO requestDTO = new ProviderAvailabilityRequestDTO(
-                5,
-                LocalTime.of(9, 0),
-                LocalTime.of(18, 0),
-                1L);
-
-        // Simula Redis dizendo: "essa chave já foi usada"
-        when(idempotencyService.execute(any(), any()))
-                .thenThrow(new ApiException(
-                        "Request already processed",
-                        HttpStatus.CONFLICT));
-
-        // ===== WHEN / THEN =====
-        ApiException exception = assertThrows(
-                ApiException.class,
-                () -> service.saveProviderAvailability(requestDTO, "idem-key-123"));
-
-        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
-
-        // ===== VERIFY: nada aconteceu =====
-        verify(usersRepository, never()).findById(any());
-        verify(repository, never()).save(any());
-        verify(messageProducerProvider, never())
-                .sendProviderCreateEvent(any());
+        verify(availabilityBitmaps).rebuildAfterCommit(1L);
     }
 
     @Test
@@ -282,6 +257,7 @@ public class ProviderAvailabilityServicesTest {
         verify(repository, times(1)).findById(1L);
         verify(usersRepository, times(1)).findById(10L);
         verify(repository, times(1)).save(existing);
+        verify(availabilityBitmaps).rebuildAfterCommit(10L, 10L);
 
         // Evento enviado ao RabbitMQ
         verify(messageProducerProvider, times(1))
@@ -349,4 +325,42 @@ public class ProviderAvailabilityServicesTest {
                 () -> assertEquals("Provider availability not found", exception.getMessage()),
                 () -> assertEquals(HttpStatus.NOT_FOUND, exception.getStatus()));
     }
+
+    @Test
+    void shouldFindFreeSlotsFromAvailabilityMinusBookings() {
+        LocalDate monday = LocalDate.of(2030, 1, 7);
+        ProviderAvailability mornings = ProviderAvailability.builder()
+                .day_of_week(1)
+                .start_time(LocalTime.of(9, 0))
+                .end_time(LocalTime.of(11, 0))
+                .build();
+        when(repository.findByProviderId(1L)).thenReturn(List.of(mornings));
+        when(bookingsRepository.findSlotsOverlapping(1L, monday.atStartOfDay(), monday.plusDays(7).atStartOfDay(),
+                monday.atStartOfDay().minusHours(168)))
+                .thenReturn(List.of(new BookingSlotDTO(5L, 1L, monday.atTime(9, 0), monday.atTime(9, 45))));
+
+        List<FreeSlotDTO> slots = service.findFreeSlots(1L, monday, monday.plusDays(7), 30, null);
+
+        assertEquals(List.of(new FreeSlotDTO(monday.atTime(10, 0), monday.atTime(10, 30)),
+                new FreeSlotDTO(monday.atTime(10, 30), monday.atTime(11, 0))), slots);
+    }
+
+    @Test
+    void shouldRejectInvalidSlotSearches() {
+        LocalDate monday = LocalDate.of(2030, 1, 7);
+
+        ApiException noDuration = assertThrows(ApiException.class,
+                () -> service.findFreeSlots(1L, monday, monday.plusDays(7), 0, null));
+        ApiException backwards = assertThrows(ApiException.class,
+                () -> service.findFreeSlots(1L, monday, monday, 30, null));
+        ApiException tooLong = assertThrows(ApiException.class,
+                () -> service.findFreeSlots(1L, monday, monday.plusDays(365), 30, null));
+
+        assertAll(
+                () -> assertEquals("INVALID SLOT SEARCH", noDuration.getMessage()),
+                () -> assertEquals("INVALID SLOT SEARCH", backwards.getMessage()),
+                () -> assertEquals("SLOT SEARCH RANGE TOO LONG", tooLong.getMessage()),
+                () -> assertEquals(HttpStatus.BAD_REQUEST, tooLong.getStatus()));
+        verify(repository, never()).findByProviderId(any());
+    }
 }
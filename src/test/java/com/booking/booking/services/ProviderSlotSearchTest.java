@@ -0,0 +1,239 @@
+package com.booking.booking.services;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.booking.booking.DTO.AvailabilityWindowDTO;
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.DTO.FreeSlotDTO;
+import com.booking.booking.DTO.ProviderSlotDTO;
+import com.booking.booking.exceptions.ApiException;
+import com.booking.booking.models.ProviderAvailability;
+import com.booking.booking.repositories.BookingsRepository;
+import com.booking.booking.repositories.ProviderAvailabilityRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class ProviderSlotSearchTest {
+
+    // a Tuesday
+    private static final LocalDate TUESDAY = LocalDate.of(2030, 1, 8);
+
+    @Mock
+    private ProviderAvailabilityRepository providerAvailabilityRepository;
+
+    @Mock
+    private BookingsRepository bookingsRepository;
+
+    // the real lookback with no long bookings stored: the configured 168 h
+    @Spy
+    private BookingLookback bookingLookback = new BookingLookback();
+
+    @InjectMocks
+    private ProviderSlotSearch search;
+
+    @BeforeEach
+    void setup() {
+        search.start();
+    }
+
+    @AfterEach
+    void stop() {
+        search.stop();
+    }
+
+    private static AvailabilityWindowDTO window(long providerId, int dayOfWeek, int fromHour, int toHour) {
+        return new AvailabilityWindowDTO(providerId, dayOfWeek, LocalTime.of(fromHour, 0), LocalTime.of(toHour, 0));
+    }
+
+    @Test
+    void shouldRankProvidersByTheirEarliestOpenSlot() {
+        when(providerAvailabilityRepository.findWindowsOnDays(any())).thenReturn(List.of(
+            window(1, 2, 9, 18),
+            window(2, 2, 9, 18),
+            window(3, 2, 9, 12),
+            window(4, 2, 16, 18)));
+        when(bookingsRepository.findAllSlotsOverlapping(any(), any(), any())).thenReturn(List.of(
+            new BookingSlotDTO(10L, 1L, TUESDAY.atTime(14, 0), TUESDAY.atTime(16, 0)),
+            new BookingSlotDTO(11L, 2L, TUESDAY.atTime(15, 30), TUESDAY.atTime(15, 45))));
+
+        List<ProviderSlotDTO> found = search.findEarliest(TUESDAY.atTime(15, 0), TUESDAY.atTime(18, 0), 60, 15, 10, null);
+
+        // 1 is busy until 16:00, 2 until 15:45, 3 has closed, 4 opens at 16:00
+        assertEquals(List.of(
+            new ProviderSlotDTO(2L, TUESDAY.atTime(16, 0), TUESDAY.atTime(17, 0)),
+            new ProviderSlotDTO(4L, TUESDAY.atTime(16, 0), TUESDAY.atTime(17, 0)),
+            new ProviderSlotDTO(1L, TUESDAY.atTime(16, 15), TUESDAY.atTime(17, 15))), found);
+    }
+
+    @Test
+    void shouldAgreeWithTheSingleProviderSweep() {
+        Random random = new Random(42);
+        List<AvailabilityWindowDTO> windows = new ArrayList<>();
+        List<BookingSlotDTO> bookings = new ArrayList<>();
+        for (long provider = 1; provider <= 200; provider++) {
+            for (int day = 1; day <= 7; day++) {
+                if (random.nextInt(3) > 0) {
+                    int from = random.nextInt(20);
+                    windows.add(window(provider, day, from, from + 1 + random.nextInt(24 - from - 1)));
+                }
+            }
+            for (int b = 0; b < 20; b++) {
+                LocalDateTime start = TUESDAY.atStartOfDay().plusMinutes(random.nextInt(7 * 24 * 60));
+                bookings.add(new BookingSlotDTO((long) b, provider, start, start.plusMinutes(15 + random.nextInt(180))));
+            }
+        }
+        when(providerAvailabilityRepository.findWindowsOnDays(any())).thenReturn(windows);
+        when(bookingsRepository.findAllSlotsOverlapping(any(), any(), any())).thenReturn(bookings);
+
+        List<ProviderSlotDTO> found = search.findEarliest(TUESDAY.atStartOfDay(), TUESDAY.plusDays(7).atStartOfDay(),
+            45, 15, 100, null);
+
+        assertEquals(100, found.size());
+        for (ProviderSlotDTO slot : found) {
+            List<ProviderAvailability> weekly = windows.stream()
+                .filter(window -> window.providerId().equals(slot.providerId()))
+                .map(window -> ProviderAvailability.builder()
+                    .day_of_week(window.dayOfWeek())
+                    .start_time(window.startTime())
+                    .end_time(window.endTime())
+                    .build())
+                .toList();
+            List<BookingSlotDTO> booked = bookings.stream()
+                .filter(booking -> booking.providerId().equals(slot.providerId()))
+                .toList();
+            List<FreeSlotDTO> expected = FreeSlots.find(weekly, booked, TUESDAY, TUESDAY.plusDays(7),
+                Duration.ofMinutes(45), Duration.ofMinutes(15), 1);
+            assertEquals(expected.get(0).startsTs(), slot.startsTs(), "provider " + slot.providerId());
+        }
+        for (int i = 1; i < found.size(); i++) {
+            assertTrue(!found.get(i).startsTs().isBefore(found.get(i - 1).startsTs()));
+        }
+    }
+
+    @Test
+    void shouldPickTheTopKWithTiesByProviderId() {
+        long none = ProviderSlotSearch.NONE;
+        long[] earliest = { 50, none, 10, 30, 10, 20, none, 40 };
+        long[] providerIds = { 1, 2, 9, 4, 5, 6, 7, 8 };
+
+        assertAll(
+            () -> assertEquals(List.of(4, 2, 5), boxed(ProviderSlotSearch.top(earliest, providerIds, 3))),
+            () -> assertEquals(List.of(4, 2, 5, 3, 7, 0), boxed(ProviderSlotSearch.top(earliest, providerIds, 10))));
+    }
+
+    private static List<Integer> boxed(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private void stubTenThousandProviders() {
+        Random random = new Random(7);
+        List<AvailabilityWindowDTO> windows = new ArrayList<>();
+        List<BookingSlotDTO> bookings = new ArrayList<>();
+        long bookingId = 0;
+        for (long provider = 1; provider <= 10_000; provider++) {
+            for (int day = 1; day <= 5; day++) {
+                windows.add(window(provider, day, 8, 12));
+                windows.add(window(provider, day, 13, 18));
+            }
+            // busy most of Tuesday afternoon
+            for (int hour = 13; hour < 18; hour++) {
+                if (random.nextInt(10) > 0) {
+                    bookings.add(new BookingSlotDTO(bookingId++, provider, TUESDAY.atTime(hour, 0), TUESDAY.atTime(hour, 50)));
+                }
+            }
+        }
+        when(providerAvailabilityRepository.findWindowsOnDays(any())).thenReturn(windows);
+        when(bookingsRepository.findAllSlotsOverlapping(any(), any(), any())).thenReturn(bookings);
+    }
+
+    @Test
+    void shouldSearchTenThousandProviders() {
+        stubTenThousandProviders();
+
+        List<ProviderSlotDTO> found = search.findEarliest(TUESDAY.atTime(15, 0), TUESDAY.atTime(18, 0), 30, 5, 20, null);
+
+        assertAll(
+            () -> assertEquals(20, found.size()),
+            // providers with no booking at 15:00 are free right away
+            () -> assertEquals(TUESDAY.atTime(15, 0), found.get(0).startsTs()));
+    }
+
+    // opt-in timing run: mvn test -Dtest=ProviderSlotSearchTest -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void shouldReportTheBestOfTenSearchesOverTenThousandProviders() {
+        stubTenThousandProviders();
+
+        long bestNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 10; run++) {
+            long started = System.nanoTime();
+            List<ProviderSlotDTO> found = search.findEarliest(TUESDAY.atTime(15, 0), TUESDAY.atTime(18, 0), 30, 5, 20, null);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - started);
+            assertEquals(20, found.size());
+        }
+        System.out.printf("Provider slot search: 10000 providers, best of 10 runs %.1f ms%n", bestNanos / 1e6);
+    }
+
+    @Test
+    void shouldReadOnlyTheRequestedProviders() {
+        LocalDateTime from = TUESDAY.atTime(15, 0);
+        LocalDateTime to = TUESDAY.atTime(18, 0);
+        when(providerAvailabilityRepository.findWindowsOfProviders(Set.of(2L, 3L))).thenReturn(List.of(
+            window(2, 2, 9, 18),
+            window(2, 3, 9, 18)));
+        when(bookingsRepository.findSlotsOfProvidersOverlapping(Set.of(2L), from, to, from.minusHours(168)))
+            .thenReturn(List.of(new BookingSlotDTO(11L, 2L, TUESDAY.atTime(15, 0), TUESDAY.atTime(16, 0))));
+
+        List<ProviderSlotDTO> found = search.findEarliest(from, to, 60, 15, 10, List.of(2L, 3L));
+        List<ProviderSlotDTO> none = search.findEarliest(from, to, 60, 15, 10, List.of());
+
+        assertAll(
+            () -> assertEquals(List.of(new ProviderSlotDTO(2L, TUESDAY.atTime(16, 15), TUESDAY.atTime(17, 15))), found),
+            () -> assertEquals(List.of(), none));
+        verify(providerAvailabilityRepository, never()).findWindowsOnDays(any());
+        verify(bookingsRepository, never()).findAllSlotsOverlapping(any(), any(), any());
+    }
+
+    @Test
+    void shouldRejectInvalidSearches() {
+        LocalDateTime from = TUESDAY.atTime(15, 0);
+
+        ApiException tooMany = assertThrows(ApiException.class,
+            () -> search.findEarliest(from, from.plusHours(3), 30, null, 1000, null));
+        ApiException tooLong = assertThrows(ApiException.class,
+            () -> search.findEarliest(from, from.plusDays(30), 30, null, 10, null));
+
+        assertAll(
+            () -> assertEquals("INVALID SLOT SEARCH", tooMany.getMessage()),
+            () -> assertEquals("SLOT SEARCH RANGE TOO LONG", tooLong.getMessage()));
+    }
+}
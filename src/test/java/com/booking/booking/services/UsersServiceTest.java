@@ -18,6 +18,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 import com.booking.booking.DTO.UserResponseDTO;
 import com.booking.booking.ENUMS.RolesENUM;
@@ -35,6 +37,9 @@ public class UsersServiceTest {
     @Mock
     private MessageProducerUsers messageProducerUsers;
 
+    @Mock
+    private KnownUserIds knownUserIds;
+
     @InjectMocks
     private UsersServices service;
 
@@ -110,6 +115,31 @@ public class UsersServiceTest {
         verify(repository, times(1)).save(any(Users.class));
         verify(messageProducerUsers, times(1))
             .sendUsersCreateEvent(any(UsersCreatedEvent.class));
+        verify(knownUserIds, times(1)).remember(1L);
     }
 
+    @Test
+    void shouldRememberTheNewUserOnlyOnceItCommits() {
+        Jwt jwt = mock(Jwt.class);
+        when(jwt.getSubject()).thenReturn("keycloakId123");
+        when(repository.findByKeycloakId("keycloakId123")).thenReturn(Optional.empty());
+        when(repository.save(any(Users.class)))
+            .thenAnswer(invocation -> {
+                Users u = invocation.getArgument(0);
+                u.setId(1L);
+                return u;
+            });
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.createOrGet(jwt);
+            verify(knownUserIds, never()).remember(any());
+
+            // a rollback drops the synchronization: the filter never hears of user 1
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            verify(knownUserIds, times(1)).remember(1L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
 }
@@ -0,0 +1,99 @@
+package com.booking.booking.services;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.booking.booking.DTO.BookingSlotDTO;
+import com.booking.booking.models.ProviderAvailability;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class WeeklyAvailabilityTest {
+
+    // a Monday
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 7);
+
+    private static ProviderAvailability window(int dayOfWeek, LocalTime from, LocalTime to) {
+        return ProviderAvailability.builder()
+            .day_of_week(dayOfWeek)
+            .start_time(from)
+            .end_time(to)
+            .build();
+    }
+
+    private static ProviderAvailability window(int dayOfWeek, int fromHour, int toHour) {
+        return window(dayOfWeek, LocalTime.of(fromHour, 0), LocalTime.of(toHour, 0));
+    }
+
+    @Test
+    void shouldCoverIntervalsInsideAdjacentWindows() {
+        WeeklyAvailability weekly = WeeklyAvailability.of(List.of(window(1, 9, 12), window(1, 12, 15)));
+
+        assertAll(
+            () -> assertTrue(weekly.exact()),
+            () -> assertTrue(weekly.covers(MONDAY.atTime(9, 0), MONDAY.atTime(15, 0))),
+            () -> assertTrue(weekly.covers(MONDAY.atTime(14, 30), MONDAY.atTime(15, 0))),
+            () -> assertFalse(weekly.covers(MONDAY.atTime(8, 55), MONDAY.atTime(9, 30))),
+            () -> assertFalse(weekly.covers(MONDAY.atTime(14, 30), MONDAY.atTime(15, 1))),
+            () -> assertFalse(weekly.covers(MONDAY.plusDays(1).atTime(10, 0), MONDAY.plusDays(1).atTime(11, 0))),
+            () -> assertEquals(360, weekly.minutes(DayOfWeek.MONDAY)));
+    }
+
+    @Test
+    void shouldWrapSundayNightIntoMonday() {
+        WeeklyAvailability weekly = WeeklyAvailability.of(List.of(window(7, 22, 2)));
+        LocalDate sunday = MONDAY.minusDays(1);
+
+        assertAll(
+            () -> assertTrue(weekly.covers(sunday.atTime(23, 0), MONDAY.atTime(1, 30))),
+            () -> assertFalse(weekly.covers(MONDAY.atTime(1, 30), MONDAY.atTime(2, 5))),
+            () -> assertEquals(120, weekly.minutes(DayOfWeek.SUNDAY)),
+            () -> assertEquals(120, weekly.minutes(DayOfWeek.MONDAY)));
+    }
+
+    @Test
+    void shouldOnlyCountWholeCellsForWindowsOffTheGrid() {
+        WeeklyAvailability weekly = WeeklyAvailability.of(List.of(window(1, LocalTime.of(9, 2), LocalTime.of(10, 0))));
+
+        assertAll(
+            () -> assertFalse(weekly.exact()),
+            () -> assertTrue(weekly.covers(MONDAY.atTime(9, 5), MONDAY.atTime(9, 30))),
+            // fits the window, but the bitmap can't tell
+            () -> assertFalse(weekly.covers(MONDAY.atTime(9, 3), MONDAY.atTime(9, 30))),
+            () -> assertEquals(55, weekly.minutes(DayOfWeek.MONDAY)));
+    }
+
+    @Test
+    void shouldSubtractBookedCellsFromTheDay() {
+        WeeklyAvailability weekly = WeeklyAvailability.of(List.of(window(1, 9, 12), window(7, 23, 1)));
+
+        int free = weekly.freeMinutes(MONDAY, List.of(
+            new BookingSlotDTO(1L, 1L, MONDAY.atTime(9, 0), MONDAY.atTime(9, 30)),
+            // partial cells count as taken
+            new BookingSlotDTO(2L, 1L, MONDAY.atTime(10, 12), MONDAY.atTime(10, 18)),
+            // from Sunday's window into Monday's spill
+            new BookingSlotDTO(3L, 1L, MONDAY.minusDays(1).atTime(23, 30), MONDAY.atTime(0, 30)),
+            new BookingSlotDTO(4L, 1L, MONDAY.plusDays(1).atTime(9, 0), MONDAY.plusDays(1).atTime(10, 0))));
+
+        // 180 + 60 working, less 30, 10 and 30
+        assertEquals(170, free);
+    }
+
+    @Test
+    void shouldRoundTripThroughJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        WeeklyAvailability weekly = WeeklyAvailability.of(List.of(window(3, 8, 18), window(7, 22, 2)));
+
+        WeeklyAvailability read = mapper.readValue(mapper.writeValueAsBytes(weekly), WeeklyAvailability.class);
+
+        assertEquals(weekly, read);
+    }
+}
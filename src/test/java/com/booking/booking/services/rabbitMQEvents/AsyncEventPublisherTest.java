@@ -0,0 +1,153 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class AsyncEventPublisherTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations channel;
+
+    @InjectMocks
+    private AsyncEventPublisher publisher;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(rabbitTemplate.invoke(any())).thenAnswer(invocation -> {
+            RabbitOperations.OperationsCallback<?> callback = invocation.getArgument(0);
+            return callback.doInRabbit(channel);
+        });
+        ReflectionTestUtils.setField(publisher, "offerTimeoutMs", 50L);
+    }
+
+    @AfterEach
+    void stop() {
+        publisher.stop();
+    }
+
+    private Message message() {
+        return new Message(new byte[0], new MessageProperties());
+    }
+
+    private List<CorrelationData> sentCorrelations(int count) {
+        ArgumentCaptor<CorrelationData> correlations = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(channel, timeout(1000).times(count))
+            .send(eq("booking-exchange"), eq("booking.created"), any(Message.class), correlations.capture());
+        return correlations.getAllValues();
+    }
+
+    @Test
+    void shouldSendQueuedMessagesAsOneBatchAndCompleteWithTheirConfirms() {
+        ReflectionTestUtils.setField(publisher, "batchSize", 3);
+        ReflectionTestUtils.setField(publisher, "lingerMs", 500L);
+        publisher.start();
+
+        CompletableFuture<Boolean> first = publisher.publish("booking-exchange", "booking.created", message());
+        CompletableFuture<Boolean> second = publisher.publish("booking-exchange", "booking.created", message());
+        CompletableFuture<Boolean> third = publisher.publish("booking-exchange", "booking.created", message());
+
+        List<CorrelationData> correlations = sentCorrelations(3);
+        verify(rabbitTemplate, times(1)).invoke(any());
+        assertFalse(first.isDone());
+
+        correlations.get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+        correlations.get(1).getFuture().complete(new CorrelationData.Confirm(false, "queue full"));
+        correlations.get(2).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        assertAll(
+            () -> assertTrue(first.join()),
+            () -> assertFalse(second.join()),
+            () -> assertTrue(third.join()),
+            () -> assertEquals(0, publisher.awaitingConfirm()));
+    }
+
+    @Test
+    void shouldFlushPartialBatchAfterLinger() {
+        ReflectionTestUtils.setField(publisher, "batchSize", 100);
+        ReflectionTestUtils.setField(publisher, "lingerMs", 10L);
+        publisher.start();
+
+        publisher.publish("booking-exchange", "booking.created", message());
+
+        sentCorrelations(1);
+    }
+
+    @Test
+    void shouldRejectWhenBrokerLagsAndResumeOnConfirm() {
+        ReflectionTestUtils.setField(publisher, "bufferSize", 2);
+        ReflectionTestUtils.setField(publisher, "batchSize", 1);
+        ReflectionTestUtils.setField(publisher, "maxInFlight", 1);
+        publisher.start();
+
+        publisher.publish("booking-exchange", "booking.created", message());
+        CorrelationData unconfirmed = sentCorrelations(1).get(0);
+
+        // the flusher holds one message waiting for a permit, the buffer takes two more
+        List<CompletableFuture<Boolean>> queued = new ArrayList<>();
+        assertThrows(RejectedExecutionException.class, () -> {
+            for (int i = 0; i < 10; i++) {
+                queued.add(publisher.publish("booking-exchange", "booking.created", message()));
+            }
+        });
+        assertEquals(3, queued.size());
+        assertEquals(2, publisher.buffered());
+
+        unconfirmed.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        sentCorrelations(2);
+    }
+
+    @Test
+    void shouldCompleteWithFalseWhenConfirmTimesOut() throws Exception {
+        ReflectionTestUtils.setField(publisher, "confirmTimeoutMs", 20L);
+        publisher.start();
+
+        CompletableFuture<Boolean> confirmed = publisher.publish("booking-exchange", "booking.created", message());
+
+        assertFalse(confirmed.get(1, TimeUnit.SECONDS));
+        assertEquals(0, publisher.awaitingConfirm());
+    }
+
+    @Test
+    void shouldCompleteWithFalseWhenBrokerIsDown() throws Exception {
+        doThrow(new AmqpConnectException(new RuntimeException("refused"))).when(rabbitTemplate).invoke(any());
+        publisher.start();
+
+        CompletableFuture<Boolean> confirmed = publisher.publish("booking-exchange", "booking.created", message());
+
+        assertFalse(confirmed.get(1, TimeUnit.SECONDS));
+        assertEquals(0, publisher.awaitingConfirm());
+    }
+}
@@ -0,0 +1,221 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.booking.booking.DTO.DlqRedriveRequestDTO;
+import com.booking.booking.DTO.DlqRedriveStatusDTO;
+import com.booking.booking.config.RabbitMQConfig;
+import com.booking.booking.exceptions.ApiException;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+
+@ExtendWith(MockitoExtension.class)
+public class DlqRedriverTest {
+
+    private static final String DLQ = "booking.created.dlq";
+    private static final String CREATED = "com.booking.booking.events.bookingEvents.BookingCreatedEvent";
+    private static final String DELETED = "com.booking.booking.events.bookingEvents.BookingDeletedEvent";
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private AsyncEventPublisher publisher;
+
+    @Mock
+    private Channel channel;
+
+    @Mock
+    private AMQP.Queue.DeclareOk declareOk;
+
+    @InjectMocks
+    private DlqRedriver redriver;
+
+    @BeforeEach
+    void setup() throws Exception {
+        ReflectionTestUtils.setField(redriver, "queues", List.of(
+            QueueBuilder.durable("booking.created.q")
+                .withArgument("x-dead-letter-exchange", "")
+                .withArgument("x-dead-letter-routing-key", DLQ)
+                .build(),
+            QueueBuilder.durable(DLQ).build()));
+        redriver.start();
+
+        lenient().when(rabbitTemplate.execute(any())).thenAnswer(invocation -> {
+            ChannelCallback<?> callback = invocation.getArgument(0);
+            return callback.doInRabbit(channel);
+        });
+        lenient().when(channel.queueDeclarePassive(DLQ)).thenReturn(declareOk);
+        lenient().when(declareOk.getMessageCount()).thenReturn(4);
+    }
+
+    private static GetResponse dead(long tag, String messageId, String typeId, Instant deadAt) {
+        Map<String, Object> death = new HashMap<>();
+        death.put("exchange", "booking-exchange");
+        death.put("routing-keys", List.of("booking.created"));
+        death.put("queue", "booking.created.q");
+        death.put("reason", "rejected");
+        death.put("count", 1L);
+        death.put("time", Date.from(deadAt));
+        AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder()
+            .messageId(messageId)
+            .contentType("application/json")
+            .headers(Map.of("__TypeId__", typeId, "x-death", List.of(death)))
+            .build();
+        return new GetResponse(new Envelope(tag, false, "", DLQ), properties, new byte[] { (byte) tag }, 0);
+    }
+
+    @Test
+    void shouldRepublishToOriginAndAckOnlyConfirmedCopies() throws Exception {
+        Instant now = Instant.now();
+        when(channel.basicGet(DLQ, false)).thenReturn(
+            dead(1, "outbox-1", CREATED, now),
+            dead(2, "outbox-2", DELETED, now),
+            dead(3, "outbox-1", CREATED, now),
+            dead(4, "outbox-4", CREATED, now),
+            null);
+        when(publisher.publish(eq("booking-exchange"), eq("booking.created"), any()))
+            .thenReturn(CompletableFuture.completedFuture(true), CompletableFuture.completedFuture(false));
+
+        DlqRedriver.Job job = redriver.register(DLQ, new DlqRedriveRequestDTO("BookingCreatedEvent", null, null, 1000, null));
+        redriver.run(job);
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(publisher, times(2)).publish(eq("booking-exchange"), eq("booking.created"), sent.capture());
+        DlqRedriveStatusDTO status = job.status();
+        assertAll(
+            () -> assertEquals("outbox-1", sent.getAllValues().get(0).getMessageProperties().getMessageId()),
+            () -> assertEquals(1, sent.getAllValues().get(0).getBody()[0]),
+            () -> assertEquals("DONE", status.state()),
+            () -> assertEquals(4, status.queuedAtStart()),
+            () -> assertEquals(1, status.redriven()),
+            () -> assertEquals(1, status.skipped()),
+            () -> assertEquals(1, status.duplicates()),
+            () -> assertEquals(1, status.failed()));
+        // the confirmed copy and the duplicate are gone, the skipped and the refused one go back
+        verify(channel).basicAck(1, false);
+        verify(channel).basicAck(3, false);
+        verify(channel).basicNack(2, false, true);
+        verify(channel).basicNack(4, false, true);
+        verify(channel, never()).basicAck(eq(2L), anyBoolean());
+        verify(channel, never()).basicAck(eq(4L), anyBoolean());
+    }
+
+    @Test
+    void shouldStopAtTheLimit() throws Exception {
+        Instant now = Instant.now();
+        when(channel.basicGet(DLQ, false)).thenReturn(dead(1, "outbox-1", CREATED, now), dead(2, "outbox-2", CREATED, now));
+        when(publisher.publish(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(true));
+
+        DlqRedriver.Job job = redriver.register(DLQ, new DlqRedriveRequestDTO(null, null, null, 1000, 2L));
+        redriver.run(job);
+
+        assertEquals(2, job.status().redriven());
+        verify(channel, times(2)).basicGet(DLQ, false);
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void shouldFilterByTimeOfDeath() {
+        Instant now = Instant.now();
+        MessageProperties properties = new MessageProperties();
+        properties.setHeader("x-death", List.of(Map.of("time", Date.from(now.minus(Duration.ofMinutes(30))))));
+
+        assertAll(
+            () -> assertTrue(DlqRedriver.matches(new DlqRedriveRequestDTO(null, 10L, 60L, null, null), properties, now)),
+            () -> assertFalse(DlqRedriver.matches(new DlqRedriveRequestDTO(null, null, 10L, null, null), properties, now)),
+            () -> assertFalse(DlqRedriver.matches(new DlqRedriveRequestDTO(null, 60L, null, null, null), properties, now)),
+            () -> assertFalse(DlqRedriver.matches(new DlqRedriveRequestDTO(null, 10L, null, null, null),
+                new MessageProperties(), now)));
+    }
+
+    @Test
+    void shouldFindTheOriginOfMessagesTheBatchRecovererDeadLettered() {
+        MessageProperties received = new MessageProperties();
+        received.setMessageId("outbox-1");
+        received.setConsumerQueue("booking.created.q");
+        received.setReceivedExchange("booking-exchange");
+        received.setReceivedRoutingKey("booking.created");
+        Message message = new Message(new byte[0], received);
+        doAnswer(invocation -> {
+            invocation.getArgument(3, CorrelationData.class).getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(eq(""), eq(DLQ), eq(message), any(CorrelationData.class));
+
+        RabbitMQConfig.recoverBatch(rabbitTemplate, Map.of("booking.created.q", DLQ), 1000, List.of(message),
+            new ProjectionDispatcher.FailedMessagesException(Set.of("outbox-1"), new IllegalStateException("poison")));
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(""), eq(DLQ), sent.capture(), any(CorrelationData.class));
+        MessageProperties dead = sent.getValue().getMessageProperties();
+        assertAll(
+            () -> assertArrayEquals(new String[] { "booking-exchange", "booking.created" }, DlqRedriver.origin(dead)),
+            () -> assertTrue(DlqRedriver.matches(new DlqRedriveRequestDTO(null, null, 5L, null, null), dead, Instant.now())));
+    }
+
+    @Test
+    void shouldRejectUnknownQueuesAndConcurrentRuns() {
+        ApiException unknown = assertThrows(ApiException.class, () -> redriver.register("booking.created.q", null));
+        redriver.register(DLQ, null);
+        ApiException running = assertThrows(ApiException.class, () -> redriver.register(DLQ, null));
+        ApiException rate = assertThrows(ApiException.class,
+            () -> redriver.register(DLQ, new DlqRedriveRequestDTO(null, null, null, 1_000_000, null)));
+
+        assertAll(
+            () -> assertEquals(HttpStatus.NOT_FOUND, unknown.getStatus()),
+            () -> assertEquals("REDRIVE ALREADY RUNNING", running.getMessage()),
+            () -> assertEquals(HttpStatus.CONFLICT, running.getStatus()),
+            () -> assertEquals("INVALID REDRIVE RATE", rate.getMessage()));
+    }
+
+    @Test
+    void tokenBucketShouldHoldTheRateAfterTheBurst() throws Exception {
+        TokenBucket bucket = new TokenBucket(100, 10);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            bucket.acquire();
+        }
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // 10 at once, then 20 at 100/s
+        assertTrue(elapsedMs >= 190 && elapsedMs < 1000, "took " + elapsedMs + " ms");
+    }
+}
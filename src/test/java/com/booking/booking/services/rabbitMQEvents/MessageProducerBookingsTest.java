@@ -0,0 +1,124 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.booking.booking.events.bookingEvents.BookingCreatedEvent;
+import com.booking.booking.events.bookingEvents.BookingDeletedEvent;
+import com.booking.booking.events.bookingEvents.BookingUpdatedEvent;
+import com.booking.booking.repositories.OutboxRepository;
+import com.booking.booking.repositories.OutboxRepository.PendingMessage;
+
+@ExtendWith(MockitoExtension.class)
+public class MessageProducerBookingsTest {
+
+    private static final LocalDateTime WINDOW_START = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @InjectMocks
+    private MessageProducerBookings producer;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(producer, "bookingsExchange", "booking-exchange");
+        ReflectionTestUtils.setField(producer, "createdRK", "booking.created");
+        ReflectionTestUtils.setField(producer, "updatedRK", "booking.updated");
+        ReflectionTestUtils.setField(producer, "deletedRK", "booking.deleted");
+        ReflectionTestUtils.setField(producer, "coalesceWindowMs", 200L);
+    }
+
+    private static BookingUpdatedEvent updated(int hour) {
+        return BookingUpdatedEvent.builder()
+            .id(7L)
+            .providerId(1L)
+            .customerId(2L)
+            .startsTs(LocalDateTime.of(2030, 1, 7, hour, 0))
+            .endTs(LocalDateTime.of(2030, 1, 7, hour + 1, 0))
+            .build();
+    }
+
+    private static PendingMessage pending(long id, String routingKey) {
+        return new PendingMessage(id, routingKey, WINDOW_START.plusNanos(id));
+    }
+
+    @Test
+    void shouldReplacePendingUpdatesWithTheLatestKeepingTheWindowStart() {
+        when(outboxRepository.lockPending("booking:7"))
+            .thenReturn(List.of(pending(1, "booking.updated"), pending(2, "booking.updated")));
+        BookingUpdatedEvent latest = updated(11);
+
+        producer.sendBookingUpdateEvent(latest);
+
+        verify(outboxRepository).deleteAll(List.of(1L, 2L));
+        verify(outboxRepository).append("booking-exchange", "booking.updated", "booking:7", WINDOW_START.plusNanos(1), latest);
+    }
+
+    @Test
+    void shouldFoldUpdateIntoUnpublishedCreate() {
+        when(outboxRepository.lockPending("booking:7"))
+            .thenReturn(List.of(pending(1, "booking.created"), pending(2, "booking.updated")));
+
+        producer.sendBookingUpdateEvent(updated(11));
+
+        ArgumentCaptor<Object> appended = ArgumentCaptor.forClass(Object.class);
+        verify(outboxRepository).deleteAll(List.of(1L, 2L));
+        verify(outboxRepository).append(eq("booking-exchange"), eq("booking.created"), eq("booking:7"),
+            eq(WINDOW_START.plusNanos(1)), appended.capture());
+        BookingCreatedEvent created = (BookingCreatedEvent) appended.getValue();
+        assertAll(
+            () -> assertEquals(7L, created.getId()),
+            () -> assertEquals(LocalDateTime.of(2030, 1, 7, 11, 0), created.getStartsTs()),
+            () -> assertEquals(LocalDateTime.of(2030, 1, 7, 12, 0), created.getEndTs()));
+    }
+
+    @Test
+    void shouldCancelCreateThenDeleteWithinTheWindow() {
+        when(outboxRepository.lockPending("booking:7"))
+            .thenReturn(List.of(pending(1, "booking.created"), pending(2, "booking.updated")));
+
+        producer.sendBookingDeleteEvent(BookingDeletedEvent.builder().id(7L).providerId(1L).build());
+
+        verify(outboxRepository).deleteAll(List.of(1L, 2L));
+        verify(outboxRepository, never()).append(anyString(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void shouldDeleteAfterPendingUpdatesOfAPublishedBooking() {
+        when(outboxRepository.lockPending("booking:7")).thenReturn(List.of(pending(3, "booking.updated")));
+        BookingDeletedEvent deleted = BookingDeletedEvent.builder().id(7L).providerId(1L).build();
+
+        producer.sendBookingDeleteEvent(deleted);
+
+        verify(outboxRepository).deleteAll(List.of(3L));
+        verify(outboxRepository).append("booking-exchange", "booking.deleted", "booking:7", WINDOW_START.plusNanos(3), deleted);
+    }
+
+    @Test
+    void shouldAppendWithoutLookingWhenCoalescingIsOff() {
+        ReflectionTestUtils.setField(producer, "coalesceWindowMs", 0L);
+        BookingUpdatedEvent event = updated(9);
+
+        producer.sendBookingUpdateEvent(event);
+
+        verify(outboxRepository, never()).lockPending(any());
+        verify(outboxRepository).append(eq("booking-exchange"), eq("booking.updated"), eq("booking:7"), any(), eq(event));
+    }
+}
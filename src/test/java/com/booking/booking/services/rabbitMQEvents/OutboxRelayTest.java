@@ -0,0 +1,124 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.booking.booking.repositories.OutboxRepository;
+import com.booking.booking.repositories.OutboxRepository.OutboxMessage;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayTest {
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private AsyncEventPublisher publisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+        lenient().doAnswer(invocation -> {
+            Consumer<TransactionStatus> callback = invocation.getArgument(0);
+            callback.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private OutboxMessage message(long id) {
+        return new OutboxMessage(id, "booking-exchange", "booking.created",
+            "com.booking.booking.events.bookingEvents.BookingCreatedEvent", "application/json",
+            ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldHandClaimedRowsToPublisherAndDeleteOnlyAckedOnes() {
+        CompletableFuture<Boolean> first = new CompletableFuture<>();
+        CompletableFuture<Boolean> second = new CompletableFuture<>();
+        when(outboxRepository.claimOldest(anyInt(), any(), any(), any())).thenReturn(List.of(message(1), message(2)));
+        when(publisher.publish(eq("booking-exchange"), eq("booking.created"), any()))
+            .thenReturn(first, second);
+
+        assertEquals(2, relay.relayBatch());
+        verify(outboxRepository, never()).deleteAll(any());
+
+        first.complete(true);
+        second.complete(false);
+        relay.settle();
+
+        verify(outboxRepository).deleteAll(List.of(1L));
+        verify(outboxRepository).releaseAll(List.of(2L));
+    }
+
+    @Test
+    void shouldReleaseRemainingRowsWhenPublisherIsFull() {
+        when(outboxRepository.claimOldest(anyInt(), any(), any(), any()))
+            .thenReturn(List.of(message(1), message(2), message(3)));
+        when(publisher.publish(any(), any(), any()))
+            .thenReturn(new CompletableFuture<>())
+            .thenThrow(new RejectedExecutionException("full"));
+
+        assertEquals(1, relay.relayBatch());
+
+        verify(outboxRepository).releaseAll(List.of(2L, 3L));
+    }
+
+    @Test
+    void shouldNotTouchPublisherWhenOutboxIsEmpty() {
+        when(outboxRepository.claimOldest(anyInt(), any(), any(), any())).thenReturn(List.of());
+
+        assertEquals(0, relay.relayBatch());
+
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    void shouldMapRowToPersistentJsonMessage() {
+        when(outboxRepository.claimOldest(anyInt(), any(), any(), any())).thenReturn(List.of(message(1)));
+        when(publisher.publish(any(), any(), any())).thenReturn(new CompletableFuture<>());
+
+        relay.relayBatch();
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(publisher).publish(eq("booking-exchange"), eq("booking.created"), sent.capture());
+        Message message = sent.getValue();
+        assertAll(
+            () -> assertEquals("{\"id\":1}", new String(message.getBody(), StandardCharsets.UTF_8)),
+            () -> assertEquals("outbox-1", message.getMessageProperties().getMessageId()),
+            () -> assertEquals("com.booking.booking.events.bookingEvents.BookingCreatedEvent",
+                message.getMessageProperties().getHeader("__TypeId__")),
+            () -> assertEquals("application/json", message.getMessageProperties().getContentType()));
+    }
+}
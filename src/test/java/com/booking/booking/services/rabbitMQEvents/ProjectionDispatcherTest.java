@@ -0,0 +1,145 @@
+package com.booking.booking.services.rabbitMQEvents;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ProjectionDispatcherTest {
+
+    private ProjectionDispatcher dispatcher;
+
+    record Event(long providerId, long sequence) {}
+
+    @BeforeEach
+    void setup() {
+        dispatcher = new ProjectionDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "partitions", 4);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.stop();
+    }
+
+    private static Message<Event> message(long outboxId, Event event) {
+        return MessageBuilder.withPayload(event).setHeader(AmqpHeaders.MESSAGE_ID, "outbox-" + outboxId).build();
+    }
+
+    @Test
+    void shouldApplyEachProviderInOrderAcrossPartitions() {
+        int providers = 20;
+        Map<Long, List<Long>> applied = new ConcurrentHashMap<>();
+        long outboxId = 0;
+
+        for (int b = 0; b < 5; b++) {
+            List<Message<Event>> batch = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                outboxId++;
+                batch.add(message(outboxId, new Event(outboxId % providers, outboxId)));
+            }
+            dispatcher.dispatch(batch, event -> event.providerId(), (event, version) ->
+                applied.computeIfAbsent(event.providerId(), id -> new ArrayList<>()).add(version));
+        }
+
+        assertEquals(providers, applied.size());
+        for (List<Long> versions : applied.values()) {
+            assertEquals(10, versions.size());
+            for (int i = 1; i < versions.size(); i++) {
+                assertTrue(versions.get(i - 1) < versions.get(i));
+            }
+        }
+    }
+
+    // opt-in load run: mvn test -Dtest=ProjectionDispatcherTest -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void shouldKeepProviderOrderUnderLoadAndReportThroughput() {
+        int providers = 500;
+        int batches = 500;
+        int batchSize = 200;
+        Map<Long, List<Long>> applied = new ConcurrentHashMap<>();
+        long outboxId = 0;
+
+        long started = System.nanoTime();
+        for (int b = 0; b < batches; b++) {
+            List<Message<Event>> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                outboxId++;
+                batch.add(message(outboxId, new Event(outboxId % providers, outboxId)));
+            }
+            dispatcher.dispatch(batch, event -> event.providerId(), (event, version) ->
+                applied.computeIfAbsent(event.providerId(), id -> new ArrayList<>()).add(version));
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("Projection dispatcher: %d messages in %.2f s (%.0f msg/s) on %d partitions%n",
+            batches * batchSize, seconds, batches * batchSize / seconds, dispatcher.partitionCount());
+
+        assertEquals(providers, applied.size());
+        for (List<Long> versions : applied.values()) {
+            for (int i = 1; i < versions.size(); i++) {
+                assertTrue(versions.get(i - 1) < versions.get(i));
+            }
+        }
+        assertEquals(batches * batchSize, applied.values().stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    void shouldApplyTheRestOfTheBatchAndNameTheFailedMessages() {
+        long failing = 7L;
+        long other = 8L;
+        while (dispatcher.partitionFor(other) == dispatcher.partitionFor(failing)) {
+            other++;
+        }
+        List<Long> applied = new ArrayList<>();
+        long healthy = other;
+
+        ProjectionDispatcher.FailedMessagesException thrown = assertThrows(
+            ProjectionDispatcher.FailedMessagesException.class, () -> dispatcher.dispatch(
+                List.of(message(1, new Event(failing, 1)), message(2, new Event(healthy, 2)),
+                    message(3, new Event(failing, 3))),
+                event -> event.providerId(),
+                (event, version) -> {
+                    if (version == 1) {
+                        throw new IllegalStateException("poison");
+                    }
+                    synchronized (applied) {
+                        applied.add(version);
+                    }
+                }));
+
+        // the failing provider's later message still goes through
+        assertAll(
+            () -> assertEquals(Set.of("outbox-1"), thrown.getMessageIds()),
+            () -> assertEquals("poison", thrown.getCause().getMessage()),
+            () -> assertEquals(Set.of(2L, 3L), Set.copyOf(applied)));
+    }
+
+    @Test
+    void shouldSkipMessagesWithoutOutboxId() {
+        List<Long> versions = new ArrayList<>();
+
+        dispatcher.dispatch(
+            List.of(MessageBuilder.withPayload(new Event(1, 1)).build(), message(42, new Event(1, 2))),
+            event -> event.providerId(),
+            (event, version) -> versions.add(version));
+
+        assertEquals(List.of(42L), versions);
+    }
+}